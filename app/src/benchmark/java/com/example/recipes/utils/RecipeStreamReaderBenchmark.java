@@ -0,0 +1,92 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.RecipeResponse;
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Пиковая занятая память при чтении каталога: потоковый разбор в sink
+ * против прежнего пути (файл целиком в String, затем весь RecipeResponse).
+ *
+ * Пик меряется по живой куче после сборки мусора в момент, когда старый путь
+ * держит строку и список, а потоковый — середину разбора.
+ * Только по запросу: ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class RecipeStreamReaderBenchmark {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final Gson gson = GsonProvider.get();
+
+    @Test
+    public void peakHeap10k() throws IOException {
+        compare(10_000);
+    }
+
+    @Test
+    public void peakHeap100k() throws IOException {
+        compare(100_000);
+    }
+
+    private void compare(int count) throws IOException {
+        File file = RecipeFixtures.writeCatalog(temp.newFile(), count);
+
+        long buffered = peakBuffered(file, count);
+        long streamed = peakStreamed(file, count);
+
+        System.out.printf("%,d рецептов (%,d КБ): String + List %,d КБ, поток %,d КБ%n",
+                count, file.length() / 1024, buffered / 1024, streamed / 1024);
+        // Поток держит буфер и один рецепт — на порядок меньше, чем весь каталог
+        assertTrue("поток " + streamed + " против " + buffered, streamed * 10 < buffered);
+    }
+
+    private long peakBuffered(File file, int count) throws IOException {
+        long before = liveHeap();
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        RecipeResponse response = gson.fromJson(json, RecipeResponse.class);
+        long peak = liveHeap() - before;
+        // Обе ссылки живы до замера — как в прежнем RecipeCache.read
+        assertEquals(count, response.getRecipes().size());
+        assertTrue(json.length() > 0);
+        return peak;
+    }
+
+    private long peakStreamed(File file, int count) throws IOException {
+        long before = liveHeap();
+        long[] peak = {0};
+        int[] seen = {0};
+        try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            RecipeStreamReader.read(in, gson, recipe -> {
+                // Получатель (адаптер, база) забирает рецепт — здесь он сразу не нужен
+                if (++seen[0] == count / 2) {
+                    peak[0] = liveHeap() - before;
+                }
+            });
+        }
+        assertEquals(count, seen[0]);
+        return Math.max(0, peak[0]);
+    }
+
+    private static long liveHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Пропускная способность разбора списка рецептов в духе JMH: прогрев,
+ * затем замеры фиксированной длительности, берётся медиана. Замеры двух
+ * вариантов чередуются, чтобы дрейф JIT и GC не доставался одному из них.
+ *
+ * Прежний путь getLocalRecipes — новый Gson и TypeToken на каждый вызов
+ * и рефлексивная привязка полей. Новый — общий GsonProvider с RecipeTypeAdapter.
+ * Только по запросу: ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class RecipeTypeAdapterBenchmark {
+
+    // Столько своих рецептов читает getLocalRecipes в типичном случае
+    private static final int LOCAL_RECIPES = 50;
+    private static final int CATALOG_RECIPES = 500;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURE_ITERATIONS = 9;
+    private static final long ITERATION_NANOS = 100_000_000L;
+
+    private static final Type LIST_TYPE = new TypeToken<List<Recipe>>() {}.getType();
+
+    private static String localJson;
+    private static String catalogJson;
+
+    /**
+     * Одна операция бенчмарка; возвращает число прочитанных рецептов
+     */
+    private interface Operation {
+        int run();
+    }
+
+    @BeforeClass
+    public static void setUpPayload() {
+        localJson = GsonProvider.get().toJson(RecipeFixtures.recipes(LOCAL_RECIPES));
+        catalogJson = GsonProvider.get().toJson(RecipeFixtures.recipes(CATALOG_RECIPES));
+    }
+
+    @Test
+    public void localRecipesFasterThanPerCallReflectiveGson() {
+        Gson shared = GsonProvider.get();
+        double gain = compare("getLocalRecipes, " + LOCAL_RECIPES + " рецептов",
+                () -> {
+                    Type type = new TypeToken<List<Recipe>>() {}.getType();
+                    List<Recipe> recipes = new Gson().fromJson(localJson, type);
+                    return recipes.size();
+                },
+                () -> shared.<List<Recipe>>fromJson(localJson, LIST_TYPE).size());
+        assertTrue("выигрыш x" + gain, gain > 1.3);
+    }
+
+    @Test
+    public void catalogFasterThanPerCallReflectiveGson() {
+        Gson shared = GsonProvider.get();
+        double gain = compare("каталог, " + CATALOG_RECIPES + " рецептов",
+                () -> {
+                    Type type = new TypeToken<List<Recipe>>() {}.getType();
+                    List<Recipe> recipes = new Gson().fromJson(catalogJson, type);
+                    return recipes.size();
+                },
+                () -> shared.<List<Recipe>>fromJson(catalogJson, LIST_TYPE).size());
+        // На большом ответе стоимость создания Gson размазывается, но не исчезает
+        assertTrue("выигрыш x" + gain, gain > 1.0);
+    }
+
+    @Test
+    public void catalogAgainstSharedReflectiveGson() {
+        // Только для справки: на HotSpot рефлексия почти бесплатна, и общий
+        // рефлексивный Gson идёт вровень; на ART разница заметнее
+        Gson reflective = new Gson();
+        Gson shared = GsonProvider.get();
+        compare("каталог, общий рефлексивный Gson",
+                () -> reflective.<List<Recipe>>fromJson(catalogJson, LIST_TYPE).size(),
+                () -> shared.<List<Recipe>>fromJson(catalogJson, LIST_TYPE).size());
+    }
+
+    /**
+     * Во сколько раз after быстрее before (медианы операций в секунду)
+     */
+    private static double compare(String label, Operation before, Operation after) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            measure(before);
+            measure(after);
+        }
+        double[] beforeSamples = new double[MEASURE_ITERATIONS];
+        double[] afterSamples = new double[MEASURE_ITERATIONS];
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            beforeSamples[i] = measure(before);
+            afterSamples[i] = measure(after);
+        }
+        double beforeOps = median(beforeSamples);
+        double afterOps = median(afterSamples);
+        System.out.printf("%s: было %.0f оп/с, стало %.0f оп/с (x%.2f)%n",
+                label, beforeOps, afterOps, afterOps / beforeOps);
+        return afterOps / beforeOps;
+    }
+
+    private static double median(double[] samples) {
+        double[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static double measure(Operation operation) {
+        long start = System.nanoTime();
+        long elapsed;
+        int ops = 0;
+        do {
+            assertTrue(operation.run() > 0);
+            ops++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+        return ops * 1e9 / elapsed;
+    }
+}
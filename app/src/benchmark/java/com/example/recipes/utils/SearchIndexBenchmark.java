@@ -0,0 +1,101 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Нажатие клавиши в строке поиска на каталоге из 100 000 рецептов: тот же путь,
+ * что RecipeStorage.queryFacets (поиск, карты фильтров, первая страница),
+ * по уже построенным индексам. Сборка индексов меряется отдельно — она идёт
+ * в фоне после записи в базу и в бюджет нажатия не входит.
+ * Только по запросу: ./gradlew testDebugUnitTest -Pbenchmarks
+ */
+public class SearchIndexBenchmark {
+
+    private static final int RECIPES = 100_000;
+    // Как SEARCH_BUDGET_NANOS в RecipeStorage
+    private static final long BUDGET_NANOS = 8_000_000L;
+    private static final int PAGE_SIZE = 100;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURE_ROUNDS = 15;
+
+    // Набор "борщ домашний" по буквам, опечатки и ингредиенты
+    private static final String[] KEYSTROKES = {
+            "б", "бо", "бор", "борщ", "борщ д", "борщ до", "борщ дом", "борщ домаш",
+            "борщ домашний", "борш", "запеканк", "запиканка", "котлеты с грибами",
+            "курица", "курицы", "сыр", "блины с творогом", "классическй пирог"};
+
+    private static FacetIndex facetIndex;
+    private static FuzzySearchIndex searchIndex;
+    private static long buildNanos;
+
+    @BeforeClass
+    public static void buildIndexes() {
+        List<Recipe> recipes = RecipeFixtures.recipes(RECIPES);
+        long startedAt = System.nanoTime();
+        FacetIndex.Builder facets = new FacetIndex.Builder(recipes.size());
+        FuzzySearchIndex.Builder search = new FuzzySearchIndex.Builder(recipes.size());
+        for (Recipe recipe : recipes) {
+            facets.add(recipe.getId(), recipe.getCategory(), recipe.getDifficulty(),
+                    recipe.getCookingTime(), recipe.getIngredients().size());
+            search.add(recipe.getId(), recipe.getName(), recipe.getIngredients());
+        }
+        facetIndex = facets.build();
+        searchIndex = search.build();
+        buildNanos = System.nanoTime() - startedAt;
+    }
+
+    @Test
+    public void keystrokeFitsBudgetOn100k() {
+        FacetQuery category = FacetQuery.ALL.with(Facet.CATEGORY, "Первые блюда", true);
+        long[] favorites = facetIndex.maskOf(new IntSet());
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            for (String text : KEYSTROKES) {
+                keystroke(FacetQuery.ALL.withText(text), favorites);
+                keystroke(category.withText(text), favorites);
+            }
+        }
+
+        long[] samples = new long[MEASURE_ROUNDS * KEYSTROKES.length * 2];
+        int n = 0;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            for (String text : KEYSTROKES) {
+                samples[n++] = keystroke(FacetQuery.ALL.withText(text), favorites);
+                samples[n++] = keystroke(category.withText(text), favorites);
+            }
+        }
+        Arrays.sort(samples);
+        long median = samples[samples.length / 2];
+        long p95 = samples[samples.length * 95 / 100];
+        System.out.printf("%,d рецептов: сборка индексов %d мс (в фоне), нажатие: "
+                        + "медиана %.2f мс, p95 %.2f мс, бюджет %d мс%n",
+                RECIPES, buildNanos / 1_000_000, median / 1e6, p95 / 1e6,
+                BUDGET_NANOS / 1_000_000);
+        assertTrue("медиана " + median + " нс", median <= BUDGET_NANOS);
+        // Поиск опечаток обрывается по сроку, остальное — проходы по картам
+        assertTrue("p95 " + p95 + " нс", p95 <= 2 * BUDGET_NANOS);
+    }
+
+    /**
+     * Одно нажатие, нс
+     */
+    private static long keystroke(FacetQuery query, long[] favorites) {
+        long startedAt = System.nanoTime();
+        FuzzySearchIndex.Matches matches = searchIndex.search(query.getText(),
+                startedAt + BUDGET_NANOS);
+        int[] ordinals = facetIndex.ordinalsOf(matches.recipeIds);
+        long[] textMask = facetIndex.maskOfOrdinals(ordinals);
+        FacetIndex.Hits hits = facetIndex.query(query, textMask, favorites);
+        int[] page = FuzzySearchIndex.page(matches, ordinals, hits.matching, 0, PAGE_SIZE);
+        long elapsed = System.nanoTime() - startedAt;
+        assertTrue(page.length <= PAGE_SIZE);
+        return elapsed;
+    }
+}
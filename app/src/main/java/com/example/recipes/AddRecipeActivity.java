@@ -10,6 +10,7 @@ import android.widget.AutoCompleteTextView;
 import android.widget.Toast;
 
 import com.example.recipes.models.Recipe;
+import com.example.recipes.utils.ImagePipeline;
 import com.example.recipes.utils.RecipeStorage;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.textfield.TextInputEditText;
@@ -37,7 +38,7 @@ public class AddRecipeActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_add_recipe);
 
-        recipeStorage = new RecipeStorage(this);
+        recipeStorage = RecipeStorage.getInstance(this);
 
         initViews();
         setupToolbar();
@@ -162,11 +163,6 @@ public class AddRecipeActivity extends AppCompatActivity {
             return;
         }
 
-        // URL по умолчанию, если не указан
-        if (TextUtils.isEmpty(imageUrl)) {
-            imageUrl = "https://via.placeholder.com/400x300?text=Рецепт";
-        }
-
         // Создание объекта рецепта
         Recipe newRecipe = recipeStorage.createRecipe(
                 name,
@@ -182,6 +178,9 @@ public class AddRecipeActivity extends AppCompatActivity {
         boolean saved = recipeStorage.addRecipe(newRecipe);
 
         if (saved) {
+            // Размеры и цвет превью картинки — в фоне, затем пересохраняем рецепт
+            ImagePipeline.get(getApplicationContext()).resolveMetadata(newRecipe,
+                    () -> recipeStorage.addRecipe(newRecipe));
             Toast.makeText(this, "Рецепт успешно добавлен!", Toast.LENGTH_SHORT).show();
             setResult(RESULT_OK);
             finish();
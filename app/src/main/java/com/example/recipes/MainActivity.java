@@ -16,62 +16,103 @@ import android.widget.ProgressBar;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.example.recipes.adapters.ImagePrefetcher;
 import com.example.recipes.adapters.RecipeAdapter;
 import com.example.recipes.api.RetrofitClient;
-import com.example.recipes.api.ApiService;
+import com.example.recipes.api.RecipePageLoader;
+import com.example.recipes.api.RecipeSync;
+import com.example.recipes.api.RecipeSyncWorker;
 import com.example.recipes.models.Recipe;
 import com.example.recipes.models.RecipeResponse;
+import com.example.recipes.utils.Facet;
+import com.example.recipes.utils.FacetQuery;
+import com.example.recipes.utils.FacetResult;
+import com.example.recipes.utils.ImagePipeline;
+import com.example.recipes.utils.RecipeCache;
 import com.example.recipes.utils.RecipeStorage;
+import com.example.recipes.utils.SearchPipeline;
+import com.example.recipes.utils.SortOrder;
 import com.google.android.material.chip.Chip;
 import com.google.android.material.chip.ChipGroup;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-
-import retrofit2.Call;
-import retrofit2.Callback;
-import retrofit2.Response;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final String TAG = "MainActivity";
     private static final int REQUEST_ADD_RECIPE = 1;
-    private static final int REQUEST_VIEW_RECIPE = 2;
+    private static final int PAGE_SIZE = 50;
+    private static final int FIRST_SCREEN_ROWS = 20;
+    // Сколько строк до конца списка, чтобы начать грузить следующую страницу
+    private static final int LOAD_MORE_THRESHOLD = 10;
+    // Сколько строк вперёд прогревать картинки
+    private static final int PREFETCH_DEPTH = ImagePrefetcher.DEFAULT_DEPTH;
 
     private RecyclerView recycler;
     private RecipeAdapter adapter;
+    private ImagePrefetcher imagePrefetcher;
     private EditText searchEditText;
     private ChipGroup categoryChipGroup;
+    private ChipGroup facetChipGroup;
+    private ChipGroup sortChipGroup;
     private TextView recipeCountText;
     private LinearLayout emptyStateLayout;
     private ProgressBar progressBar;
     private FloatingActionButton fabAddRecipe;
 
-    private List<Recipe> allRecipes;
-    private String currentCategory = "Все";
+    private List<Recipe> allRecipes = new ArrayList<>();
+    private List<Recipe> apiRecipes = new ArrayList<>();
+    // Текущий фильтр (главный поток); в фон уходит неизменяемый снимок
+    private FacetQuery facetQuery = FacetQuery.ALL;
+    // Счётчики последнего выполненного запроса
+    private volatile FacetResult lastFacets;
+    // Чипы обновляются из кода — их слушатели в это время молчат
+    private boolean updatingChips;
     private RecipeStorage recipeStorage;
+    private SearchPipeline searchPipeline;
+    private RecipeCache recipeCache;
+    private RecipePageLoader pageLoader;
+    private RecipeSync recipeSync;
+    private boolean hasCachedCatalog;
+    // Сколько строк фильтра запрашивать; растёт по мере прокрутки
+    private volatile int filterLimit = RecipeAdapter.FILTER_PAGE_SIZE;
+    private volatile int filteredTotal;
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        recipeStorage = new RecipeStorage(this);
+        recipeStorage = RecipeStorage.getInstance(this);
+        recipeCache = new RecipeCache(this);
+        RetrofitClient.init(this);
+        pageLoader = new RecipePageLoader(RetrofitClient.getApi(), PAGE_SIZE, pageListener);
+        recipeSync = new RecipeSync(RetrofitClient.getApi(), recipeCache, recipeStorage);
 
         initViews();
         setupRecyclerView();
         setupSearch();
         setupCategoryFilter();
+        setupSortChips();
         setupFab();
 
+        recipeStorage.addOnChangeListener(storageListener);
         loadRecipes();
+        RecipeSyncWorker.schedule(this);
     }
 
     private void initViews() {
         recycler = findViewById(R.id.recyclerRecipes);
         searchEditText = findViewById(R.id.searchEditText);
         categoryChipGroup = findViewById(R.id.categoryChipGroup);
+        facetChipGroup = findViewById(R.id.facetChipGroup);
+        sortChipGroup = findViewById(R.id.sortChipGroup);
         recipeCountText = findViewById(R.id.recipeCountText);
         emptyStateLayout = findViewById(R.id.emptyStateLayout);
         progressBar = findViewById(R.id.progressBar);
@@ -79,26 +120,77 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void setupRecyclerView() {
-        recycler.setLayoutManager(new LinearLayoutManager(this));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recycler.setLayoutManager(layoutManager);
         adapter = new RecipeAdapter(this, recipeStorage);
 
+        // Картинки следующих строк грузятся заранее, пока пользователь листает
+        imagePrefetcher = new ImagePrefetcher(ImagePipeline.get(this),
+                layoutManager, adapter, PREFETCH_DEPTH);
+        adapter.setImagePrefetcher(imagePrefetcher);
+        recycler.addOnScrollListener(imagePrefetcher);
+
+        // Следующая страница каталога — когда до конца списка осталось немного
+        recycler.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (dy <= 0) {
+                    return;
+                }
+                int lastVisible = layoutManager.findLastVisibleItemPosition();
+                if (lastVisible < adapter.getItemCount() - LOAD_MORE_THRESHOLD) {
+                    return;
+                }
+                if (isFiltering()) {
+                    // Следующая страница результатов фильтра из базы
+                    if (adapter.getItemCount() >= filterLimit) {
+                        filterLimit += RecipeAdapter.FILTER_PAGE_SIZE;
+                        searchPipeline.submitNow(facetQuery);
+                    }
+                } else if (pageLoader.hasMore()) {
+                    pageLoader.loadNextPage();
+                }
+            }
+        });
+
         adapter.setOnRecipeClickListener(recipe -> {
             Intent intent = new Intent(MainActivity.this, RecipeDetailActivity.class);
-            intent.putExtra("recipe", recipe);
-            startActivityForResult(intent, REQUEST_VIEW_RECIPE);
+            intent.putExtra(RecipeDetailActivity.EXTRA_RECIPE_ID, recipe.getId());
+            startActivity(intent);
         });
 
         recycler.setAdapter(adapter);
     }
 
     private void setupSearch() {
+        searchPipeline = new SearchPipeline(query -> {
+            FacetResult result = adapter.match(query, filterLimit);
+            filteredTotal = result.getTotal();
+            lastFacets = result;
+            return result.getRecipes();
+        }, (result, latencyMs) -> {
+            updateFacetChips();
+            Runnable onCommitted = () -> {
+                updateRecipeCount();
+                updateEmptyState();
+            };
+            if (isFiltering()) {
+                adapter.submitFiltered(result, onCommitted);
+            } else {
+                // Весь список берём из адаптера: снимок из фона мог устареть
+                adapter.showAll(onCommitted);
+            }
+        });
+
         searchEditText.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
 
             @Override
             public void onTextChanged(CharSequence s, int start, int before, int count) {
-                filterRecipes(s.toString(), currentCategory);
+                filterLimit = RecipeAdapter.FILTER_PAGE_SIZE;
+                facetQuery = facetQuery.withText(s.toString());
+                searchPipeline.submit(facetQuery);
             }
 
             @Override
@@ -107,52 +199,140 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void setupCategoryFilter() {
-        categoryChipGroup.setOnCheckedChangeListener((group, checkedId) -> {
-            Chip chip = findViewById(checkedId);
-            if (chip != null) {
-                currentCategory = chip.getText().toString();
-                filterRecipes(searchEditText.getText().toString(), currentCategory);
+        // Категории из разметки: "Все" снимает выбор, остальные объединяются по ИЛИ
+        for (int i = 0; i < categoryChipGroup.getChildCount(); i++) {
+            Chip chip = (Chip) categoryChipGroup.getChildAt(i);
+            if (chip.getId() == R.id.chipAll) {
+                chip.setOnCheckedChangeListener((button, checked) -> {
+                    if (updatingChips) {
+                        return;
+                    }
+                    if (checked) {
+                        applyFacetQuery(facetQuery.clear(Facet.CATEGORY));
+                    } else {
+                        // Повторное нажатие на «Все» ничего не меняет
+                        syncChipStates();
+                    }
+                });
+            } else {
+                bindFacetChip(chip, Facet.CATEGORY, chip.getText().toString());
             }
-        });
+        }
+
+        // Остальные измерения — чипами с флажком, по И между измерениями
+        for (Facet facet : Facet.values()) {
+            for (String value : facet.fixedValues()) {
+                Chip chip = new Chip(this);
+                chip.setCheckable(true);
+                chip.setText(value);
+                facetChipGroup.addView(chip);
+                bindFacetChip(chip, facet, value);
+            }
+        }
     }
 
-    private void setupFab() {
-        fabAddRecipe.setOnClickListener(v -> {
-            Intent intent = new Intent(MainActivity.this, AddRecipeActivity.class);
-            startActivityForResult(intent, REQUEST_ADD_RECIPE);
+    private void setupSortChips() {
+        // Порядки уже построены в хранилище — переключение не пересортировывает список
+        for (SortOrder order : SortOrder.values()) {
+            Chip chip = new Chip(this);
+            chip.setCheckable(true);
+            chip.setText(order.getLabel());
+            sortChipGroup.addView(chip);
+            chip.setChecked(order == facetQuery.getSort());
+            chip.setOnCheckedChangeListener((button, checked) -> {
+                if (checked) {
+                    applyFacetQuery(facetQuery.withSort(order));
+                }
+            });
+        }
+    }
+
+    private void bindFacetChip(Chip chip, Facet facet, String value) {
+        chip.setTag(new FacetChip(facet, value));
+        chip.setOnCheckedChangeListener((button, checked) -> {
+            if (!updatingChips) {
+                applyFacetQuery(facetQuery.with(facet, value, checked));
+            }
         });
     }
 
-    private void filterRecipes(String query, String category) {
-        List<Recipe> filteredList = new ArrayList<>();
+    private void applyFacetQuery(FacetQuery query) {
+        facetQuery = query;
+        filterLimit = RecipeAdapter.FILTER_PAGE_SIZE;
+        syncChipStates();
+        searchPipeline.submitNow(facetQuery);
+    }
 
-        for (Recipe recipe : allRecipes) {
-            boolean matchesQuery = recipe.getName().toLowerCase()
-                    .contains(query.toLowerCase());
+    /**
+     * Отметки чипов по текущему запросу
+     */
+    private void syncChipStates() {
+        updatingChips = true;
+        Chip chipAll = findViewById(R.id.chipAll);
+        chipAll.setChecked(facetQuery.getSelected(Facet.CATEGORY).isEmpty());
+        for (Chip chip : facetChips()) {
+            FacetChip tag = (FacetChip) chip.getTag();
+            chip.setChecked(facetQuery.isSelected(tag.facet, tag.value));
+        }
+        updatingChips = false;
+    }
 
-            boolean matchesCategory;
-            if (category.equals("Избранное")) {
-                // Фильтр по избранным
-                matchesCategory = recipeStorage.isFavorite(recipe.getId());
-            } else {
-                // Обычный фильтр по категории
-                matchesCategory = category.equals("Все") ||
-                        recipe.getCategory().equals(category);
-            }
+    /**
+     * Числа на чипах: сколько рецептов будет, если выбрать значение
+     */
+    private void updateFacetChips() {
+        FacetResult facets = lastFacets;
+        if (facets == null) {
+            return;
+        }
+        for (Chip chip : facetChips()) {
+            FacetChip tag = (FacetChip) chip.getTag();
+            int count = facets.getCount(tag.facet, tag.value);
+            chip.setText(tag.value + " · " + count);
+            chip.setEnabled(count > 0 || chip.isChecked());
+        }
+    }
 
-            if (matchesQuery && matchesCategory) {
-                filteredList.add(recipe);
+    private List<Chip> facetChips() {
+        List<Chip> chips = new ArrayList<>();
+        for (ChipGroup group : new ChipGroup[]{categoryChipGroup, facetChipGroup}) {
+            for (int i = 0; i < group.getChildCount(); i++) {
+                View child = group.getChildAt(i);
+                if (child instanceof Chip && child.getTag() instanceof FacetChip) {
+                    chips.add((Chip) child);
+                }
             }
         }
+        return chips;
+    }
+
+    /**
+     * Измерение и значение, за которые отвечает чип
+     */
+    private static final class FacetChip {
+        final Facet facet;
+        final String value;
+
+        FacetChip(Facet facet, String value) {
+            this.facet = facet;
+            this.value = value;
+        }
+    }
 
-        adapter.filter(query, category);
-        updateRecipeCount();
-        updateEmptyState();
+    private void setupFab() {
+        fabAddRecipe.setOnClickListener(v -> {
+            Intent intent = new Intent(MainActivity.this, AddRecipeActivity.class);
+            startActivityForResult(intent, REQUEST_ADD_RECIPE);
+        });
+    }
+
+    private boolean isFiltering() {
+        return facetQuery.isFiltered();
     }
 
     private void updateRecipeCount() {
-        int count = adapter.getItemCount();
-        if (currentCategory.equals("Избранное")) {
+        int count = isFiltering() ? filteredTotal : adapter.getItemCount();
+        if (facetQuery.isSelected(Facet.FAVORITES, Facet.FAVORITE)) {
             recipeCountText.setText("⭐ Избранных рецептов: " + count);
         } else {
             recipeCountText.setText("Найдено рецептов: " + count);
@@ -169,83 +349,269 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Сначала показываем кэш с диска, затем при необходимости обновляем из сети
+     */
     private void loadRecipes() {
-        showLoading(true);
+        ioExecutor.execute(() -> {
+            // Кэш читается потоково: первый экран показываем, не дожидаясь конца файла
+            List<Recipe> streamed = new ArrayList<>();
+            RecipeResponse cached = recipeCache.read(recipe -> {
+                streamed.add(recipe);
+                if (streamed.size() == FIRST_SCREEN_ROWS) {
+                    List<Recipe> firstScreen = new ArrayList<>(streamed);
+                    runOnUiThread(() -> {
+                        if (!isDestroyed() && apiRecipes.isEmpty()) {
+                            apiRecipes = firstScreen;
+                            showRecipes();
+                        }
+                    });
+                }
+            });
+            if (cached != null) {
+                cached.setRecipes(streamed);
+                // База хранит каталог с прошлого запуска — переписывается, только если разошлась
+                recipeStorage.restoreCatalog(streamed);
+            }
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                if (cached != null && cached.getRecipes() != null) {
+                    hasCachedCatalog = true;
+                    apiRecipes = cached.getRecipes();
+                    pageLoader.resumeFrom(apiRecipes, cached.getNextOffset(),
+                            cached.getServerTime());
+                    Log.d(TAG, "Загружено из кэша: " + apiRecipes.size()
+                            + ", возраст " + recipeCache.getAgeMs() / 1000 + " с");
+                    showRecipes();
+                    refilter();
+                } else {
+                    showLoading(true);
+                }
 
-        ApiService api = RetrofitClient.getApi();
+                if (recipeCache.isFresh()) {
+                    Log.d(TAG, "Кэш свежий, запрос к API пропущен");
+                } else if (hasCachedCatalog) {
+                    // Каталог уже есть: забираем только изменения с прошлого раза
+                    ioExecutor.execute(this::syncCatalog);
+                } else {
+                    pageLoader.refresh();
+                }
+            });
+        });
+    }
 
-        api.getRecipes().enqueue(new Callback<RecipeResponse>() {
-            @Override
-            public void onResponse(Call<RecipeResponse> call, Response<RecipeResponse> response) {
-                showLoading(false);
+    /**
+     * Догрузить изменения каталога (фоновый поток); изменившиеся рецепты
+     * придут в список через storageListener. Не вышло — перезагружаем каталог целиком.
+     */
+    private void syncCatalog() {
+        try {
+            int changes = recipeSync.sync();
+            Log.d(TAG, "Изменений каталога: " + changes);
+        } catch (IOException e) {
+            Log.e(TAG, "Синхронизация не удалась: " + e.getMessage());
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    pageLoader.refresh();
+                }
+            });
+        }
+    }
 
-                allRecipes = new ArrayList<>();
+    /**
+     * Страницы каталога: первая обновляет список, следующие дописываются в конец.
+     * Изменения применяются к списку через diff.
+     */
+    private final RecipePageLoader.Listener pageListener = new RecipePageLoader.Listener() {
+        @Override
+        public void onPageLoaded(List<Recipe> page, boolean firstPage, boolean notModified) {
+            if (isDestroyed()) {
+                return;
+            }
+            if (notModified && !hasCachedCatalog) {
+                // 304, а своего снимка каталога нет (кэш списка стёрт, HTTP-кэш остался):
+                // показывать нечего — просим ответ целиком, загрузка продолжается
+                Log.d(TAG, "Каталог не изменился, но снимка нет — загружаем заново");
+                pageLoader.reload();
+                return;
+            }
+            showLoading(false);
 
-                if (response.isSuccessful() && response.body() != null) {
-                    List<Recipe> apiRecipes = response.body().getRecipes();
+            if (notModified) {
+                // 304: каталог не изменился, список уже актуален
+                Log.d(TAG, "Каталог не изменился");
+                ioExecutor.execute(recipeCache::touch);
+                return;
+            }
 
-                    if (apiRecipes != null && !apiRecipes.isEmpty()) {
-                        allRecipes.addAll(apiRecipes);
-                        Log.d(TAG, "Загружено из API: " + apiRecipes.size());
-                    }
+            List<Recipe> updated = firstPage ? new ArrayList<>() : new ArrayList<>(apiRecipes);
+            updated.addAll(page);
+            apiRecipes = updated;
+            Log.d(TAG, "Загружено из API: " + page.size() + ", всего " + apiRecipes.size());
+
+            RecipeResponse snapshot = new RecipeResponse();
+            snapshot.setRecipes(apiRecipes);
+            snapshot.setNextOffset(pageLoader.getNextOffset());
+            // Иначе следующая синхронизация попросит since=0, то есть весь каталог
+            snapshot.setServerTime(pageLoader.getServerTime());
+            hasCachedCatalog = true;
+            // Фильтры работают по базе: в неё пишется только пришедшая страница,
+            // после чего текущий фильтр повторяется
+            ioExecutor.execute(() -> {
+                if (firstPage) {
+                    recipeStorage.replaceCatalog(page);
+                } else {
+                    recipeStorage.appendCatalog(page);
                 }
+                recipeCache.write(snapshot);
+                runOnUiThread(() -> {
+                    if (!isDestroyed()) {
+                        refilter();
+                    }
+                });
+            });
 
-                List<Recipe> localRecipes = recipeStorage.getLocalRecipes();
-                if (localRecipes != null && !localRecipes.isEmpty()) {
-                    allRecipes.addAll(localRecipes);
-                    Log.d(TAG, "Загружено локальных: " + localRecipes.size());
-                }
+            showRecipes();
+        }
 
-                if (allRecipes.isEmpty()) {
-                    Log.d(TAG, "Нет рецептов! Добавляем тестовые...");
-                    addTestRecipes();
-                }
+        @Override
+        public void onPageFailed(Throwable error, boolean firstPage) {
+            if (isDestroyed()) {
+                return;
+            }
+            showLoading(false);
+            Log.e(TAG, "Ошибка сети: " + error.getMessage());
 
-                if (!allRecipes.isEmpty()) {
-                    Log.d(TAG, "Всего рецептов: " + allRecipes.size());
-                    adapter.setData(allRecipes);
-                    updateRecipeCount();
-                    updateEmptyState();
-                } else {
-                    showEmptyState();
-                }
+            if (!firstPage) {
+                return;
+            }
+            boolean hadCache = hasCachedCatalog;
+            showRecipes();
+            refilter();
+            if (!allRecipes.isEmpty() && !hadCache) {
+                Toast.makeText(MainActivity.this,
+                        "Нет интернета. Показаны сохраненные рецепты",
+                        Toast.LENGTH_SHORT).show();
             }
+        }
+    };
+
+    /**
+     * Собрать список из рецептов API и локальных и отдать адаптеру.
+     * База не трогается: рецепты API пишет в неё тот, кто их получил,
+     * а демо-рецепты в неё не попадают вовсе.
+     */
+    private void showRecipes() {
+        allRecipes = new ArrayList<>(apiRecipes);
+
+        List<Recipe> localRecipes = recipeStorage.getLocalRecipes();
+        if (!localRecipes.isEmpty()) {
+            allRecipes.addAll(localRecipes);
+            Log.d(TAG, "Загружено локальных: " + localRecipes.size());
+        }
 
-            @Override
-            public void onFailure(Call<RecipeResponse> call, Throwable t) {
-                showLoading(false);
-                Log.e(TAG, "Ошибка сети: " + t.getMessage());
+        if (allRecipes.isEmpty()) {
+            Log.d(TAG, "Нет рецептов! Добавляем тестовые...");
+            addTestRecipes();
+        }
 
-                allRecipes = new ArrayList<>();
+        Log.d(TAG, "Всего рецептов: " + allRecipes.size());
+        applyList(allRecipes);
+    }
 
-                List<Recipe> localRecipes = recipeStorage.getLocalRecipes();
-                if (localRecipes != null && !localRecipes.isEmpty()) {
-                    allRecipes.addAll(localRecipes);
-                    Log.d(TAG, "Показаны локальные рецепты: " + localRecipes.size());
+    /**
+     * Изменения локальных рецептов и избранного: применяем только их,
+     * без перечитывания кэша и запроса к сети
+     */
+    private final RecipeStorage.OnChangeListener storageListener =
+            new RecipeStorage.OnChangeListener() {
+                @Override
+                public void onRecipeAdded(Recipe recipe) {
+                    List<Recipe> updated = new ArrayList<>(allRecipes);
+                    boolean replaced = false;
+                    for (int i = 0; i < updated.size(); i++) {
+                        if (updated.get(i).getId() == recipe.getId()) {
+                            updated.set(i, recipe);
+                            replaced = true;
+                            break;
+                        }
+                    }
+                    if (!replaced) {
+                        updated.add(recipe);
+                    }
+                    applyList(updated);
+                    if (replaced) {
+                        // Рецепт мог измениться на месте (например, получил цвет превью)
+                        adapter.notifyRecipeChanged(recipe.getId());
+                    }
+                    refilter();
                 }
 
-                if (allRecipes.isEmpty()) {
-                    Log.d(TAG, "Нет рецептов! Добавляем тестовые...");
-                    addTestRecipes();
+                @Override
+                public void onRecipeRemoved(int recipeId) {
+                    List<Recipe> updated = new ArrayList<>(allRecipes.size());
+                    for (Recipe recipe : allRecipes) {
+                        if (recipe.getId() != recipeId) {
+                            updated.add(recipe);
+                        }
+                    }
+                    applyList(updated);
+                    refilter();
                 }
 
-                if (!allRecipes.isEmpty()) {
-                    adapter.setData(allRecipes);
-                    updateRecipeCount();
-                    updateEmptyState();
-                    Toast.makeText(MainActivity.this,
-                            "Нет интернета. Показаны сохраненные рецепты",
-                            Toast.LENGTH_SHORT).show();
-                } else {
-                    showError("Нет рецептов для отображения");
+                @Override
+                public void onFavoriteToggled(int recipeId, boolean favorite) {
+                    adapter.notifyFavoriteChanged(recipeId);
+                    // Список (если выбрано «Избранное») и счётчик на чипе
+                    refilter();
                 }
-            }
+
+                @Override
+                public void onCatalogChanged(List<Recipe> changed, List<Integer> removedIds) {
+                    // Синхронизация с сервером: база уже обновлена, diff тронет только эти строки
+                    apiRecipes = RecipeSync.merge(apiRecipes, changed, removedIds);
+                    applyList(RecipeSync.merge(allRecipes, changed, removedIds));
+                    refilter();
+                }
+
+                @Override
+                public void onIndexesUpdated() {
+                    // Прежний результат мог быть посчитан по отставшим индексам
+                    refilter();
+                }
+            };
+
+    /**
+     * Отдать список адаптеру; diff применит только изменившиеся строки
+     */
+    private void applyList(List<Recipe> recipes) {
+        ImagePipeline.get(this).applyMetadata(recipes);
+        allRecipes = recipes;
+        recipeStorage.setCatalog(allRecipes);
+        adapter.setData(allRecipes, () -> {
+            updateRecipeCount();
+            updateEmptyState();
         });
     }
 
+    /**
+     * Повторить текущий фильтр и обновить счётчики на чипах
+     */
+    private void refilter() {
+        searchPipeline.submitNow(facetQuery);
+    }
+
+    /**
+     * Демо-рецепты на пустом экране; отрицательные ID не пересекаются ни с сервером, ни со своими.
+     * В базу и индексы фильтра они намеренно не попадают: это заглушка до первой загрузки
+     * каталога или своего рецепта, поэтому поиск, фильтр и другой порядок их скрывают
+     * (показывается пустое состояние), а снятый фильтр возвращает.
+     */
     private void addTestRecipes() {
         Recipe borsh = new Recipe();
-        borsh.setId(1);
+        borsh.setId(RecipeStorage.DEMO_ID_BASE - 0);
         borsh.setName("Борщ");
         borsh.setCategory("Первые блюда");
         borsh.setCookingTime(90);
@@ -262,7 +628,7 @@ public class MainActivity extends AppCompatActivity {
         borsh.setIngredients(borshIngredients);
 
         Recipe plov = new Recipe();
-        plov.setId(2);
+        plov.setId(RecipeStorage.DEMO_ID_BASE - 1);
         plov.setName("Плов");
         plov.setCategory("Вторые блюда");
         plov.setCookingTime(120);
@@ -279,7 +645,7 @@ public class MainActivity extends AppCompatActivity {
         plov.setIngredients(plovIngredients);
 
         Recipe caesar = new Recipe();
-        caesar.setId(3);
+        caesar.setId(RecipeStorage.DEMO_ID_BASE - 2);
         caesar.setName("Салат Цезарь");
         caesar.setCategory("Салаты");
         caesar.setCookingTime(20);
@@ -295,7 +661,7 @@ public class MainActivity extends AppCompatActivity {
         caesar.setIngredients(caesarIngredients);
 
         Recipe napoleon = new Recipe();
-        napoleon.setId(4);
+        napoleon.setId(RecipeStorage.DEMO_ID_BASE - 3);
         napoleon.setName("Наполеон");
         napoleon.setCategory("Десерты");
         napoleon.setCookingTime(180);
@@ -323,14 +689,16 @@ public class MainActivity extends AppCompatActivity {
         recycler.setVisibility(show ? View.GONE : View.VISIBLE);
     }
 
-    private void showEmptyState() {
-        emptyStateLayout.setVisibility(View.VISIBLE);
-        recycler.setVisibility(View.GONE);
-    }
-
-    private void showError(String message) {
-        Toast.makeText(this, message, Toast.LENGTH_LONG).show();
-        showEmptyState();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        recipeStorage.removeOnChangeListener(storageListener);
+        imagePrefetcher.logStats();
+        if (searchPipeline != null) {
+            searchPipeline.shutdown();
+        }
+        pageLoader.cancel();
+        ioExecutor.shutdown();
     }
 
     @Override
@@ -338,12 +706,8 @@ public class MainActivity extends AppCompatActivity {
         super.onActivityResult(requestCode, resultCode, data);
 
         if (requestCode == REQUEST_ADD_RECIPE && resultCode == RESULT_OK) {
-            loadRecipes();
+            // Сам рецепт уже пришёл в список через storageListener
             Toast.makeText(this, "Рецепт добавлен!", Toast.LENGTH_SHORT).show();
-        } else if (requestCode == REQUEST_VIEW_RECIPE && resultCode == RESULT_OK) {
-            // Обновляем список если изменилось избранное
-            adapter.notifyDataSetChanged();
-            updateRecipeCount();
         }
     }
 }
\ No newline at end of file
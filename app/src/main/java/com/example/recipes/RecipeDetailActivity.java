@@ -5,22 +5,38 @@ import androidx.appcompat.widget.Toolbar;
 
 import android.content.Intent;
 import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
+import android.os.Build;
 import android.os.Bundle;
+import android.text.PrecomputedText;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.text.style.BulletSpan;
 import android.view.View;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import com.example.recipes.models.Difficulty;
 import com.example.recipes.models.Recipe;
+import com.example.recipes.utils.ImagePipeline;
 import com.example.recipes.utils.RecipeStorage;
 import com.google.android.material.appbar.CollapsingToolbarLayout;
 import com.google.android.material.button.MaterialButton;
 import com.google.android.material.chip.Chip;
-import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class RecipeDetailActivity extends AppCompatActivity {
 
+    // Передаётся только ID: сам рецепт берётся из общего RecipeStorage
+    public static final String EXTRA_RECIPE_ID = "recipe_id";
+    private static final int BULLET_GAP_DP = 8;
+
     private Recipe recipe;
     private RecipeStorage recipeStorage;
 
@@ -30,10 +46,13 @@ public class RecipeDetailActivity extends AppCompatActivity {
     private TextView cookingTime;
     private Chip categoryChip;
     private Chip difficultyChip;
-    private LinearLayout ingredientsContainer;
+    private TextView ingredientsText;
     private MaterialButton btnShare;
     private MaterialButton btnFavorite;
     private CollapsingToolbarLayout collapsingToolbar;
+
+    // Чтение рецепта из базы и разметка текста ингредиентов
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
     private Toolbar toolbar;
 
     @Override
@@ -41,18 +60,35 @@ public class RecipeDetailActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_recipe_detail);
 
-        recipeStorage = new RecipeStorage(this);
+        recipeStorage = RecipeStorage.getInstance(this);
+        initViews();
+        setupToolbar();
 
-        recipe = (Recipe) getIntent().getSerializableExtra("recipe");
+        int recipeId = getIntent().getIntExtra(EXTRA_RECIPE_ID, -1);
+        Recipe cached = recipeStorage.peekRecipe(recipeId);
+        if (cached != null) {
+            showRecipe(cached);
+            return;
+        }
+        // Рецепта нет в памяти (процесс перезапущен) — читаем базу в фоне
+        ioExecutor.execute(() -> {
+            Recipe loaded = recipeStorage.getRecipe(recipeId);
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    showRecipe(loaded);
+                }
+            });
+        });
+    }
 
-        if (recipe == null) {
+    private void showRecipe(Recipe loaded) {
+        if (loaded == null) {
             Toast.makeText(this, "Ошибка загрузки рецепта", Toast.LENGTH_SHORT).show();
             finish();
             return;
         }
-
-        initViews();
-        setupToolbar();
+        recipe = loaded;
+        collapsingToolbar.setTitle(recipe.getName());
         displayRecipeDetails();
         setupButtons();
     }
@@ -64,7 +100,7 @@ public class RecipeDetailActivity extends AppCompatActivity {
         cookingTime = findViewById(R.id.cookingTime);
         categoryChip = findViewById(R.id.categoryChip);
         difficultyChip = findViewById(R.id.difficultyChip);
-        ingredientsContainer = findViewById(R.id.ingredientsContainer);
+        ingredientsText = findViewById(R.id.ingredientsText);
         btnShare = findViewById(R.id.btnShare);
         btnFavorite = findViewById(R.id.btnFavorite);
         collapsingToolbar = findViewById(R.id.collapsingToolbar);
@@ -78,22 +114,19 @@ public class RecipeDetailActivity extends AppCompatActivity {
             getSupportActionBar().setDisplayShowHomeEnabled(true);
         }
 
-        toolbar.setNavigationOnClickListener(v -> {
-            // Возвращаем результат что изменилось избранное
-            Intent resultIntent = new Intent();
-            resultIntent.putExtra("favorite_changed", true);
-            setResult(RESULT_OK, resultIntent);
-            finish();
-        });
-        collapsingToolbar.setTitle(recipe.getName());
+        // Изменения избранного список получает от RecipeStorage, результат не нужен
+        toolbar.setNavigationOnClickListener(v -> finish());
     }
 
     private void displayRecipeDetails() {
-        if (recipe.getImageUrl() != null && !recipe.getImageUrl().isEmpty()) {
-            Picasso.get()
-                    .load(recipe.getImageUrl())
-                    .placeholder(R.drawable.ic_launcher_background)
-                    .error(R.drawable.ic_launcher_background)
+        if (recipe.hasImage()) {
+            RequestCreator request = ImagePipeline.get(this).full(recipe.getImageUrl());
+            if (recipe.getImageColor() != 0) {
+                request.placeholder(new ColorDrawable(recipe.getImageColor()));
+            } else {
+                request.placeholder(R.drawable.ic_launcher_background);
+            }
+            request.error(R.drawable.ic_launcher_background)
                     .fit()
                     .centerCrop()
                     .into(recipeImage);
@@ -115,40 +148,60 @@ public class RecipeDetailActivity extends AppCompatActivity {
         displayIngredients();
     }
 
+    /**
+     * Ингредиенты одним TextView: текст с маркерами собирается и размечается
+     * (PrecomputedText) в фоне, поэтому открытие экрана не зависит от их количества
+     */
     private void displayIngredients() {
-        ingredientsContainer.removeAllViews();
-
-        if (recipe.getIngredients() != null && !recipe.getIngredients().isEmpty()) {
-            for (String ingredient : recipe.getIngredients()) {
-                View ingredientView = getLayoutInflater()
-                        .inflate(R.layout.item_ingredient, ingredientsContainer, false);
-
-                TextView ingredientText = ingredientView.findViewById(R.id.ingredientText);
-                ingredientText.setText("• " + ingredient);
+        List<String> ingredients = recipe.getIngredients();
+        if (ingredients == null || ingredients.isEmpty()) {
+            ingredientsText.setText(null);
+            return;
+        }
+        List<String> snapshot = new ArrayList<>(ingredients);
+        int bulletGap = Math.round(BULLET_GAP_DP * getResources().getDisplayMetrics().density);
+        int bulletColor = ingredientsText.getCurrentTextColor();
+        PrecomputedText.Params params = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P
+                ? ingredientsText.getTextMetricsParams()
+                : null;
+
+        ioExecutor.execute(() -> {
+            CharSequence text = buildIngredientsText(snapshot, bulletGap, bulletColor);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                text = PrecomputedText.create(text, params);
+            }
+            CharSequence result = text;
+            runOnUiThread(() -> {
+                if (!isDestroyed()) {
+                    ingredientsText.setText(result);
+                }
+            });
+        });
+    }
 
-                ingredientsContainer.addView(ingredientView);
+    static CharSequence buildIngredientsText(List<String> ingredients, int bulletGap,
+                                             int bulletColor) {
+        SpannableStringBuilder text = new SpannableStringBuilder();
+        for (int i = 0; i < ingredients.size(); i++) {
+            int start = text.length();
+            text.append(ingredients.get(i));
+            if (i < ingredients.size() - 1) {
+                text.append('\n');
             }
+            text.setSpan(new BulletSpan(bulletGap, bulletColor), start, text.length(),
+                    Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
         }
+        return text;
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        ioExecutor.shutdown();
     }
 
     private void setDifficultyColor(Chip chip, String difficulty) {
-        int color;
-        switch (difficulty) {
-            case "Легкая":
-                color = Color.parseColor("#4CAF50");
-                break;
-            case "Средняя":
-                color = Color.parseColor("#FF9800");
-                break;
-            case "Сложная":
-                color = Color.parseColor("#F44336");
-                break;
-            default:
-                color = Color.parseColor("#9E9E9E");
-                break;
-        }
-        chip.setChipBackgroundColor(
-                android.content.res.ColorStateList.valueOf(color));
+        chip.setChipBackgroundColor(Difficulty.from(difficulty).getChipBackground());
         chip.setTextColor(Color.WHITE);
     }
 
@@ -209,12 +262,4 @@ public class RecipeDetailActivity extends AppCompatActivity {
 
         startActivity(Intent.createChooser(shareIntent, "Поделиться рецептом"));
     }
-
-    @Override
-    public void onBackPressed() {
-        Intent resultIntent = new Intent();
-        resultIntent.putExtra("favorite_changed", true);
-        setResult(RESULT_OK, resultIntent);
-        super.onBackPressed();
-    }
 }
\ No newline at end of file
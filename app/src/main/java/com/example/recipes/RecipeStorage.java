@@ -2,55 +2,1042 @@ package com.example.recipes.utils;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
 
 import com.example.recipes.models.Recipe;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.Type;
+import java.io.IOException;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class RecipeStorage {
 
+    private static final String TAG = "RecipeStorage";
     private static final String PREF_NAME = "RecipePreferences";
     private static final String KEY_RECIPES = "local_recipes";
     private static final String KEY_NEXT_ID = "next_recipe_id";
+    private static final String KEY_FAVORITES = "favorite_ids";
+    private static final String LEGACY_FAVORITE_PREFIX = "favorite_";
+    private static final String KEY_STORAGE_FORMAT = "storage_format";
+
+    /**
+     * Пространство ID: сервер выдаёт ID меньше LOCAL_ID_BASE, свои рецепты получают
+     * ID начиная с него, демо-рецепты (не сохраняются и не индексируются) — отрицательные
+     */
+    public static final int LOCAL_ID_BASE = 1_000_000_000;
+    public static final int DEMO_ID_BASE = -1000;
+
+    /**
+     * Формат локального хранилища рецептов
+     */
+    public enum StorageFormat {
+        RECORDS, // JSON-файл на каждый рецепт
+        BINARY,  // один двоичный файл, см. BinaryRecipeFormat
+        JOURNAL, // снимок + журнал изменений, см. JournalRecipeStore
+        SQLITE   // таблицы RecipeDatabase, см. SqliteRecipeStore
+    }
+
+    private static final StorageFormat DEFAULT_FORMAT = StorageFormat.SQLITE;
+
+    // Общие для всего процесса: индекс по ID и движок хранения
+    private static Context appContext;
+    private static RecipeStore store;
+    private static Map<Integer, Recipe> recipesById;
+    private static IntSet favoriteIds;
+    private static RecipeDatabase database;
+    // Все рецепты списка (API и тестовые) по ID: экраны получают только ID
+    private static Map<Integer, Recipe> catalogById = new HashMap<>();
+
+    // Битовый индекс ингредиентов; пересобирается, когда состав рецептов в базе изменился
+    private static final Object ingredientIndexLock = new Object();
+    private static IngredientIndex ingredientIndex;
+    private static int ingredientIndexVersion;
+    // Битовые карты измерений фильтра, по тому же номеру версии. Карты фильтров,
+    // поиска и сортировки после своих записей обновляются на месте (updateIndexes)
+    private static final Object facetIndexLock = new Object();
+    private static FacetIndex facetIndex;
+    private static int facetIndexVersion;
+    // Карта избранного для facetIndex; пересобирается после переключения избранного
+    private static long[] favoriteMask;
+    private static FacetIndex favoriteMaskIndex;
+    private static int favoriteMaskIndexVersion;
+    private static int favoriteMaskVersion;
+    private static int favoritesVersion;
+
+    // Поиск с опечатками; сколько времени на нажатие клавиши отводится поиску похожих слов
+    private static final long SEARCH_BUDGET_NANOS = 8_000_000L;
+    private static final Object searchIndexLock = new Object();
+    private static FuzzySearchIndex searchIndex;
+    private static int searchIndexVersion;
+    // Последний ответ FTS по описаниям: смена фильтра повторяет запрос с тем же текстом
+    private static final Object textMatchLock = new Object();
+    private static String textMatchQuery;
+    private static int textMatchVersion;
+    private static IntSet textMatchIds;
+
+    // Порядки сортировки
+    private static final Object sortIndexLock = new Object();
+    private static SortIndex sortIndex;
+    private static int sortIndexVersion;
+
+    // Фоновая сборка индексов после записи в базу; в очереди не больше одной
+    private static final ExecutorService indexExecutor = Executors.newSingleThreadExecutor();
+    private static final AtomicBoolean indexRebuildPending = new AtomicBoolean();
+
+    private static RecipeStorage instance;
+
+    /**
+     * Точечные изменения хранилища; вызывается в главном потоке
+     */
+    public interface OnChangeListener {
+        void onRecipeAdded(Recipe recipe);
+
+        void onRecipeRemoved(int recipeId);
+
+        void onFavoriteToggled(int recipeId, boolean favorite);
+
+        /**
+         * Пришли изменения каталога с сервера: только изменённые и удалённые рецепты
+         */
+        void onCatalogChanged(List<Recipe> changed, List<Integer> removedIds);
+
+        /**
+         * Индексы поиска и фильтров догнали базу: результат текущего фильтра мог измениться
+         */
+        void onIndexesUpdated();
+    }
+
+    private static final List<OnChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private static Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private SharedPreferences prefs;
     private Gson gson;
 
-    public RecipeStorage(Context context) {
+    /**
+     * Общий на процесс экземпляр
+     */
+    public static synchronized RecipeStorage getInstance(Context context) {
+        if (instance == null) {
+            instance = new RecipeStorage(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Забыть общее на процесс состояние: следующий getInstance загрузит всё заново.
+     * Сначала дожидается фоновой сборки индексов, чтобы она не писала в сброшенные поля.
+     */
+    @VisibleForTesting
+    static void resetForTests() throws Exception {
+        indexExecutor.submit(() -> { }).get();
+        indexRebuildPending.set(false);
+        synchronized (RecipeStorage.class) {
+            if (store != null) {
+                store.close();
+            }
+            instance = null;
+            appContext = null;
+            store = null;
+            recipesById = null;
+            favoriteIds = null;
+            favoritesVersion = 0;
+            database = null;
+            catalogById = new HashMap<>();
+        }
+        synchronized (facetIndexLock) {
+            facetIndex = null;
+            facetIndexVersion = 0;
+            favoriteMask = null;
+            favoriteMaskIndex = null;
+            favoriteMaskIndexVersion = 0;
+            favoriteMaskVersion = 0;
+        }
+        synchronized (searchIndexLock) {
+            searchIndex = null;
+            searchIndexVersion = 0;
+        }
+        synchronized (textMatchLock) {
+            textMatchQuery = null;
+            textMatchVersion = 0;
+            textMatchIds = null;
+        }
+        synchronized (sortIndexLock) {
+            sortIndex = null;
+            sortIndexVersion = 0;
+        }
+        synchronized (ingredientIndexLock) {
+            ingredientIndex = null;
+            ingredientIndexVersion = 0;
+        }
+        listeners.clear();
+        // Главный поток у каждого теста свой
+        mainHandler = new Handler(Looper.getMainLooper());
+        RecipeDatabase.resetForTests();
+    }
+
+    private RecipeStorage(Context context) {
         prefs = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        gson = new Gson();
+        gson = GsonProvider.get();
+        ensureLoaded(context.getApplicationContext());
+    }
+
+    /**
+     * Загрузить индекс рецептов один раз на процесс
+     */
+    private void ensureLoaded(Context appContext) {
+        synchronized (RecipeStorage.class) {
+            if (recipesById != null) {
+                return;
+            }
+            RecipeStorage.appContext = appContext;
+            database = RecipeDatabase.get(appContext);
+            StorageFormat format = getStorageFormat();
+            store = openStore(format);
+
+            // Сначала читаем хранилище, потом дописываем в него перенесённое
+            long startedAt = SystemClock.elapsedRealtime();
+            List<Recipe> loaded = store.loadAll();
+            Log.d(TAG, "Формат " + format + ": " + loaded.size() + " рецептов, "
+                    + store.getSizeOnDisk() + " байт на диске, загрузка "
+                    + (SystemClock.elapsedRealtime() - startedAt) + " мс");
+
+            recipesById = new LinkedHashMap<>();
+            for (Recipe recipe : loaded) {
+                recipesById.put(recipe.getId(), recipe);
+            }
+            migrateLegacyRecipes();
+            migrateFromOtherFormats(format);
+
+            loadFavorites();
+            if (mirrorsToDatabase()) {
+                database.replaceLocal(recipesById.values(), favoriteIds);
+            }
+            // Индексы готовятся заранее, до первого запроса списка
+            scheduleIndexRebuild();
+        }
+    }
+
+    private RecipeStore openStore(StorageFormat format) {
+        switch (format) {
+            case BINARY:
+                return new BinaryRecipeStore(appContext);
+            case JOURNAL:
+                return new JournalRecipeStore(appContext);
+            case SQLITE:
+                return new SqliteRecipeStore(database);
+            case RECORDS:
+            default:
+                return new RecordRecipeStore(appContext, gson);
+        }
+    }
+
+    /**
+     * Если формат сменили, переносим рецепты из прежнего хранилища
+     */
+    private void migrateFromOtherFormats(StorageFormat current) {
+        for (StorageFormat other : StorageFormat.values()) {
+            // При других форматах локальные строки базы — лишь зеркало
+            if (other == current || other == StorageFormat.SQLITE) {
+                continue;
+            }
+            // Не создаём хранилище без файлов: у некоторых свои потоки и папки
+            if (!hasData(other)) {
+                continue;
+            }
+            RecipeStore source = openStore(other);
+            try {
+                if (!migrateFrom(source)) {
+                    Log.e(TAG, "Перенос из " + other + " прерван");
+                    return;
+                }
+            } finally {
+                source.close();
+            }
+            Log.d(TAG, "Перенесено из " + other + " в " + current);
+        }
+    }
+
+    private boolean migrateFrom(RecipeStore source) {
+        List<Recipe> recipes = source.loadAll();
+        IntSet favorites = source.loadFavorites();
+        if (!store.putAll(recipes)) {
+            return false;
+        }
+        for (Recipe recipe : recipes) {
+            recipesById.put(recipe.getId(), recipe);
+        }
+        if (!favorites.isEmpty()) {
+            // Дальше loadFavorites перенесёт их из настроек, если нужно
+            favorites.addAll(IntSet.decode(prefs.getString(KEY_FAVORITES, null)));
+            prefs.edit().putString(KEY_FAVORITES, favorites.encode()).commit();
+        }
+        source.clear();
+        return true;
+    }
+
+    private boolean hasData(StorageFormat format) {
+        switch (format) {
+            case BINARY:
+                return BinaryRecipeStore.hasData(appContext);
+            case JOURNAL:
+                return JournalRecipeStore.hasData(appContext);
+            case RECORDS:
+                return RecordRecipeStore.hasData(appContext);
+            case SQLITE:
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Хранилище не база: локальные рецепты и избранное дублируются в неё для запросов
+     */
+    private static boolean mirrorsToDatabase() {
+        return !(store instanceof SqliteRecipeStore);
+    }
+
+    /**
+     * Текущий формат локального хранилища
+     */
+    public StorageFormat getStorageFormat() {
+        String name = prefs.getString(KEY_STORAGE_FORMAT, DEFAULT_FORMAT.name());
+        try {
+            return StorageFormat.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_FORMAT;
+        }
+    }
+
+    /**
+     * Сменить формат хранилища; рецепты переносятся сразу
+     */
+    public void setStorageFormat(StorageFormat format) {
+        synchronized (RecipeStorage.class) {
+            if (format == getStorageFormat()) {
+                return;
+            }
+            RecipeStore target = openStore(format);
+            if (!target.putAll(recipesById.values())) {
+                Log.e(TAG, "Не удалось перенести рецепты в " + format);
+                target.clear();
+                target.close();
+                return;
+            }
+            store.clear();
+            store.close();
+            store = target;
+
+            if (target.storesFavorites()) {
+                for (int i = 0; i < favoriteIds.size(); i++) {
+                    target.putFavorite(favoriteIds.get(i), true);
+                }
+                prefs.edit().remove(KEY_FAVORITES)
+                        .putString(KEY_STORAGE_FORMAT, format.name()).commit();
+            } else {
+                prefs.edit().putString(KEY_FAVORITES, favoriteIds.encode())
+                        .putString(KEY_STORAGE_FORMAT, format.name()).commit();
+            }
+            if (mirrorsToDatabase()) {
+                database.replaceLocal(recipesById.values(), favoriteIds);
+            }
+            scheduleIndexRebuild();
+            Log.d(TAG, "Формат хранилища: " + format + ", " + store.getSizeOnDisk() + " байт");
+        }
+    }
+
+    /**
+     * Избранное хранится в журнале хранилища или одним значением в настройках;
+     * старые ключи favorite_<id> переносятся
+     */
+    private void loadFavorites() {
+        IntSet fromPrefs = IntSet.decode(prefs.getString(KEY_FAVORITES, null));
+
+        SharedPreferences.Editor editor = null;
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(LEGACY_FAVORITE_PREFIX) || key.equals(KEY_FAVORITES)) {
+                continue;
+            }
+            if (editor == null) {
+                editor = prefs.edit();
+            }
+            try {
+                int id = Integer.parseInt(key.substring(LEGACY_FAVORITE_PREFIX.length()));
+                if (Boolean.TRUE.equals(entry.getValue())) {
+                    fromPrefs.add(id);
+                }
+            } catch (NumberFormatException ignored) {
+                // чужой ключ с тем же префиксом
+                continue;
+            }
+            editor.remove(key);
+        }
+
+        if (store.storesFavorites()) {
+            favoriteIds = store.loadFavorites();
+            for (int i = 0; i < fromPrefs.size(); i++) {
+                int id = fromPrefs.get(i);
+                if (!favoriteIds.contains(id) && store.putFavorite(id, true)) {
+                    favoriteIds.add(id);
+                }
+            }
+            if (!fromPrefs.isEmpty()) {
+                if (editor == null) {
+                    editor = prefs.edit();
+                }
+                editor.remove(KEY_FAVORITES);
+            }
+        } else {
+            favoriteIds = fromPrefs;
+            if (editor != null) {
+                editor.putString(KEY_FAVORITES, favoriteIds.encode());
+            }
+        }
+        if (editor != null) {
+            editor.apply();
+        }
+    }
+
+    /**
+     * Одноразовый перенос старого JSON-списка из local_recipes в записи.
+     * Список читается потоково: каждый рецепт сразу пишется в хранилище.
+     */
+    private void migrateLegacyRecipes() {
+        String json = prefs.getString(KEY_RECIPES, null);
+        if (json == null) {
+            return;
+        }
+        final boolean[] failed = {false};
+        try {
+            RecipeStreamReader.read(new StringReader(json), gson, recipe -> {
+                if (failed[0]) {
+                    return;
+                }
+                if (store.put(recipe)) {
+                    recipesById.put(recipe.getId(), recipe);
+                } else {
+                    failed[0] = true;
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            failed[0] = true;
+        }
+        if (!failed[0]) {
+            prefs.edit().remove(KEY_RECIPES).commit();
+        }
+        // иначе оставляем старый ключ, попробуем в следующий раз
+    }
+
+    public void addOnChangeListener(OnChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeOnChangeListener(OnChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Разослать событие слушателям в главном потоке
+     */
+    private static void dispatch(ChangeEvent event) {
+        mainHandler.post(() -> {
+            for (OnChangeListener listener : listeners) {
+                event.deliver(listener);
+            }
+        });
+    }
+
+    private interface ChangeEvent {
+        void deliver(OnChangeListener listener);
     }
 
     /**
      * Получить все локально сохраненные рецепты
      */
     public List<Recipe> getLocalRecipes() {
-        String json = prefs.getString(KEY_RECIPES, "[]");
-        Type type = new TypeToken<List<Recipe>>(){}.getType();
-        List<Recipe> recipes = gson.fromJson(json, type);
-        return recipes != null ? recipes : new ArrayList<>();
+        synchronized (RecipeStorage.class) {
+            return new ArrayList<>(recipesById.values());
+        }
+    }
+
+    /**
+     * Фильтр списка по нескольким измерениям сразу: страница рецептов, общее число
+     * и счётчики для каждого значения. Вызывать из фонового потока.
+     */
+    public FacetResult queryFacets(FacetQuery query, int offset, int limit) {
+        // Описаний в индексе в памяти нет — их слова ищет FTS в базе, до замков индексов
+        IntSet described = query.hasText() ? matchText(query.getText()) : null;
+        FacetIndex.Hits hits;
+        int[] pageIds;
+        // Индексы меняются на месте при записи — запрос идёт целиком под замком
+        synchronized (facetIndexLock) {
+            FacetIndex index = getFacetIndex();
+            long[] textMask = null;
+            FuzzySearchIndex.Matches matches = null;
+            int[] matchOrdinals = null;
+            if (query.hasText()) {
+                long deadline = System.nanoTime() + SEARCH_BUDGET_NANOS;
+                synchronized (searchIndexLock) {
+                    matches = getSearchIndex().search(query.getText(), deadline);
+                }
+                if (matches != null && described != null) {
+                    matches = matches.with(described);
+                }
+                if (matches != null) {
+                    // Оба индекса нумеруют рецепты в порядке добавления — обычно хватает одного прохода
+                    matchOrdinals = index.ordinalsOf(matches.recipeIds);
+                    textMask = index.maskOfOrdinals(matchOrdinals);
+                    if (!matches.complete) {
+                        Log.d(TAG, "Поиск \"" + query.getText() + "\": не хватило времени на опечатки");
+                    }
+                }
+            }
+            hits = index.query(query, textMask, getFavoriteMask(index));
+
+            // Из подходящих в нужном порядке достаются только ID страницы
+            if (query.getSort() == SortOrder.DEFAULT && matches != null) {
+                // При поиске список по умолчанию — по релевантности
+                pageIds = FuzzySearchIndex.page(matches, matchOrdinals, hits.matching,
+                        offset, limit);
+            } else {
+                synchronized (sortIndexLock) {
+                    pageIds = getSortIndex().page(query.getSort(), index, hits.matching,
+                            hits.total, offset, limit);
+                }
+            }
+        }
+
+        List<Recipe> recipes = new ArrayList<>(pageIds.length);
+        for (int recipeId : pageIds) {
+            Recipe recipe = getRecipe(recipeId);
+            if (recipe != null) {
+                recipes.add(recipe);
+            }
+        }
+        return new FacetResult(recipes, hits.total, hits.counts);
+    }
+
+    /**
+     * Рецепты, где все слова строки нашлись в названии, описании или ингредиентах
+     * (FTS в базе); null — строка для FTS не годится
+     */
+    private static IntSet matchText(String text) {
+        int version = database.getCatalogVersion();
+        synchronized (textMatchLock) {
+            if (text.equals(textMatchQuery) && version == textMatchVersion) {
+                return textMatchIds;
+            }
+        }
+        IntSet ids = database.matchText(text);
+        synchronized (textMatchLock) {
+            textMatchQuery = text;
+            textMatchVersion = version;
+            textMatchIds = ids;
+        }
+        return ids;
+    }
+
+    /**
+     * Индексы собираются здесь, в фоне, а не в запросе: нажатие клавиши не ждёт
+     * чтения всего каталога из базы. Пока сборка идёт, запросы работают
+     * по прежним индексам; по её окончании слушатели получают onIndexesUpdated.
+     */
+    private static void scheduleIndexRebuild() {
+        if (!indexRebuildPending.compareAndSet(false, true)) {
+            return;
+        }
+        indexExecutor.execute(() -> {
+            // Запись после этой строки поставит в очередь ещё одну сборку
+            indexRebuildPending.set(false);
+            boolean updated = refreshFacetIndex() | refreshSearchIndex() | refreshSortIndex();
+            boolean ingredientsBuilt;
+            synchronized (ingredientIndexLock) {
+                ingredientsBuilt = ingredientIndex != null;
+            }
+            if (ingredientsBuilt) {
+                updated |= refreshIngredientIndex();
+            }
+            if (updated) {
+                dispatch(OnChangeListener::onIndexesUpdated);
+            }
+        });
+    }
+
+    private static FacetIndex getFacetIndex() {
+        synchronized (facetIndexLock) {
+            if (facetIndex == null) {
+                refreshFacetIndex();
+            } else if (facetIndexVersion != database.getCatalogVersion()) {
+                scheduleIndexRebuild();
+            }
+            return facetIndex;
+        }
+    }
+
+    /**
+     * Догнать индекс фильтров до базы; false — он и так свежий.
+     * Первая сборка идёт под замком (запросам без индекса всё равно нечего показать),
+     * следующие — без него, запросы тем временем берут прежний индекс. Своя запись
+     * могла уже обновить индекс на месте ({@link #updateIndexes}) — тогда он новее загруженного.
+     */
+    private static boolean refreshFacetIndex() {
+        int version = database.getCatalogVersion();
+        synchronized (facetIndexLock) {
+            if (facetIndex == null) {
+                facetIndex = loadFacetIndex();
+                facetIndexVersion = version;
+                return true;
+            }
+            if (facetIndexVersion >= version) {
+                return false;
+            }
+        }
+        FacetIndex loaded = loadFacetIndex();
+        synchronized (facetIndexLock) {
+            if (facetIndexVersion >= version) {
+                return false;
+            }
+            facetIndex = loaded;
+            facetIndexVersion = version;
+            return true;
+        }
+    }
+
+    private static FacetIndex loadFacetIndex() {
+        long startedAt = SystemClock.elapsedRealtime();
+        FacetIndex loaded = database.loadFacetIndex();
+        Log.d(TAG, "Индекс фильтров: " + loaded.size() + " рецептов за "
+                + (SystemClock.elapsedRealtime() - startedAt) + " мс");
+        return loaded;
+    }
+
+    private static FuzzySearchIndex getSearchIndex() {
+        synchronized (searchIndexLock) {
+            if (searchIndex == null) {
+                refreshSearchIndex();
+            } else if (searchIndexVersion != database.getCatalogVersion()) {
+                scheduleIndexRebuild();
+            }
+            return searchIndex;
+        }
+    }
+
+    /**
+     * Как {@link #refreshFacetIndex()}, для индекса поиска
+     */
+    private static boolean refreshSearchIndex() {
+        int version = database.getCatalogVersion();
+        synchronized (searchIndexLock) {
+            if (searchIndex == null) {
+                searchIndex = loadSearchIndex();
+                searchIndexVersion = version;
+                return true;
+            }
+            if (searchIndexVersion >= version) {
+                return false;
+            }
+        }
+        FuzzySearchIndex loaded = loadSearchIndex();
+        synchronized (searchIndexLock) {
+            if (searchIndexVersion >= version) {
+                return false;
+            }
+            searchIndex = loaded;
+            searchIndexVersion = version;
+            return true;
+        }
+    }
+
+    private static FuzzySearchIndex loadSearchIndex() {
+        long startedAt = SystemClock.elapsedRealtime();
+        FuzzySearchIndex loaded = database.loadSearchIndex();
+        Log.d(TAG, "Индекс поиска: " + loaded.getTermCount() + " основ, "
+                + loaded.size() + " рецептов за "
+                + (SystemClock.elapsedRealtime() - startedAt) + " мс");
+        return loaded;
+    }
+
+    /**
+     * Вызывать под sortIndexLock
+     */
+    private static SortIndex getSortIndex() {
+        if (sortIndex == null) {
+            refreshSortIndex();
+        } else if (sortIndexVersion != database.getCatalogVersion()) {
+            scheduleIndexRebuild();
+        }
+        return sortIndex;
+    }
+
+    /**
+     * Как {@link #refreshFacetIndex()}, для порядков сортировки
+     */
+    private static boolean refreshSortIndex() {
+        int version = database.getCatalogVersion();
+        synchronized (sortIndexLock) {
+            if (sortIndex == null) {
+                sortIndex = loadSortIndex();
+                sortIndexVersion = version;
+                return true;
+            }
+            if (sortIndexVersion >= version) {
+                return false;
+            }
+        }
+        SortIndex loaded = loadSortIndex();
+        synchronized (sortIndexLock) {
+            if (sortIndexVersion >= version) {
+                return false;
+            }
+            sortIndex = loaded;
+            sortIndexVersion = version;
+            return true;
+        }
+    }
+
+    private static SortIndex loadSortIndex() {
+        long startedAt = SystemClock.elapsedRealtime();
+        SortIndex loaded = database.loadSortIndex();
+        Log.d(TAG, "Индекс сортировки: " + loaded.size() + " рецептов за "
+                + (SystemClock.elapsedRealtime() - startedAt) + " мс");
+        return loaded;
+    }
+
+    /**
+     * Повторить запись в базе на индексах в памяти, не читая каталог заново:
+     * рецепты put добавляются или обновляются, removedIds убираются. Индекс,
+     * отстававший уже до записи (или если между ними была другая запись),
+     * догонит фоновая сборка; она же заменит индекс, где накопилось много удалённых.
+     *
+     * @param versionBefore версия каталога до записи
+     * @param local         put — свои рецепты, иначе рецепты каталога
+     */
+    private static void updateIndexes(int versionBefore, List<Recipe> put, boolean local,
+                                      Collection<Integer> removedIds) {
+        int versionAfter = versionBefore + 1;
+        boolean inStep = database.getCatalogVersion() == versionAfter;
+        boolean rebuild = false;
+        synchronized (facetIndexLock) {
+            if (inStep && facetIndex != null && facetIndexVersion == versionBefore) {
+                for (int recipeId : removedIds) {
+                    facetIndex.remove(recipeId);
+                }
+                for (Recipe recipe : put) {
+                    facetIndex.put(recipe.getId(), recipe.getCategory(), recipe.getDifficulty(),
+                            recipe.getCookingTime(), recipe.getIngredients() == null ? 0
+                                    : recipe.getIngredients().size());
+                }
+                // Версия не растёт — фоновая сборка увидит отставание и пересоберёт
+                if (!facetIndex.isFragmented()) {
+                    facetIndexVersion = versionAfter;
+                }
+            }
+            rebuild |= facetIndex != null && facetIndexVersion != versionAfter;
+        }
+        synchronized (searchIndexLock) {
+            if (inStep && searchIndex != null && searchIndexVersion == versionBefore) {
+                for (int recipeId : removedIds) {
+                    searchIndex.remove(recipeId);
+                }
+                for (Recipe recipe : put) {
+                    searchIndex.put(recipe.getId(), recipe.getName(), recipe.getIngredients());
+                }
+                if (!searchIndex.isFragmented()) {
+                    searchIndexVersion = versionAfter;
+                }
+            }
+            rebuild |= searchIndex != null && searchIndexVersion != versionAfter;
+        }
+        synchronized (sortIndexLock) {
+            if (inStep && sortIndex != null && sortIndexVersion == versionBefore) {
+                for (int recipeId : removedIds) {
+                    sortIndex.remove(recipeId);
+                }
+                for (Recipe recipe : put) {
+                    if (local) {
+                        sortIndex.put(SortIndex.Entry.local(recipe));
+                    } else {
+                        sortIndex.putRemote(recipe);
+                    }
+                }
+                sortIndexVersion = versionAfter;
+            }
+            rebuild |= sortIndex != null && sortIndexVersion != versionAfter;
+        }
+        // Индекс ингредиентов на месте не обновляется — его догоняет сборка
+        synchronized (ingredientIndexLock) {
+            rebuild |= ingredientIndex != null;
+        }
+        if (rebuild) {
+            scheduleIndexRebuild();
+        }
+    }
+
+    private long[] getFavoriteMask(FacetIndex index) {
+        synchronized (facetIndexLock) {
+            IntSet favorites = null;
+            int version;
+            synchronized (RecipeStorage.class) {
+                version = favoritesVersion;
+                if (favoriteMaskIndex != index || favoriteMaskIndexVersion != facetIndexVersion
+                        || favoriteMaskVersion != version) {
+                    favorites = new IntSet(favoriteIds);
+                }
+            }
+            if (favorites != null) {
+                favoriteMask = index.maskOf(favorites);
+                favoriteMaskIndex = index;
+                favoriteMaskIndexVersion = facetIndexVersion;
+                favoriteMaskVersion = version;
+            }
+            return favoriteMask;
+        }
     }
 
     /**
-     * Сохранить список рецептов
+     * Рецепты, в которых есть все перечисленные ингредиенты ("морковь", "лук").
+     * Вызывать из фонового потока.
      */
-    private void saveRecipes(List<Recipe> recipes) {
-        String json = gson.toJson(recipes);
-        prefs.edit().putString(KEY_RECIPES, json).apply();
+    public List<Recipe> findByIngredients(List<String> names, int limit) {
+        int[] ids = getIngredientIndex().recipesWithAll(names);
+        List<Recipe> result = new ArrayList<>(Math.min(ids.length, limit));
+        for (int i = 0; i < ids.length && result.size() < limit; i++) {
+            Recipe recipe = getRecipe(ids[i]);
+            if (recipe != null) {
+                result.add(recipe);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * «Что приготовить из того, что есть»: рецепты по покрытию запасов,
+     * сначала те, где не хватает меньше всего. Вызывать из фонового потока.
+     */
+    public List<IngredientIndex.Match> rankByPantry(List<String> pantry, int limit) {
+        return getIngredientIndex().rankByPantry(pantry, limit);
+    }
+
+    private static IngredientIndex getIngredientIndex() {
+        synchronized (ingredientIndexLock) {
+            if (ingredientIndex == null) {
+                refreshIngredientIndex();
+            } else if (ingredientIndexVersion != database.getCatalogVersion()) {
+                scheduleIndexRebuild();
+            }
+            return ingredientIndex;
+        }
+    }
+
+    /**
+     * Как {@link #refreshFacetIndex()}, для индекса ингредиентов
+     */
+    private static boolean refreshIngredientIndex() {
+        int version = database.getCatalogVersion();
+        synchronized (ingredientIndexLock) {
+            if (ingredientIndex == null) {
+                ingredientIndex = loadIngredientIndex();
+                ingredientIndexVersion = version;
+                return true;
+            }
+            if (ingredientIndexVersion >= version) {
+                return false;
+            }
+        }
+        IngredientIndex loaded = loadIngredientIndex();
+        synchronized (ingredientIndexLock) {
+            if (ingredientIndexVersion >= version) {
+                return false;
+            }
+            ingredientIndex = loaded;
+            ingredientIndexVersion = version;
+            return true;
+        }
+    }
+
+    private static IngredientIndex loadIngredientIndex() {
+        long startedAt = SystemClock.elapsedRealtime();
+        IngredientIndex loaded = database.loadIngredientIndex();
+        Log.d(TAG, "Индекс ингредиентов: " + loaded.getIngredientCount()
+                + " ингредиентов, " + loaded.getRecipeCount() + " рецептов за "
+                + (SystemClock.elapsedRealtime() - startedAt) + " мс");
+        return loaded;
+    }
+
+    /**
+     * Запомнить рецепты, показанные в списке, чтобы открыть их по ID (главный поток)
+     */
+    public void setCatalog(List<Recipe> recipes) {
+        Map<Integer, Recipe> byId = new HashMap<>(recipes.size() * 2);
+        for (Recipe recipe : recipes) {
+            byId.put(recipe.getId(), recipe);
+        }
+        synchronized (RecipeStorage.class) {
+            catalogById = byId;
+        }
+    }
+
+    /**
+     * Заменить в базе рецепты из API (фоновый поток)
+     */
+    public void replaceCatalog(List<Recipe> remoteRecipes) {
+        relocateCollisions(remoteRecipes);
+        database.replaceRemote(remoteRecipes);
+        scheduleIndexRebuild();
+    }
+
+    /**
+     * Дописать в базу очередную страницу каталога (фоновый поток)
+     */
+    public void appendCatalog(List<Recipe> page) {
+        relocateCollisions(page);
+        int version = database.getCatalogVersion();
+        database.upsertRemote(page);
+        updateIndexes(version, page, false, Collections.<Integer>emptyList());
+    }
+
+    /**
+     * Каталог из дискового кэша: база уже хранит его с прошлого запуска,
+     * переписываем только если она разошлась с кэшем (фоновый поток).
+     * Расходятся они и когда синхронизация записала кэш, но не успела базу.
+     */
+    public void restoreCatalog(List<Recipe> remoteRecipes) {
+        long latestUpdate = 0;
+        for (Recipe recipe : remoteRecipes) {
+            latestUpdate = Math.max(latestUpdate, recipe.getUpdatedAt());
+        }
+        // Удаления меняют число строк, изменения — самую позднюю отметку времени
+        if (database.countRemote() != remoteRecipes.size()
+                || database.latestRemoteUpdate() != latestUpdate) {
+            relocateCollisions(remoteRecipes);
+            database.replaceRemote(remoteRecipes);
+            scheduleIndexRebuild();
+        }
+    }
+
+    /**
+     * Применить изменения каталога с сервера (фоновый поток)
+     */
+    public void applyRemoteChanges(List<Recipe> changed, List<Integer> removedIds) {
+        relocateCollisions(changed);
+        int version = database.getCatalogVersion();
+        database.applyRemote(changed, removedIds);
+        updateIndexes(version, changed, false, removedIds);
+
+        synchronized (RecipeStorage.class) {
+            Map<Integer, Recipe> byId = new HashMap<>(catalogById);
+            for (Recipe recipe : changed) {
+                byId.put(recipe.getId(), recipe);
+            }
+            for (int recipeId : removedIds) {
+                byId.remove(recipeId);
+            }
+            catalogById = byId;
+        }
+        dispatch(listener -> listener.onCatalogChanged(changed, removedIds));
+    }
+
+    /**
+     * Свой рецепт, чей ID занят рецептом сервера (старые ID до LOCAL_ID_BASE),
+     * переезжает на новый локальный ID вместе с отметкой избранного. Иначе база
+     * не запишет рецепт сервера, а список покажет два рецепта с одним ID.
+     */
+    private void relocateCollisions(List<Recipe> remoteRecipes) {
+        List<Recipe> colliding = new ArrayList<>();
+        synchronized (RecipeStorage.class) {
+            for (Recipe recipe : remoteRecipes) {
+                Recipe local = recipesById.get(recipe.getId());
+                if (local != null) {
+                    colliding.add(local);
+                }
+            }
+        }
+        for (Recipe local : colliding) {
+            relocate(local);
+        }
+    }
+
+    private void relocate(Recipe local) {
+        int oldId = local.getId();
+        Recipe moved = createRecipe(local.getName(), local.getCategory(), local.getCookingTime(),
+                local.getDifficulty(), local.getIngredients(), local.getDescription(),
+                local.getImageUrl());
+        moved.setImageWidth(local.getImageWidth());
+        moved.setImageHeight(local.getImageHeight());
+        moved.setImageColor(local.getImageColor());
+        if (!addRecipe(moved)) {
+            return;
+        }
+        if (isFavorite(oldId)) {
+            toggleFavorite(oldId);
+            toggleFavorite(moved.getId());
+        }
+        deleteRecipe(oldId);
+        Log.w(TAG, "ID " + oldId + " занят сервером, свой рецепт перенесён на " + moved.getId());
+    }
+
+    /**
+     * Получить рецепт по ID (null, если такого нет).
+     * Может читать базу — вызывать из фонового потока.
+     */
+    public Recipe getRecipe(int recipeId) {
+        Recipe recipe = peekRecipe(recipeId);
+        if (recipe != null) {
+            return recipe;
+        }
+        // После перезапуска процесса список ещё не загружен — берём из базы
+        return database.findById(recipeId);
+    }
+
+    /**
+     * Рецепт из памяти, без обращения к базе (null, если его там нет)
+     */
+    public Recipe peekRecipe(int recipeId) {
+        synchronized (RecipeStorage.class) {
+            Recipe recipe = recipesById.get(recipeId);
+            return recipe != null ? recipe : catalogById.get(recipeId);
+        }
     }
 
     /**
      * Добавить новый рецепт
      */
     public boolean addRecipe(Recipe recipe) {
+        recipe.setUpdatedAt(System.currentTimeMillis());
         try {
-            List<Recipe> recipes = getLocalRecipes();
-            recipes.add(recipe);
-            saveRecipes(recipes);
+            int version;
+            synchronized (RecipeStorage.class) {
+                // В базу пишет либо само хранилище (SQLITE), либо зеркало — ровно один раз
+                version = database.getCatalogVersion();
+                if (!store.put(recipe)) {
+                    return false;
+                }
+                recipesById.put(recipe.getId(), recipe);
+                if (mirrorsToDatabase()) {
+                    database.putLocal(recipe);
+                }
+            }
+            // Вне замка: запрос к индексам берёт его под замком индекса
+            updateIndexes(version, Collections.singletonList(recipe), true,
+                    Collections.<Integer>emptyList());
+            dispatch(listener -> listener.onRecipeAdded(recipe));
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -63,20 +1050,24 @@ public class RecipeStorage {
      */
     public boolean deleteRecipe(int recipeId) {
         try {
-            List<Recipe> recipes = getLocalRecipes();
-            Recipe toRemove = null;
-            for (Recipe recipe : recipes) {
-                if (recipe.getId() == recipeId) {
-                    toRemove = recipe;
-                    break;
+            int version;
+            synchronized (RecipeStorage.class) {
+                if (!recipesById.containsKey(recipeId)) {
+                    return false;
+                }
+                version = database.getCatalogVersion();
+                if (!store.remove(recipeId)) {
+                    return false;
+                }
+                recipesById.remove(recipeId);
+                if (mirrorsToDatabase()) {
+                    database.removeLocal(recipeId);
                 }
             }
-            if (toRemove != null) {
-                recipes.remove(toRemove);
-                saveRecipes(recipes);
-                return true;
-            }
-            return false;
+            updateIndexes(version, Collections.<Recipe>emptyList(), true,
+                    Collections.singletonList(recipeId));
+            dispatch(listener -> listener.onRecipeRemoved(recipeId));
+            return true;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -84,10 +1075,10 @@ public class RecipeStorage {
     }
 
     /**
-     * Получить следующий ID для нового рецепта
+     * Получить следующий ID для нового рецепта (не меньше LOCAL_ID_BASE)
      */
-    private int getNextId() {
-        int nextId = prefs.getInt(KEY_NEXT_ID, 1000);
+    private synchronized int getNextId() {
+        int nextId = Math.max(prefs.getInt(KEY_NEXT_ID, LOCAL_ID_BASE), LOCAL_ID_BASE);
         prefs.edit().putInt(KEY_NEXT_ID, nextId + 1).apply();
         return nextId;
     }
@@ -115,35 +1106,54 @@ public class RecipeStorage {
      * Проверка избранного
      */
     public boolean isFavorite(int recipeId) {
-        String key = "favorite_" + recipeId;
-        return prefs.getBoolean(key, false);
+        synchronized (RecipeStorage.class) {
+            return favoriteIds.contains(recipeId);
+        }
     }
 
     /**
      * Добавить/удалить из избранного
      */
     public void toggleFavorite(int recipeId) {
-        String key = "favorite_" + recipeId;
-        boolean current = prefs.getBoolean(key, false);
-        prefs.edit().putBoolean(key, !current).apply();
+        String encoded = null;
+        boolean favorite;
+        synchronized (RecipeStorage.class) {
+            favorite = !favoriteIds.contains(recipeId);
+            if (store.storesFavorites()) {
+                // Одна короткая запись в журнал вместо перезаписи настроек
+                if (!store.putFavorite(recipeId, favorite)) {
+                    return;
+                }
+            }
+            if (mirrorsToDatabase()) {
+                database.setFavorite(recipeId, favorite);
+            }
+            if (favorite) {
+                favoriteIds.add(recipeId);
+            } else {
+                favoriteIds.remove(recipeId);
+            }
+            favoritesVersion++;
+            if (!store.storesFavorites()) {
+                encoded = favoriteIds.encode();
+            }
+        }
+        if (encoded != null) {
+            prefs.edit().putString(KEY_FAVORITES, encoded).apply();
+        }
+        dispatch(listener -> listener.onFavoriteToggled(recipeId, favorite));
     }
 
     /**
      * Получить все избранные рецепты
      */
     public List<Integer> getFavoriteIds() {
-        List<Integer> favoriteIds = new ArrayList<>();
-        // Проверяем все возможные ID (от API и локальные)
-        for (int i = 1; i < 1000; i++) {
-            if (isFavorite(i)) {
-                favoriteIds.add(i);
-            }
-        }
-        for (int i = 1000; i < getNextId(); i++) {
-            if (isFavorite(i)) {
-                favoriteIds.add(i);
+        synchronized (RecipeStorage.class) {
+            List<Integer> result = new ArrayList<>(favoriteIds.size());
+            for (int i = 0; i < favoriteIds.size(); i++) {
+                result.add(favoriteIds.get(i));
             }
+            return result;
         }
-        return favoriteIds;
     }
-}
\ No newline at end of file
+}
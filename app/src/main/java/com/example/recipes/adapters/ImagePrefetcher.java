@@ -0,0 +1,204 @@
+package com.example.recipes.adapters;
+
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.recipes.utils.ImagePipeline;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.Picasso;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Заранее прогревает кэш Picasso картинками строк, до которых скоро дойдёт прокрутка.
+ *
+ * Направление берётся из знака dy, глубина растёт при быстрой прокрутке.
+ * Грузятся те же миниатюры, что и при показе строки,
+ * поэтому при привязке они берутся из кэша памяти. Запросы для строк,
+ * которые уже проскочили, отменяются. Запросы учитываются по URL, а не по позиции:
+ * после фильтра или сортировки на тех же позициях уже другие рецепты.
+ */
+public class ImagePrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final String TAG = "ImagePrefetcher";
+    public static final int DEFAULT_DEPTH = 6;
+    // Через сколько привязок строк писать статистику в лог
+    private static final int LOG_EVERY_BINDS = 100;
+
+    private final ImagePipeline images;
+    private final LinearLayoutManager layoutManager;
+    private final RecipeAdapter adapter;
+    private int depth;
+
+    // URL запросов, которые ещё грузятся
+    private final Set<String> inFlight = new HashSet<>();
+    // URL, уже лежащие в кэше после prefetch (ограниченный размер)
+    private final Set<String> warmed = new LinkedHashSet<>();
+
+    private int requested;
+    private int cancelled;
+    private int hits;
+    private int late;
+    private int misses;
+
+    public ImagePrefetcher(ImagePipeline images, LinearLayoutManager layoutManager,
+                           RecipeAdapter adapter) {
+        this(images, layoutManager, adapter, DEFAULT_DEPTH);
+    }
+
+    public ImagePrefetcher(ImagePipeline images, LinearLayoutManager layoutManager,
+                           RecipeAdapter adapter, int depth) {
+        this.images = images;
+        this.layoutManager = layoutManager;
+        this.adapter = adapter;
+        this.depth = depth;
+    }
+
+    /**
+     * Сколько строк вперёд прогревать при обычной прокрутке (0 — выключено)
+     */
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        if (dy == 0 || depth <= 0 || !adapter.hasImageSize()) {
+            return;
+        }
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        // Быстрая прокрутка (больше трети строки за кадр) — смотрим вдвое дальше
+        View row = layoutManager.findViewByPosition(first);
+        int rowHeight = row != null ? row.getHeight() : 0;
+        int ahead = rowHeight > 0 && Math.abs(dy) * 3 > rowHeight ? depth * 2 : depth;
+
+        int from;
+        int to;
+        if (dy > 0) {
+            from = last + 1;
+            to = Math.min(last + ahead, adapter.getItemCount() - 1);
+        } else {
+            from = Math.max(first - ahead, 0);
+            to = first - 1;
+        }
+        cancelOutside(first - ahead, last + ahead);
+        for (int position = from; position <= to; position++) {
+            prefetch(position);
+        }
+    }
+
+    private void prefetch(int position) {
+        String url = adapter.getImageUrl(position);
+        if (url == null || warmed.contains(url) || !inFlight.add(url)) {
+            return;
+        }
+        requested++;
+        images.thumbnail(url, adapter.getImageWidth(), adapter.getImageHeight())
+                .priority(Picasso.Priority.LOW)
+                .tag(tagFor(url))
+                .fetch(new Callback() {
+                    @Override
+                    public void onSuccess() {
+                        inFlight.remove(url);
+                        remember(url);
+                    }
+
+                    @Override
+                    public void onError(Exception e) {
+                        inFlight.remove(url);
+                    }
+                });
+    }
+
+    /**
+     * Отменить prefetch картинок, которых нет в окне вокруг видимых строк
+     */
+    private void cancelOutside(int windowStart, int windowEnd) {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        Set<String> window = new HashSet<>();
+        int end = Math.min(windowEnd, adapter.getItemCount() - 1);
+        for (int position = Math.max(windowStart, 0); position <= end; position++) {
+            String url = adapter.getImageUrl(position);
+            if (url != null) {
+                window.add(url);
+            }
+        }
+        Iterator<String> it = inFlight.iterator();
+        while (it.hasNext()) {
+            String url = it.next();
+            if (!window.contains(url)) {
+                images.picasso().cancelTag(tagFor(url));
+                it.remove();
+                cancelled++;
+            }
+        }
+    }
+
+    private void remember(String url) {
+        warmed.add(url);
+        // Держим не больше, чем может поместиться в окне прокрутки
+        int limit = Math.max(depth, 1) * 8;
+        Iterator<String> it = warmed.iterator();
+        while (warmed.size() > limit && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    /**
+     * Вызывается адаптером при привязке строки: считаем попадания
+     */
+    void onRowBound(String url) {
+        if (url == null) {
+            return;
+        }
+        if (warmed.contains(url)) {
+            hits++;
+        } else if (inFlight.contains(url)) {
+            late++;
+        } else {
+            misses++;
+        }
+        if ((hits + late + misses) % LOG_EVERY_BINDS == 0) {
+            logStats();
+        }
+    }
+
+    /**
+     * Доля строк, картинка которых была прогрета к моменту показа
+     */
+    public float getHitRate() {
+        int total = hits + late + misses;
+        return total == 0 ? 0f : (float) hits / total;
+    }
+
+    public void logStats() {
+        Log.d(TAG, "prefetch: глубина " + depth
+                + ", запрошено " + requested + ", отменено " + cancelled
+                + ", попаданий " + hits + ", не успели " + late + ", промахов " + misses
+                + " (" + Math.round(getHitRate() * 100) + "%)"
+                + "; кэш: " + images.getStats());
+    }
+
+    private static String tagFor(String url) {
+        return "prefetch:" + url;
+    }
+}
@@ -2,6 +2,7 @@ package com.example.recipes.adapters;
 
 import android.content.Context;
 import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -9,24 +10,71 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.recipes.R;
 import com.example.recipes.models.Recipe;
+import com.example.recipes.utils.FacetQuery;
+import com.example.recipes.utils.FacetResult;
+import com.example.recipes.utils.ImagePipeline;
 import com.example.recipes.utils.RecipeStorage;
 import com.google.android.material.chip.Chip;
-import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.ViewHolder> {
 
-    private List<Recipe> recipes = new ArrayList<>();
-    private List<Recipe> recipesFull = new ArrayList<>();
+    // Сколько строк отфильтрованного списка запрашивать за раз
+    public static final int FILTER_PAGE_SIZE = 100;
+
+    // Частичное обновление строки: изменилось только избранное
+    private static final Object PAYLOAD_FAVORITE = new Object();
+
+    /**
+     * Сравнение списков по ID, содержимое — по полям рецепта и избранному
+     */
+    private static final DiffUtil.ItemCallback<RecipeRow> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<RecipeRow>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull RecipeRow oldItem,
+                                               @NonNull RecipeRow newItem) {
+                    return oldItem.id == newItem.id;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull RecipeRow oldItem,
+                                                  @NonNull RecipeRow newItem) {
+                    return oldItem.sameContentAs(newItem);
+                }
+
+                @Override
+                public Object getChangePayload(@NonNull RecipeRow oldItem,
+                                               @NonNull RecipeRow newItem) {
+                    // Поменялось только избранное — перерисуем один значок
+                    return oldItem.withFavorite(newItem.favorite).sameContentAs(newItem)
+                            ? PAYLOAD_FAVORITE : null;
+                }
+            };
+
+    // Разница между списками считается в фоне, в адаптер приходят точечные события
+    private final AsyncListDiffer<RecipeRow> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private volatile List<Recipe> recipesFull = new ArrayList<>();
+    // Готовые строки по ID рецепта (только главный поток)
+    private Map<Integer, RecipeRow> rowsById = new HashMap<>();
     private Context context;
     private RecipeStorage recipeStorage;
+    private final ImagePipeline images;
     private OnRecipeClickListener listener;
+    private ImagePrefetcher prefetcher;
+    // Размер картинки в строке; известен после первой разметки
+    private int imageWidth;
+    private int imageHeight;
 
     public interface OnRecipeClickListener {
         void onRecipeClick(Recipe recipe);
@@ -35,47 +83,141 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.ViewHolder
     public RecipeAdapter(Context context, RecipeStorage recipeStorage) {
         this.context = context;
         this.recipeStorage = recipeStorage;
+        this.images = ImagePipeline.get(context);
     }
 
     public void setOnRecipeClickListener(OnRecipeClickListener listener) {
         this.listener = listener;
     }
 
+    public void setImagePrefetcher(ImagePrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    public boolean hasImageSize() {
+        return imageWidth > 0 && imageHeight > 0;
+    }
+
+    public int getImageWidth() {
+        return imageWidth;
+    }
+
+    public int getImageHeight() {
+        return imageHeight;
+    }
+
+    /**
+     * URL картинки строки (null — нет картинки или позиции)
+     */
+    public String getImageUrl(int position) {
+        List<RecipeRow> current = differ.getCurrentList();
+        if (position < 0 || position >= current.size()) {
+            return null;
+        }
+        Recipe recipe = current.get(position).recipe;
+        return recipe.hasImage() ? recipe.getImageUrl() : null;
+    }
+
     public void setData(List<Recipe> recipes) {
-        this.recipes = recipes;
+        setData(recipes, null);
+    }
+
+    /**
+     * Заменить данные; onCommitted вызывается, когда список применён
+     */
+    public void setData(List<Recipe> recipes, Runnable onCommitted) {
         this.recipesFull = new ArrayList<>(recipes);
-        notifyDataSetChanged();
+        // Строки строятся только для новых и изменившихся рецептов
+        Map<Integer, RecipeRow> previous = rowsById;
+        rowsById = new HashMap<>(recipes.size() * 2);
+        List<RecipeRow> rows = new ArrayList<>(recipes.size());
+        for (Recipe recipe : recipes) {
+            rows.add(rowFor(recipe, previous));
+        }
+        differ.submitList(rows, onCommitted);
     }
 
-    public void filter(String query, String category) {
-        recipes.clear();
+    private RecipeRow rowFor(Recipe recipe, Map<Integer, RecipeRow> cache) {
+        RecipeRow row = cache.get(recipe.getId());
+        if (row == null || !row.describes(recipe)) {
+            row = RecipeRow.of(recipe, recipeStorage.isFavorite(recipe.getId()));
+        }
+        rowsById.put(row.id, row);
+        return row;
+    }
 
-        if (query.isEmpty() && category.equals("Все")) {
-            recipes.addAll(recipesFull);
-        } else {
-            for (Recipe recipe : recipesFull) {
-                boolean matchesQuery = recipe.getName().toLowerCase()
-                        .contains(query.toLowerCase());
-
-                boolean matchesCategory;
-                if (category.equals("Избранное")) {
-                    matchesCategory = recipeStorage.isFavorite(recipe.getId());
-                } else {
-                    matchesCategory = category.equals("Все") ||
-                            recipe.getCategory().equals(category);
-                }
+    /**
+     * Первые limit рецептов под запрос и счётчики для чипов.
+     * Фильтр выполняется по индексам хранилища, поэтому вызывать из фонового потока.
+     * Демо-рецептов в индексах нет — под фильтр они не попадают.
+     */
+    public FacetResult match(FacetQuery query, int limit) {
+        if (!query.isFiltered()) {
+            // Без фильтра показывается весь список (showAll), из индекса нужны только счётчики
+            FacetResult counts = recipeStorage.queryFacets(query, 0, 0);
+            return new FacetResult(new ArrayList<>(), recipesFull.size(), counts);
+        }
+        return recipeStorage.queryFacets(query, 0, limit);
+    }
 
-                if (matchesQuery && matchesCategory) {
-                    recipes.add(recipe);
-                }
+    /**
+     * Снять фильтр: показать весь список (главный поток)
+     */
+    public void showAll(Runnable onCommitted) {
+        submitFiltered(recipesFull, onCommitted);
+    }
+
+    /**
+     * Показать результат фильтрации (главный поток)
+     */
+    public void submitFiltered(List<Recipe> filtered, Runnable onCommitted) {
+        List<RecipeRow> rows = new ArrayList<>(filtered.size());
+        for (Recipe recipe : filtered) {
+            rows.add(rowFor(recipe, rowsById));
+        }
+        differ.submitList(rows, onCommitted);
+    }
+
+    /**
+     * Перерисовать только значок избранного у одного рецепта
+     */
+    public void notifyFavoriteChanged(int recipeId) {
+        boolean favorite = recipeStorage.isFavorite(recipeId);
+        RecipeRow cached = rowsById.get(recipeId);
+        if (cached != null) {
+            rowsById.put(recipeId, cached.withFavorite(favorite));
+        }
+        int position = indexOf(recipeId);
+        if (position >= 0) {
+            List<RecipeRow> updated = new ArrayList<>(differ.getCurrentList());
+            updated.set(position, updated.get(position).withFavorite(favorite));
+            differ.submitList(updated);
+        }
+    }
+
+    /**
+     * Перерисовать строку рецепта, изменённого на месте (тот же объект DiffUtil не заметит)
+     */
+    public void notifyRecipeChanged(int recipeId) {
+        int position = indexOf(recipeId);
+        if (position >= 0) {
+            notifyItemChanged(position);
+        }
+    }
+
+    private int indexOf(int recipeId) {
+        List<RecipeRow> current = differ.getCurrentList();
+        for (int i = 0; i < current.size(); i++) {
+            if (current.get(i).id == recipeId) {
+                return i;
             }
         }
-        notifyDataSetChanged();
+        return -1;
     }
 
-    @ Override
+    @Override
     public int getItemCount() {
-        return recipes.size();
+        return differ.getCurrentList().size();
     }
 
     @NonNull
@@ -83,79 +225,99 @@ public class RecipeAdapter extends RecyclerView.Adapter<RecipeAdapter.ViewHolder
     public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context)
                 .inflate(R.layout.item_recipe, parent, false);
-        return new ViewHolder(view);
+        ViewHolder holder = new ViewHolder(view);
+        holder.chipDifficulty.setTextColor(Color.WHITE);
+        // Один обработчик на View, рецепт берётся из привязанной строки
+        view.setOnClickListener(v -> {
+            if (listener != null && holder.row != null) {
+                listener.onRecipeClick(holder.row.recipe);
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position,
+                                 @NonNull List<Object> payloads) {
+        if (payloads.contains(PAYLOAD_FAVORITE)) {
+            holder.row = differ.getCurrentList().get(position);
+            bindFavorite(holder, holder.row);
+        } else {
+            onBindViewHolder(holder, position);
+        }
     }
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        Recipe recipe = recipes.get(position);
+        RecipeRow row = differ.getCurrentList().get(position);
+        holder.row = row;
 
-        holder.txtName.setText(recipe.getName());
-        holder.chipCategory.setText(recipe.getCategory());
-        holder.txtTime.setText(recipe.getCookingTimeString());
+        holder.txtName.setText(row.name);
+        holder.chipCategory.setText(row.category);
+        holder.txtTime.setText(row.timeLabel);
 
-        if (recipe.getDescription() != null) {
-            holder.txtDescription.setText(recipe.getDescription());
+        if (row.description != null) {
+            holder.txtDescription.setText(row.description);
             holder.txtDescription.setVisibility(View.VISIBLE);
         } else {
             holder.txtDescription.setVisibility(View.GONE);
         }
 
-        holder.txtIngredientsCount.setText(recipe.getIngredientsCountString());
-        holder.chipDifficulty.setText(recipe.getDifficulty());
-        setDifficultyColor(holder.chipDifficulty, recipe.getDifficulty());
+        holder.txtIngredientsCount.setText(row.ingredientsLabel);
+        holder.chipDifficulty.setText(row.difficultyLabel);
+        holder.chipDifficulty.setChipBackgroundColor(row.difficulty.getChipBackground());
 
-        // ⭐ Показываем / скрываем значок избранного
-        if (recipeStorage.isFavorite(recipe.getId())) {
-            holder.favoriteIcon.setVisibility(View.VISIBLE);
-        } else {
-            holder.favoriteIcon.setVisibility(View.GONE);
-        }
+        bindFavorite(holder, row);
 
-        if (recipe.getImageUrl() != null && !recipe.getImageUrl().isEmpty()) {
-            Picasso.get()
-                    .load(recipe.getImageUrl())
-                    .placeholder(R.drawable.ic_launcher_background)
-                    .error(R.drawable.ic_launcher_background)
-                    .fit()
-                    .centerCrop()
-                    .into(holder.imgRecipe);
+        if (row.recipe.hasImage()) {
+            bindImage(holder, row.recipe);
         } else {
+            images.picasso().cancelRequest(holder.imgRecipe);
             holder.imgRecipe.setImageResource(R.drawable.ic_launcher_background);
         }
-
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onRecipeClick(recipe);
-            }
-        });
     }
 
-    private void setDifficultyColor(Chip chip, String difficulty) {
-        int color;
-        switch (difficulty) {
-            case "Легкая":
-                color = Color.parseColor("#4CAF50");
-                break;
-            case "Средняя":
-                color = Color.parseColor("#FF9800");
-                break;
-            case "Сложная":
-                color = Color.parseColor("#F44336");
-                break;
-            default:
-                color = Color.parseColor("#9E9E9E");
-                break;
+    private void bindImage(ViewHolder holder, Recipe recipe) {
+        String url = recipe.getImageUrl();
+        if (!hasImageSize() && holder.imgRecipe.getWidth() > 0) {
+            imageWidth = holder.imgRecipe.getWidth();
+            imageHeight = holder.imgRecipe.getHeight();
         }
-        chip.setChipBackgroundColor(
-                android.content.res.ColorStateList.valueOf(color));
-        chip.setTextColor(Color.WHITE);
+        if (prefetcher != null) {
+            prefetcher.onRowBound(url);
+        }
+
+        // Та же миниатюра, что у ImagePrefetcher, — иначе ключ кэша не совпадёт.
+        // Пока размер строки неизвестен, оригинал подгоняется под ImageView.
+        RequestCreator request = hasImageSize()
+                ? images.thumbnail(url, imageWidth, imageHeight)
+                : images.full(url).fit().centerCrop();
+        // Цвет превью известен заранее — рисуем его сразу, без декодирования.
+        // Drawable у строки один и только перекрашивается: новый на каждую привязку
+        // не создаётся (сам запрос Picasso по-прежнему новый).
+        if (recipe.getImageColor() != 0) {
+            holder.placeholder.setColor(recipe.getImageColor());
+            request.placeholder(holder.placeholder);
+        } else {
+            request.placeholder(R.drawable.ic_launcher_background);
+        }
+        request.error(R.drawable.ic_launcher_background)
+                .into(holder.imgRecipe);
+    }
+
+    private void bindFavorite(ViewHolder holder, RecipeRow row) {
+        // ⭐ Показываем / скрываем значок избранного
+        holder.favoriteIcon.setVisibility(row.favorite ? View.VISIBLE : View.GONE);
     }
 
     static class ViewHolder extends RecyclerView.ViewHolder {
         ImageView imgRecipe, favoriteIcon;
         TextView txtName, txtDescription, txtTime, txtIngredientsCount;
         Chip chipCategory, chipDifficulty;
+        // Строка, привязанная сейчас (для обработчика нажатия)
+        RecipeRow row;
+        // Заглушка картинки цветом превью, переиспользуется при каждой привязке
+        final ColorDrawable placeholder = new ColorDrawable();
 
         ViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -0,0 +1,120 @@
+package com.example.recipes.adapters;
+
+import com.example.recipes.models.Difficulty;
+import com.example.recipes.models.Recipe;
+
+import java.util.Objects;
+
+/**
+ * Неизменяемая строка списка: всё, что показывает item_recipe, уже посчитано.
+ *
+ * Создаётся один раз на рецепт при загрузке данных, поэтому привязка строки
+ * только раскладывает готовые значения по View и ничего не выделяет.
+ * Подписи времени и числа ингредиентов общие для одинаковых значений.
+ * Картинка берётся из рецепта: её метаданные могут прийти позже.
+ */
+public final class RecipeRow {
+
+    // Подписи для значений меньше этого берутся из кэша
+    private static final int CACHED_LABELS = 512;
+    private static final String[] TIME_LABELS = new String[CACHED_LABELS];
+    private static final String[] COUNT_LABELS = new String[CACHED_LABELS];
+
+    final Recipe recipe;
+    final int id;
+    final String name;
+    final String category;
+    final String description;
+    final String timeLabel;
+    final String ingredientsLabel;
+    final String difficultyLabel;
+    final Difficulty difficulty;
+    final boolean favorite;
+
+    private RecipeRow(Recipe recipe, boolean favorite) {
+        this.recipe = recipe;
+        this.id = recipe.getId();
+        this.name = recipe.getName();
+        this.category = recipe.getCategory();
+        this.description = recipe.getDescription();
+        this.timeLabel = timeLabel(recipe.getCookingTime());
+        this.ingredientsLabel = ingredientsLabel(recipe.getIngredientsCount());
+        this.difficultyLabel = recipe.getDifficulty();
+        this.difficulty = Difficulty.from(recipe.getDifficulty());
+        this.favorite = favorite;
+    }
+
+    private RecipeRow(RecipeRow row, boolean favorite) {
+        this.recipe = row.recipe;
+        this.id = row.id;
+        this.name = row.name;
+        this.category = row.category;
+        this.description = row.description;
+        this.timeLabel = row.timeLabel;
+        this.ingredientsLabel = row.ingredientsLabel;
+        this.difficultyLabel = row.difficultyLabel;
+        this.difficulty = row.difficulty;
+        this.favorite = favorite;
+    }
+
+    public static RecipeRow of(Recipe recipe, boolean favorite) {
+        return new RecipeRow(recipe, favorite);
+    }
+
+    public RecipeRow withFavorite(boolean favorite) {
+        return favorite == this.favorite ? this : new RecipeRow(this, favorite);
+    }
+
+    public Recipe getRecipe() {
+        return recipe;
+    }
+
+    /**
+     * Строка построена по рецепту с тем же содержимым
+     * (рецепты из базы — другие объекты с теми же полями)
+     */
+    boolean describes(Recipe other) {
+        return recipe == other || sameRecipe(recipe, other);
+    }
+
+    boolean sameContentAs(RecipeRow other) {
+        return favorite == other.favorite && sameRecipe(recipe, other.recipe);
+    }
+
+    private static boolean sameRecipe(Recipe a, Recipe b) {
+        return a == b || (a.getId() == b.getId()
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getCategory(), b.getCategory())
+                && a.getCookingTime() == b.getCookingTime()
+                && Objects.equals(a.getDifficulty(), b.getDifficulty())
+                && Objects.equals(a.getIngredients(), b.getIngredients())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && Objects.equals(a.getImageUrl(), b.getImageUrl())
+                && a.getImageColor() == b.getImageColor());
+    }
+
+    private static String timeLabel(int minutes) {
+        if (minutes < 0 || minutes >= CACHED_LABELS) {
+            return minutes + " мин.";
+        }
+        String label = TIME_LABELS[minutes];
+        if (label == null) {
+            // Гонка безобидна: в худшем случае строка создастся дважды
+            label = minutes + " мин.";
+            TIME_LABELS[minutes] = label;
+        }
+        return label;
+    }
+
+    private static String ingredientsLabel(int count) {
+        if (count >= CACHED_LABELS) {
+            return count + " ингр.";
+        }
+        String label = COUNT_LABELS[count];
+        if (label == null) {
+            label = count + " ингр.";
+            COUNT_LABELS[count] = label;
+        }
+        return label;
+    }
+}
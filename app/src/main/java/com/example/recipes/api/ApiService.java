@@ -4,11 +4,32 @@ import com.example.recipes.models.RecipeResponse;
 
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Headers;
+import retrofit2.http.Query;
 
 public interface ApiService {
 
     @GET("recipes")
     Call<RecipeResponse> getRecipes();
 
+    /**
+     * Страница каталога: limit рецептов начиная с offset
+     */
+    @GET("recipes")
+    Call<RecipeResponse> getRecipesPage(@Query("offset") int offset,
+                                        @Query("limit") int limit);
+
+    /**
+     * То же, но мимо HTTP-кэша: без условных заголовков, поэтому 304 не придёт
+     */
+    @Headers("Cache-Control: no-cache")
+    @GET("recipes")
+    Call<RecipeResponse> getRecipesPageNoCache(@Query("offset") int offset,
+                                               @Query("limit") int limit);
 
-}
\ No newline at end of file
+    /**
+     * Рецепты, изменённые или удалённые после since (время сервера, мс)
+     */
+    @GET("recipes/changes")
+    Call<RecipeResponse> getRecipesChangedSince(@Query("since") long since);
+}
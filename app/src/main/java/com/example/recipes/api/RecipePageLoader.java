@@ -0,0 +1,191 @@
+package com.example.recipes.api;
+
+import com.example.recipes.models.Recipe;
+import com.example.recipes.models.RecipeResponse;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+
+/**
+ * Постраничная загрузка каталога по мере прокрутки.
+ * Если сервер не поддерживает offset/limit и отдаёт всё сразу,
+ * повторы отсекаются по ID и загрузка останавливается.
+ */
+public class RecipePageLoader {
+
+    public interface Listener {
+        /**
+         * Пришла страница; page содержит только новые рецепты.
+         * notModified — первая страница не изменилась (304), page == null.
+         */
+        void onPageLoaded(List<Recipe> page, boolean firstPage, boolean notModified);
+
+        void onPageFailed(Throwable error, boolean firstPage);
+    }
+
+    private final ApiService api;
+    private final int pageSize;
+    private final Listener listener;
+
+    private final Set<Integer> seenIds = new HashSet<>();
+    private int nextOffset;
+    private boolean hasMore = true;
+    private long serverTime;
+    private Call<RecipeResponse> inFlight;
+
+    public RecipePageLoader(ApiService api, int pageSize, Listener listener) {
+        this.api = api;
+        this.pageSize = pageSize;
+        this.listener = listener;
+    }
+
+    /**
+     * Продолжить с уже загруженных (например, из кэша) рецептов
+     */
+    public void resumeFrom(List<Recipe> loaded, Integer savedNextOffset, long savedServerTime) {
+        seenIds.clear();
+        for (Recipe recipe : loaded) {
+            seenIds.add(recipe.getId());
+        }
+        nextOffset = savedNextOffset != null ? savedNextOffset : loaded.size();
+        hasMore = savedNextOffset != null;
+        serverTime = savedServerTime;
+    }
+
+    /**
+     * Перезагрузить с первой страницы
+     */
+    public void refresh() {
+        cancel();
+        load(0, true, false);
+    }
+
+    /**
+     * Перезагрузить с первой страницы мимо HTTP-кэша — когда на 304
+     * показать нечего: сохранённого снимка каталога у вызывающего нет
+     */
+    public void reload() {
+        cancel();
+        load(0, true, true);
+    }
+
+    /**
+     * Подгрузить следующую страницу, если она есть и запрос ещё не идёт
+     */
+    public void loadNextPage() {
+        if (inFlight != null || !hasMore) {
+            return;
+        }
+        load(nextOffset, false, false);
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+
+    public boolean isLoading() {
+        return inFlight != null;
+    }
+
+    /**
+     * Смещение следующей страницы (null — каталог загружен полностью)
+     */
+    public Integer getNextOffset() {
+        return hasMore ? nextOffset : null;
+    }
+
+    /**
+     * Время сервера из ответа на первую страницу (0 — неизвестно). Изменения,
+     * сделанные после него, синхронизация запросит по since.
+     */
+    public long getServerTime() {
+        return serverTime;
+    }
+
+    public void cancel() {
+        if (inFlight != null) {
+            inFlight.cancel();
+            inFlight = null;
+        }
+    }
+
+    private void load(int offset, boolean firstPage, boolean noCache) {
+        Call<RecipeResponse> call = noCache
+                ? api.getRecipesPageNoCache(offset, pageSize)
+                : api.getRecipesPage(offset, pageSize);
+        inFlight = call;
+
+        call.enqueue(new Callback<RecipeResponse>() {
+            @Override
+            public void onResponse(Call<RecipeResponse> call, Response<RecipeResponse> response) {
+                if (call != inFlight) {
+                    return;
+                }
+                inFlight = null;
+
+                if (firstPage && RetrofitClient.isNotModified(response)) {
+                    if (noCache) {
+                        // Условий в запросе не было — 304 тут ошибка сервера, не повторяем
+                        listener.onPageFailed(new IllegalStateException("HTTP 304"), true);
+                    } else {
+                        listener.onPageLoaded(null, true, true);
+                    }
+                    return;
+                }
+                if (!response.isSuccessful() || response.body() == null) {
+                    listener.onPageFailed(
+                            new IllegalStateException("HTTP " + response.code()), firstPage);
+                    return;
+                }
+                listener.onPageLoaded(applyPage(response.body(), firstPage), firstPage, false);
+            }
+
+            @Override
+            public void onFailure(Call<RecipeResponse> call, Throwable t) {
+                if (call != inFlight) {
+                    return;
+                }
+                inFlight = null;
+                listener.onPageFailed(t, firstPage);
+            }
+        });
+    }
+
+    private List<Recipe> applyPage(RecipeResponse body, boolean firstPage) {
+        if (firstPage) {
+            seenIds.clear();
+            nextOffset = 0;
+            serverTime = body.getServerTime();
+        }
+
+        List<Recipe> received = body.getRecipes() != null
+                ? body.getRecipes() : new ArrayList<>();
+        List<Recipe> fresh = new ArrayList<>(received.size());
+        for (Recipe recipe : received) {
+            if (seenIds.add(recipe.getId())) {
+                fresh.add(recipe);
+            }
+        }
+
+        if (body.getNextOffset() != null) {
+            nextOffset = body.getNextOffset();
+            hasMore = true;
+        } else {
+            nextOffset += received.size();
+            hasMore = body.getTotal() != null
+                    ? nextOffset < body.getTotal()
+                    : received.size() == pageSize;
+        }
+        if (!firstPage && fresh.isEmpty()) {
+            // Сервер игнорирует offset и отдаёт те же рецепты
+            hasMore = false;
+        }
+        return fresh;
+    }
+}
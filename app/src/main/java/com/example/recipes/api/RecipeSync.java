@@ -0,0 +1,144 @@
+package com.example.recipes.api;
+
+import android.util.Log;
+
+import com.example.recipes.models.Recipe;
+import com.example.recipes.models.RecipeResponse;
+import com.example.recipes.utils.RecipeCache;
+import com.example.recipes.utils.RecipeStorage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import retrofit2.Response;
+
+/**
+ * Синхронизация каталога по изменениям.
+ *
+ * С сервера приходят только рецепты, изменённые после прошлой синхронизации
+ * (время сервера хранится в кэше каталога), и ID удалённых. Изменения сливаются
+ * с кэшем по ID: побеждает более поздняя запись (updatedAt). В базу и в список
+ * уходят только изменившиеся рецепты. Вызывать из фонового потока.
+ */
+public class RecipeSync {
+
+    private static final String TAG = "RecipeSync";
+
+    private final ApiService api;
+    private final RecipeCache cache;
+    private final RecipeStorage storage;
+
+    public RecipeSync(ApiService api, RecipeCache cache, RecipeStorage storage) {
+        this.api = api;
+        this.cache = cache;
+        this.storage = storage;
+    }
+
+    /**
+     * Забрать и применить изменения; возвращает число изменённых и удалённых рецептов
+     *
+     * @throws IOException сеть недоступна или сервер ответил ошибкой
+     */
+    public int sync() throws IOException {
+        // Здесь нужно только время сервера: рецепты при чтении не копятся
+        RecipeResponse cached = cache.read(recipe -> { });
+        long since = cached != null ? cached.getServerTime() : 0;
+
+        Response<RecipeResponse> response = api.getRecipesChangedSince(since).execute();
+        if (RetrofitClient.isNotModified(response)) {
+            cache.touch();
+            return 0;
+        }
+        RecipeResponse delta = response.body();
+        if (!response.isSuccessful() || delta == null) {
+            throw new IOException("Ошибка синхронизации: HTTP " + response.code());
+        }
+
+        // Пока шёл запрос, экран мог дописать в кэш страницу каталога:
+        // изменения сливаются с тем, что лежит в кэше сейчас. Под замком кэша —
+        // только слияние и запись снимка; база пишется после, не задерживая кэш.
+        List<Recipe> changed = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        cache.update(latest -> {
+            List<Recipe> current = latest != null && latest.getRecipes() != null
+                    ? latest.getRecipes() : new ArrayList<>();
+            Map<Integer, Recipe> byId = new HashMap<>(current.size() * 2);
+            for (Recipe recipe : current) {
+                byId.put(recipe.getId(), recipe);
+            }
+            if (delta.getRecipes() != null) {
+                for (Recipe recipe : delta.getRecipes()) {
+                    Recipe known = byId.get(recipe.getId());
+                    if (known == null || isNewer(recipe, known)) {
+                        changed.add(recipe);
+                    }
+                }
+            }
+            if (delta.getDeletedIds() != null) {
+                for (int recipeId : delta.getDeletedIds()) {
+                    if (byId.containsKey(recipeId)) {
+                        removed.add(recipeId);
+                    }
+                }
+            }
+
+            RecipeResponse snapshot = new RecipeResponse();
+            snapshot.setRecipes(merge(current, changed, removed));
+            snapshot.setNextOffset(latest != null ? latest.getNextOffset() : null);
+            snapshot.setServerTime(delta.getServerTime());
+            return snapshot;
+        });
+
+        // Если процесс умрёт до записи в базу, её сверит с кэшем restoreCatalog при запуске
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            storage.applyRemoteChanges(changed, removed);
+        }
+        int applied = changed.size() + removed.size();
+        Log.d(TAG, "Синхронизация с " + since + ": изменений " + applied);
+        return applied;
+    }
+
+    /**
+     * Последний записавший побеждает. Без отметки времени (0) версия сервера
+     * считается новее: сервер — источник каталога.
+     */
+    static boolean isNewer(Recipe incoming, Recipe known) {
+        return incoming.getUpdatedAt() == 0 || incoming.getUpdatedAt() > known.getUpdatedAt();
+    }
+
+    /**
+     * Список после изменений: изменённые заменяют себя на месте,
+     * новые дописываются в конец, удалённые убираются
+     */
+    public static List<Recipe> merge(List<Recipe> current, List<Recipe> changed,
+                                     Collection<Integer> removedIds) {
+        Map<Integer, Recipe> updates = new HashMap<>(changed.size() * 2);
+        for (Recipe recipe : changed) {
+            updates.put(recipe.getId(), recipe);
+        }
+        Set<Integer> removed = new HashSet<>(removedIds);
+
+        List<Recipe> merged = new ArrayList<>(current.size() + changed.size());
+        Set<Integer> placed = new HashSet<>();
+        for (Recipe recipe : current) {
+            if (removed.contains(recipe.getId())) {
+                continue;
+            }
+            Recipe update = updates.get(recipe.getId());
+            merged.add(update != null ? update : recipe);
+            placed.add(recipe.getId());
+        }
+        for (Recipe recipe : changed) {
+            if (placed.add(recipe.getId())) {
+                merged.add(recipe);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.recipes.api;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.example.recipes.utils.RecipeCache;
+import com.example.recipes.utils.RecipeStorage;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фоновая синхронизация каталога через WorkManager: раз в несколько часов,
+ * только при наличии сети. Ошибка сети — повтор с нарастающей паузой.
+ */
+public class RecipeSyncWorker extends Worker {
+
+    private static final String TAG = "RecipeSyncWorker";
+    private static final String WORK_NAME = "recipe_sync";
+    private static final long INTERVAL_HOURS = 6;
+
+    public RecipeSyncWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        RetrofitClient.init(context);
+        RecipeSync sync = new RecipeSync(RetrofitClient.getApi(), new RecipeCache(context),
+                RecipeStorage.getInstance(context));
+        try {
+            sync.sync();
+            return Result.success();
+        } catch (IOException e) {
+            Log.w(TAG, "Синхронизация не удалась: " + e.getMessage());
+            return Result.retry();
+        }
+    }
+
+    /**
+     * Запланировать периодическую синхронизацию (повторный вызов ничего не меняет)
+     */
+    public static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+                RecipeSyncWorker.class, INTERVAL_HOURS, TimeUnit.HOURS)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+}
@@ -1,24 +1,125 @@
 package com.example.recipes.api;
 
+import android.content.Context;
+
+import com.example.recipes.utils.GsonProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.ConnectionPool;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import retrofit2.Response;
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
 public class RetrofitClient {
 
     private static final String BASE_URL = "https://1587d059-0024-4c40-a185-79ab06931fed.mock.pstmn.io/";
+    private static final String HTTP_CACHE_DIR = "http";
+    private static final long HTTP_CACHE_SIZE = 10L * 1024 * 1024;
+
     private static Retrofit retrofit;
+    private static File cacheDir;
 
-    public static Retrofit getInstance() {
-        if (retrofit == null) {
-            retrofit = new Retrofit.Builder()
-                    .baseUrl(BASE_URL)
-                    .addConverterFactory(GsonConverterFactory.create())
+    /**
+     * Если сервер прислал ETag/Last-Modified, но не прислал Cache-Control,
+     * помечаем ответ как сразу устаревший (max-age=0): OkHttp сохранит его и
+     * в следующий раз отправит условный запрос (If-None-Match / If-Modified-Since).
+     * Неизменившийся каталог тогда приходит ответом 304 без тела.
+     * Не no-cache: такой ответ OkHttp не отдаст из кэша без сети.
+     */
+    private static final Interceptor REVALIDATE_INTERCEPTOR = chain -> {
+        okhttp3.Response response = chain.proceed(chain.request());
+        boolean hasValidator = response.header("ETag") != null
+                || response.header("Last-Modified") != null;
+        if (hasValidator && response.header("Cache-Control") == null) {
+            return response.newBuilder()
+                    .header("Cache-Control", "max-age=0")
+                    .removeHeader("Pragma")
                     .build();
         }
+        return response;
+    };
+
+    /**
+     * Сети нет — отдаём последний сохранённый ответ, даже устаревший.
+     * Если в кэше ничего нет (504 от OkHttp), пробрасываем исходную ошибку.
+     */
+    private static final Interceptor OFFLINE_INTERCEPTOR = chain -> {
+        Request request = chain.request();
+        try {
+            return chain.proceed(request);
+        } catch (IOException e) {
+            if (!"GET".equals(request.method())) {
+                throw e;
+            }
+            okhttp3.Response cached = chain.proceed(request.newBuilder()
+                    .cacheControl(CacheControl.FORCE_CACHE)
+                    .build());
+            if (cached.code() == 504) {
+                cached.close();
+                throw e;
+            }
+            return cached;
+        }
+    };
+
+    /**
+     * Задать папку для HTTP-кэша; вызывать до первого запроса
+     */
+    public static synchronized void init(Context context) {
+        if (cacheDir == null) {
+            cacheDir = context.getApplicationContext().getCacheDir();
+        }
+    }
+
+    public static synchronized Retrofit getInstance() {
+        if (retrofit == null) {
+            retrofit = create(BASE_URL, cacheDir);
+        }
         return retrofit;
     }
 
     public static ApiService getApi() {
         return getInstance().create(ApiService.class);
     }
+
+    /**
+     * Собрать клиент для заданного адреса (например, локального MockWebServer)
+     */
+    public static Retrofit create(String baseUrl, File cacheRoot) {
+        OkHttpClient.Builder http = new OkHttpClient.Builder()
+                // Держим соединения открытыми между обновлениями каталога
+                .connectionPool(new ConnectionPool(5, 5, TimeUnit.MINUTES))
+                .connectTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .addNetworkInterceptor(REVALIDATE_INTERCEPTOR);
+        // gzip: OkHttp сам добавляет Accept-Encoding и распаковывает ответ,
+        // пока заголовок не выставлен вручную — поэтому здесь его не трогаем
+
+        if (cacheRoot != null) {
+            http.cache(new Cache(new File(cacheRoot, HTTP_CACHE_DIR), HTTP_CACHE_SIZE))
+                    .addInterceptor(OFFLINE_INTERCEPTOR);
+        }
+
+        return new Retrofit.Builder()
+                .baseUrl(baseUrl)
+                .client(http.build())
+                .addConverterFactory(GsonConverterFactory.create(GsonProvider.get()))
+                .build();
+    }
+
+    /**
+     * Сервер ответил 304: данные не изменились с прошлого запроса
+     */
+    public static boolean isNotModified(Response<?> response) {
+        okhttp3.Response network = response.raw().networkResponse();
+        return network != null && network.code() == 304;
+    }
 }
@@ -0,0 +1,50 @@
+package com.example.recipes.models;
+
+import android.content.res.ColorStateList;
+
+/**
+ * Сложность рецепта с готовым цветом чипа.
+ * ColorStateList создаётся один раз на значение, а не при каждой привязке строки.
+ */
+public enum Difficulty {
+    EASY("Легкая", 0xFF4CAF50),
+    MEDIUM("Средняя", 0xFFFF9800),
+    HARD("Сложная", 0xFFF44336),
+    UNKNOWN(null, 0xFF9E9E9E);
+
+    private final String label;
+    private final int color;
+    private final ColorStateList chipBackground;
+
+    Difficulty(String label, int color) {
+        this.label = label;
+        this.color = color;
+        this.chipBackground = ColorStateList.valueOf(color);
+    }
+
+    /**
+     * Значение по строке из рецепта (неизвестная строка — UNKNOWN)
+     */
+    public static Difficulty from(String label) {
+        if (label != null) {
+            for (Difficulty difficulty : values()) {
+                if (label.equals(difficulty.label)) {
+                    return difficulty;
+                }
+            }
+        }
+        return UNKNOWN;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int getColor() {
+        return color;
+    }
+
+    public ColorStateList getChipBackground() {
+        return chipBackground;
+    }
+}
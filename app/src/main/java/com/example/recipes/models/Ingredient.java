@@ -0,0 +1,57 @@
+package com.example.recipes.models;
+
+/**
+ * Разобранная строка ингредиента: "Морковь — 2 шт." → имя "Морковь", 2, "шт".
+ * key — нормализованное имя, по нему ингредиенты разных рецептов считаются одним.
+ */
+public final class Ingredient {
+
+    private final String raw;
+    private final String name;
+    private final String key;
+    private final double quantity;
+    private final String unit;
+
+    public Ingredient(String raw, String name, String key, double quantity, String unit) {
+        this.raw = raw;
+        this.name = name;
+        this.key = key;
+        this.quantity = quantity;
+        this.unit = unit;
+    }
+
+    public String getRaw() {
+        return raw;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Количество; NaN, если в строке его нет
+     */
+    public double getQuantity() {
+        return quantity;
+    }
+
+    public boolean hasQuantity() {
+        return !Double.isNaN(quantity);
+    }
+
+    /**
+     * Единица в каноническом виде ("г", "мл", "шт", "ст. л." ...) или null
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    @Override
+    public String toString() {
+        return raw;
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.recipes.models;
 
-import java.io.Serializable;
 import java.util.List;
 
-public class Recipe implements Serializable {
+public class Recipe {
+
+    // Картинка-заглушка, которую раньше подставляла форма добавления: по сети не грузим
+    private static final String PLACEHOLDER_IMAGE_HOST = "https://via.placeholder.com/";
 
     private int id;
     private String name;
@@ -13,6 +15,12 @@ public class Recipe implements Serializable {
     private List<String> ingredients;
     private String description;
     private String imageUrl;
+    // Метаданные картинки: размер оригинала и средний цвет для превью (0 — неизвестно)
+    private int imageWidth;
+    private int imageHeight;
+    private int imageColor;
+    // Время последнего изменения, мс (0 — неизвестно); по нему сливаются изменения с сервера
+    private long updatedAt;
 
     // Конструктор
     public Recipe() {}
@@ -26,6 +34,10 @@ public class Recipe implements Serializable {
     public List<String> getIngredients() { return ingredients; }
     public String getDescription() { return description; }
     public String getImageUrl() { return imageUrl; }
+    public int getImageWidth() { return imageWidth; }
+    public int getImageHeight() { return imageHeight; }
+    public int getImageColor() { return imageColor; }
+    public long getUpdatedAt() { return updatedAt; }
 
     // Сеттеры
     public void setId(int id) { this.id = id; }
@@ -36,8 +48,21 @@ public class Recipe implements Serializable {
     public void setIngredients(List<String> ingredients) { this.ingredients = ingredients; }
     public void setDescription(String description) { this.description = description; }
     public void setImageUrl(String imageUrl) { this.imageUrl = imageUrl; }
+    public void setImageWidth(int imageWidth) { this.imageWidth = imageWidth; }
+    public void setImageHeight(int imageHeight) { this.imageHeight = imageHeight; }
+    public void setImageColor(int imageColor) { this.imageColor = imageColor; }
+    public void setUpdatedAt(long updatedAt) { this.updatedAt = updatedAt; }
 
     // Вспомогательные методы
+    public boolean hasImage() {
+        return imageUrl != null && !imageUrl.isEmpty()
+                && !imageUrl.startsWith(PLACEHOLDER_IMAGE_HOST);
+    }
+
+    public boolean hasImageMetadata() {
+        return imageWidth > 0 && imageHeight > 0;
+    }
+
     public String getCookingTimeString() {
         return cookingTime + " мин.";
     }
@@ -5,6 +5,14 @@ import java.util.List;
 public class RecipeResponse {
     private List<Recipe> recipes;
 
+    // Постраничная загрузка: null — сервер не прислал (страниц больше нет)
+    private Integer nextOffset;
+    private Integer total;
+
+    // Ответ "изменения с момента": удалённые ID и время сервера
+    private List<Integer> deletedIds;
+    private long serverTime;
+
     public List<Recipe> getRecipes() {
         return recipes;
     }
@@ -12,4 +20,36 @@ public class RecipeResponse {
     public void setRecipes(List<Recipe> recipes) {
         this.recipes = recipes;
     }
-}
\ No newline at end of file
+
+    public Integer getNextOffset() {
+        return nextOffset;
+    }
+
+    public void setNextOffset(Integer nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public List<Integer> getDeletedIds() {
+        return deletedIds;
+    }
+
+    public void setDeletedIds(List<Integer> deletedIds) {
+        this.deletedIds = deletedIds;
+    }
+
+    public long getServerTime() {
+        return serverTime;
+    }
+
+    public void setServerTime(long serverTime) {
+        this.serverTime = serverTime;
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Компактный двоичный формат каталога.
+ *
+ * <pre>
+ * int magic "RCPB", int version
+ * int stringCount, строки: [int len][utf-8]   — категории, сложности, ингредиенты
+ * int recordCount, записи: [int len][payload]
+ * payload: int id, int cookingTime, int category, int difficulty,
+ *          int ingredientCount, int[] ingredients (номера в таблице строк),
+ *          name, description, imageUrl ([int len][utf-8], -1 = null),
+ *          int imageWidth, int imageHeight, int imageColor, long updatedAt
+ *          (в старых записях отсутствуют)
+ * v2: int favoriteCount, int[] favoriteIds
+ * </pre>
+ *
+ * Повторяющиеся значения хранятся один раз, а чтение идёт через
+ * отображение файла в память (FileChannel.map) без промежуточного текста.
+ */
+public final class BinaryRecipeFormat {
+
+    private static final int MAGIC = 0x52435042; // "RCPB"
+    private static final int VERSION = 2;
+    private static final int NO_STRING = -1;
+
+    private BinaryRecipeFormat() {}
+
+    /**
+     * Записать рецепты в файл целиком (через временный файл)
+     */
+    public static void write(File file, Collection<Recipe> recipes) throws IOException {
+        write(file, recipes, null);
+    }
+
+    /**
+     * Записать рецепты и избранное (favorites может быть null)
+     */
+    public static void write(File file, Collection<Recipe> recipes, IntSet favorites)
+            throws IOException {
+        // Таблица строк: одинаковые значения получают один номер
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        for (Recipe recipe : recipes) {
+            intern(recipe.getCategory(), ids, table);
+            intern(recipe.getDifficulty(), ids, table);
+            if (recipe.getIngredients() != null) {
+                for (String ingredient : recipe.getIngredients()) {
+                    intern(ingredient, ids, table);
+                }
+            }
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(table.size());
+            for (String value : table) {
+                writeString(out, value);
+            }
+
+            out.writeInt(recipes.size());
+            ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(256);
+            DataOutputStream record = new DataOutputStream(recordBytes);
+            for (Recipe recipe : recipes) {
+                recordBytes.reset();
+                writeRecord(record, recipe, ids);
+                out.writeInt(recordBytes.size());
+                recordBytes.writeTo(out);
+            }
+
+            int favoriteCount = favorites != null ? favorites.size() : 0;
+            out.writeInt(favoriteCount);
+            for (int i = 0; i < favoriteCount; i++) {
+                out.writeInt(favorites.get(i));
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Не удалось заменить " + file);
+        }
+    }
+
+    /**
+     * Прочитать все рецепты; пустой список, если файла нет
+     */
+    public static List<Recipe> read(File file) throws IOException {
+        return read(file, null);
+    }
+
+    /**
+     * Прочитать рецепты; избранное (если есть в файле) добавляется в favoritesOut.
+     * Повреждённый или обрезанный файл — IOException
+     */
+    public static List<Recipe> read(File file, IntSet favoritesOut) throws IOException {
+        List<Recipe> recipes = new ArrayList<>();
+        if (!file.exists() || file.length() == 0) {
+            return recipes;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Неизвестный формат файла " + file);
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Неподдерживаемая версия " + version);
+            }
+
+            byte[] scratch = new byte[256];
+            String[] table = new String[buffer.getInt()];
+            for (int i = 0; i < table.length; i++) {
+                table[i] = readString(buffer, scratch);
+            }
+
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int length = buffer.getInt();
+                int end = buffer.position() + length;
+                recipes.add(readRecord(buffer, end, table, scratch));
+                buffer.position(end); // пропускаем поля новых версий, если они есть
+            }
+
+            if (version >= 2) {
+                int favoriteCount = buffer.getInt();
+                for (int i = 0; i < favoriteCount; i++) {
+                    int id = buffer.getInt();
+                    if (favoritesOut != null) {
+                        favoritesOut.add(id);
+                    }
+                }
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException
+                | IndexOutOfBoundsException e) {
+            // Длины и номера строк указывают за конец файла
+            throw new IOException("Файл повреждён или обрезан: " + file, e);
+        }
+        return recipes;
+    }
+
+    private static void writeRecord(DataOutputStream out, Recipe recipe,
+                                    Map<String, Integer> ids) throws IOException {
+        out.writeInt(recipe.getId());
+        out.writeInt(recipe.getCookingTime());
+        out.writeInt(ref(recipe.getCategory(), ids));
+        out.writeInt(ref(recipe.getDifficulty(), ids));
+        List<String> ingredients = recipe.getIngredients();
+        if (ingredients == null) {
+            out.writeInt(NO_STRING);
+        } else {
+            out.writeInt(ingredients.size());
+            for (String ingredient : ingredients) {
+                out.writeInt(ref(ingredient, ids));
+            }
+        }
+        writeString(out, recipe.getName());
+        writeString(out, recipe.getDescription());
+        writeString(out, recipe.getImageUrl());
+        writeImageMetadata(out, recipe);
+        out.writeLong(recipe.getUpdatedAt());
+    }
+
+    private static Recipe readRecord(ByteBuffer in, int end, String[] table, byte[] scratch) {
+        Recipe recipe = new Recipe();
+        recipe.setId(in.getInt());
+        recipe.setCookingTime(in.getInt());
+        recipe.setCategory(lookup(table, in.getInt()));
+        recipe.setDifficulty(lookup(table, in.getInt()));
+        int ingredientCount = in.getInt();
+        if (ingredientCount != NO_STRING) {
+            List<String> ingredients = new ArrayList<>(ingredientCount);
+            for (int i = 0; i < ingredientCount; i++) {
+                ingredients.add(lookup(table, in.getInt()));
+            }
+            recipe.setIngredients(ingredients);
+        }
+        recipe.setName(readString(in, scratch));
+        recipe.setDescription(readString(in, scratch));
+        recipe.setImageUrl(readString(in, scratch));
+        readImageMetadata(in, end, recipe);
+        readUpdatedAt(in, end, recipe);
+        return recipe;
+    }
+
+    /**
+     * Самодостаточная запись рецепта (строки внутри записи) — для журнала
+     */
+    static void writeRecipe(DataOutputStream out, Recipe recipe) throws IOException {
+        out.writeInt(recipe.getId());
+        out.writeInt(recipe.getCookingTime());
+        writeString(out, recipe.getCategory());
+        writeString(out, recipe.getDifficulty());
+        List<String> ingredients = recipe.getIngredients();
+        if (ingredients == null) {
+            out.writeInt(NO_STRING);
+        } else {
+            out.writeInt(ingredients.size());
+            for (String ingredient : ingredients) {
+                writeString(out, ingredient);
+            }
+        }
+        writeString(out, recipe.getName());
+        writeString(out, recipe.getDescription());
+        writeString(out, recipe.getImageUrl());
+        writeImageMetadata(out, recipe);
+        out.writeLong(recipe.getUpdatedAt());
+    }
+
+    /**
+     * Прочитать запись writeRecipe, занимающую буфер до позиции end
+     */
+    static Recipe readRecipe(ByteBuffer in, int end, byte[] scratch) {
+        Recipe recipe = new Recipe();
+        recipe.setId(in.getInt());
+        recipe.setCookingTime(in.getInt());
+        recipe.setCategory(readString(in, scratch));
+        recipe.setDifficulty(readString(in, scratch));
+        int ingredientCount = in.getInt();
+        if (ingredientCount != NO_STRING) {
+            List<String> ingredients = new ArrayList<>(ingredientCount);
+            for (int i = 0; i < ingredientCount; i++) {
+                ingredients.add(readString(in, scratch));
+            }
+            recipe.setIngredients(ingredients);
+        }
+        recipe.setName(readString(in, scratch));
+        recipe.setDescription(readString(in, scratch));
+        recipe.setImageUrl(readString(in, scratch));
+        readImageMetadata(in, end, recipe);
+        readUpdatedAt(in, end, recipe);
+        return recipe;
+    }
+
+    private static void writeImageMetadata(DataOutputStream out, Recipe recipe)
+            throws IOException {
+        out.writeInt(recipe.getImageWidth());
+        out.writeInt(recipe.getImageHeight());
+        out.writeInt(recipe.getImageColor());
+    }
+
+    /**
+     * В записях, сделанных до появления метаданных, этих полей нет
+     */
+    private static void readImageMetadata(ByteBuffer in, int end, Recipe recipe) {
+        if (end - in.position() < 12) {
+            return;
+        }
+        recipe.setImageWidth(in.getInt());
+        recipe.setImageHeight(in.getInt());
+        recipe.setImageColor(in.getInt());
+    }
+
+    private static void readUpdatedAt(ByteBuffer in, int end, Recipe recipe) {
+        if (end - in.position() >= 8) {
+            recipe.setUpdatedAt(in.getLong());
+        }
+    }
+
+    private static void intern(String value, Map<String, Integer> ids, List<String> table) {
+        if (value != null && !ids.containsKey(value)) {
+            ids.put(value, table.size());
+            table.add(value);
+        }
+    }
+
+    private static int ref(String value, Map<String, Integer> ids) {
+        return value == null ? NO_STRING : ids.get(value);
+    }
+
+    private static String lookup(String[] table, int ref) {
+        return ref == NO_STRING ? null : table[ref];
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NO_STRING);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer in, byte[] scratch) {
+        int length = in.getInt();
+        if (length == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        in.get(bytes, 0, length);
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
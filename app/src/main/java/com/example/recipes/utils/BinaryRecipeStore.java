@@ -0,0 +1,117 @@
+package com.example.recipes.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.recipes.models.Recipe;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Хранилище в двоичном формате {@link BinaryRecipeFormat}.
+ * Каждое изменение перезаписывает файл целиком и возвращает результат записи;
+ * пакет рецептов ({@link #putAll}) записывается одним разом.
+ */
+public class BinaryRecipeStore implements RecipeStore {
+
+    private static final String TAG = "BinaryRecipeStore";
+    private static final String FILE_NAME = "recipes.bin";
+
+    private final File file;
+    private final Map<Integer, Recipe> recipes = new LinkedHashMap<>();
+
+    public BinaryRecipeStore(Context context) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    /**
+     * Есть ли на диске файл этого формата
+     */
+    public static boolean hasData(Context context) {
+        return new File(context.getFilesDir(), FILE_NAME).exists();
+    }
+
+    @Override
+    public synchronized List<Recipe> loadAll() {
+        recipes.clear();
+        try {
+            for (Recipe recipe : BinaryRecipeFormat.read(file)) {
+                recipes.put(recipe.getId(), recipe);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Не удалось прочитать " + file, e);
+        }
+        return new ArrayList<>(recipes.values());
+    }
+
+    @Override
+    public synchronized boolean put(Recipe recipe) {
+        Recipe previous = recipes.put(recipe.getId(), recipe);
+        if (write()) {
+            return true;
+        }
+        // Файл не изменился — возвращаем и память к прежнему состоянию
+        if (previous != null) {
+            recipes.put(recipe.getId(), previous);
+        } else {
+            recipes.remove(recipe.getId());
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized boolean putAll(Collection<Recipe> batch) {
+        Map<Integer, Recipe> before = new LinkedHashMap<>(recipes);
+        for (Recipe recipe : batch) {
+            recipes.put(recipe.getId(), recipe);
+        }
+        if (write()) {
+            return true;
+        }
+        recipes.clear();
+        recipes.putAll(before);
+        return false;
+    }
+
+    @Override
+    public synchronized boolean remove(int recipeId) {
+        Recipe previous = recipes.remove(recipeId);
+        if (previous == null) {
+            return false;
+        }
+        if (write()) {
+            return true;
+        }
+        recipes.put(recipeId, previous);
+        return false;
+    }
+
+    @Override
+    public synchronized void clear() {
+        recipes.clear();
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "Не удалось удалить " + file);
+        }
+    }
+
+    @Override
+    public long getSizeOnDisk() {
+        return file.length();
+    }
+
+    private boolean write() {
+        try {
+            BinaryRecipeFormat.write(file, recipes.values());
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Не удалось записать " + file, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Difficulty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Измерения фильтра списка. Значения внутри одного измерения объединяются по ИЛИ,
+ * разные измерения — по И.
+ */
+public enum Facet {
+    CATEGORY,
+    DIFFICULTY,
+    COOKING_TIME,
+    INGREDIENTS,
+    FAVORITES;
+
+    public static final String FAVORITE = "Избранное";
+
+    private static final List<String> DIFFICULTIES = Arrays.asList(
+            Difficulty.EASY.getLabel(), Difficulty.MEDIUM.getLabel(), Difficulty.HARD.getLabel());
+    private static final List<String> TIME_BUCKETS = Arrays.asList(
+            "до 15 мин", "15–30 мин", "30–60 мин", "больше часа");
+    private static final List<String> INGREDIENT_BUCKETS = Arrays.asList(
+            "до 5 ингр.", "6–10 ингр.", "больше 10 ингр.");
+
+    /**
+     * Заранее известные значения (категории берутся из данных)
+     */
+    public List<String> fixedValues() {
+        switch (this) {
+            case DIFFICULTY:
+                return DIFFICULTIES;
+            case COOKING_TIME:
+                return TIME_BUCKETS;
+            case INGREDIENTS:
+                return INGREDIENT_BUCKETS;
+            case FAVORITES:
+                return Collections.singletonList(FAVORITE);
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    static String timeBucket(int minutes) {
+        if (minutes <= 15) {
+            return TIME_BUCKETS.get(0);
+        }
+        if (minutes <= 30) {
+            return TIME_BUCKETS.get(1);
+        }
+        return minutes <= 60 ? TIME_BUCKETS.get(2) : TIME_BUCKETS.get(3);
+    }
+
+    static String ingredientsBucket(int count) {
+        if (count <= 5) {
+            return INGREDIENT_BUCKETS.get(0);
+        }
+        return count <= 10 ? INGREDIENT_BUCKETS.get(1) : INGREDIENT_BUCKETS.get(2);
+    }
+}
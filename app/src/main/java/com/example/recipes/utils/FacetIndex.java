@@ -0,0 +1,364 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Difficulty;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Битовые карты по значениям измерений фильтра (категория, сложность,
+ * время, число ингредиентов) над рецептами каталога.
+ *
+ * Номер рецепта (ordinal) — порядок добавления в индекс: при сборке из базы это
+ * порядок списка, дальше новый рецепт получает следующий номер, изменённый остаётся
+ * на своём, удалённый освобождает бит (номер не переиспользуется до пересборки).
+ * Для каждого значения число рецептов считается как popcount(карта значения AND
+ * остальные условия), то есть счётчики на чипах приходят вместе с результатом
+ * без перебора рецептов. Избранное меняется часто, поэтому его карту передаёт
+ * вызывающий ({@link #maskOf}). Не потокобезопасен — доступ под блокировкой владельца.
+ */
+final class FacetIndex {
+
+    private static final Facet[] FACETS = {Facet.CATEGORY, Facet.DIFFICULTY,
+            Facet.COOKING_TIME, Facet.INGREDIENTS};
+    // Номер удалённого рецепта
+    private static final int NO_RECIPE = Integer.MIN_VALUE;
+
+    /**
+     * Карта подходящих рецептов, их число и счётчики значений
+     */
+    static final class Hits {
+        final long[] matching;
+        final int total;
+        final Map<Facet, Map<String, Integer>> counts;
+
+        Hits(long[] matching, int total, Map<Facet, Map<String, Integer>> counts) {
+            this.matching = matching;
+            this.total = total;
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * Сборка по строкам каталога в порядке списка
+     */
+    static final class Builder {
+        private final FacetIndex index;
+
+        Builder(int capacity) {
+            index = new FacetIndex(capacity);
+        }
+
+        void add(int recipeId, String category, String difficulty, int cookingTime,
+                 int ingredientCount) {
+            index.append(recipeId, valuesOf(category, difficulty, cookingTime, ingredientCount));
+        }
+
+        FacetIndex build() {
+            index.ordinals = new IdOrdinals(index.recipeIds, index.size);
+            return index;
+        }
+    }
+
+    private int[] recipeIds;              // ordinal → ID рецепта, NO_RECIPE — удалён
+    private int size;                     // выданных номеров
+    private int removed;
+    private IdOrdinals ordinals;          // ID → ordinal
+    // Длина карт — запас под новые номера; в запросах участвуют первые words слов
+    private final Map<Facet, Map<String, long[]>> bitmaps = new EnumMap<>(Facet.class);
+    private int words;
+    private long[] all;
+
+    private FacetIndex(int capacity) {
+        recipeIds = new int[Math.max(capacity, 1)];
+        all = new long[wordsFor(recipeIds.length)];
+        for (Facet facet : FACETS) {
+            Map<String, long[]> byValue = new LinkedHashMap<>();
+            for (String value : facet.fixedValues()) {
+                byValue.put(value, new long[all.length]);
+            }
+            bitmaps.put(facet, byValue);
+        }
+    }
+
+    private static String[] valuesOf(String category, String difficulty, int cookingTime,
+                                      int ingredientCount) {
+        return new String[]{
+                category,
+                Difficulty.from(difficulty).getLabel(),
+                Facet.timeBucket(cookingTime),
+                Facet.ingredientsBucket(ingredientCount)
+        };
+    }
+
+    static int wordsFor(int recipeCount) {
+        return (recipeCount + 63) >>> 6;
+    }
+
+    int size() {
+        return size - removed;
+    }
+
+    /**
+     * Добавить рецепт или обновить его значения на прежнем номере
+     */
+    void put(int recipeId, String category, String difficulty, int cookingTime,
+             int ingredientCount) {
+        String[] values = valuesOf(category, difficulty, cookingTime, ingredientCount);
+        int ordinal = ordinals.get(recipeId);
+        if (ordinal < 0) {
+            ordinals.put(recipeId, append(recipeId, values));
+            return;
+        }
+        clearValues(ordinal);
+        setValues(ordinal, values);
+    }
+
+    /**
+     * Убрать рецепт; false, если его не было
+     */
+    boolean remove(int recipeId) {
+        int ordinal = ordinals.remove(recipeId);
+        if (ordinal < 0) {
+            return false;
+        }
+        clearValues(ordinal);
+        all[ordinal >>> 6] &= ~(1L << (ordinal & 63));
+        recipeIds[ordinal] = NO_RECIPE;
+        removed++;
+        return true;
+    }
+
+    /**
+     * Удалённых накопилась четверть — карты проходят их впустую, пора пересобрать
+     */
+    boolean isFragmented() {
+        return removed > 1024 && removed * 4 > size;
+    }
+
+    private int append(int recipeId, String[] values) {
+        if (size == recipeIds.length) {
+            recipeIds = Arrays.copyOf(recipeIds, size * 2);
+            int capacity = wordsFor(recipeIds.length);
+            all = Arrays.copyOf(all, capacity);
+            for (Map<String, long[]> byValue : bitmaps.values()) {
+                for (Map.Entry<String, long[]> entry : byValue.entrySet()) {
+                    entry.setValue(Arrays.copyOf(entry.getValue(), capacity));
+                }
+            }
+        }
+        int ordinal = size++;
+        words = wordsFor(size);
+        recipeIds[ordinal] = recipeId;
+        all[ordinal >>> 6] |= 1L << (ordinal & 63);
+        setValues(ordinal, values);
+        return ordinal;
+    }
+
+    private void setValues(int ordinal, String[] values) {
+        for (int f = 0; f < FACETS.length; f++) {
+            if (values[f] == null) {
+                continue;
+            }
+            Map<String, long[]> byValue = bitmaps.get(FACETS[f]);
+            long[] bitmap = byValue.get(values[f]);
+            if (bitmap == null) {
+                bitmap = new long[all.length];
+                byValue.put(values[f], bitmap);
+            }
+            bitmap[ordinal >>> 6] |= 1L << (ordinal & 63);
+        }
+    }
+
+    private void clearValues(int ordinal) {
+        long bit = ~(1L << (ordinal & 63));
+        for (Map<String, long[]> byValue : bitmaps.values()) {
+            for (long[] bitmap : byValue.values()) {
+                bitmap[ordinal >>> 6] &= bit;
+            }
+        }
+    }
+
+    /**
+     * Карта по набору ID (результат полнотекстового поиска, избранное)
+     */
+    long[] maskOf(IntSet ids) {
+        long[] mask = new long[words];
+        for (int i = 0; i < ids.size(); i++) {
+            set(mask, ids.get(i));
+        }
+        return mask;
+    }
+
+    private void set(long[] mask, int recipeId) {
+        int ordinal = ordinalOf(recipeId);
+        if (ordinal >= 0) {
+            mask[ordinal >>> 6] |= 1L << (ordinal & 63);
+        }
+    }
+
+    private int ordinalOf(int recipeId) {
+        return ordinals.get(recipeId);
+    }
+
+    /**
+     * Номера рецептов (-1 — нет в индексе). ID, идущие в порядке номеров,
+     * сопоставляются одним проходом; с первого расхождения — бинарным поиском.
+     */
+    int[] ordinalsOf(int[] ids) {
+        int[] result = new int[ids.length];
+        int ordinal = 0;
+        for (int i = 0; i < ids.length; i++) {
+            while (ordinal < size && recipeIds[ordinal] != ids[i]) {
+                ordinal++;
+            }
+            if (ordinal < size) {
+                result[i] = ordinal++;
+            } else {
+                for (int j = i; j < ids.length; j++) {
+                    result[j] = ordinalOf(ids[j]);
+                }
+                break;
+            }
+        }
+        return result;
+    }
+
+    long[] maskOfOrdinals(int[] ordinals) {
+        long[] mask = new long[words];
+        for (int ordinal : ordinals) {
+            if (ordinal >= 0) {
+                mask[ordinal >>> 6] |= 1L << (ordinal & 63);
+            }
+        }
+        return mask;
+    }
+
+    static boolean isSet(long[] bitmap, int ordinal) {
+        return ordinal >= 0 && (bitmap[ordinal >>> 6] & (1L << (ordinal & 63))) != 0;
+    }
+
+    /**
+     * Маски не изменяются и могут переиспользоваться между запросами.
+     *
+     * @param textMask     рецепты, подходящие под поиск, или null — без поиска
+     * @param favoriteMask избранные рецепты
+     */
+    Hits query(FacetQuery query, long[] textMask, long[] favoriteMask) {
+        long[] base = textMask != null ? textMask : Arrays.copyOf(all, words);
+
+        // Выбранное в каждом измерении: ИЛИ значений; null — измерение не задано
+        Map<Facet, long[]> selections = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            if (!query.getSelected(facet).isEmpty()) {
+                selections.put(facet, union(facet, query.getSelected(facet), favoriteMask));
+            }
+        }
+
+        long[] matching = base.clone();
+        for (long[] selection : selections.values()) {
+            and(matching, selection);
+        }
+
+        Map<Facet, Map<String, Integer>> counts = new EnumMap<>(Facet.class);
+        for (Facet facet : Facet.values()) {
+            // Для значений измерения — все условия, кроме самого измерения
+            long[] others;
+            if (selections.containsKey(facet)) {
+                others = base.clone();
+                for (Map.Entry<Facet, long[]> entry : selections.entrySet()) {
+                    if (entry.getKey() != facet) {
+                        and(others, entry.getValue());
+                    }
+                }
+            } else {
+                others = matching;
+            }
+            Map<String, Integer> byValue = new LinkedHashMap<>();
+            if (facet == Facet.FAVORITES) {
+                byValue.put(Facet.FAVORITE, countAnd(favoriteMask, others));
+            } else {
+                for (Map.Entry<String, long[]> entry : bitmaps.get(facet).entrySet()) {
+                    byValue.put(entry.getKey(), countAnd(entry.getValue(), others));
+                }
+            }
+            counts.put(facet, byValue);
+        }
+
+        return new Hits(matching, count(matching), counts);
+    }
+
+    private long[] union(Facet facet, Iterable<String> values, long[] favoriteMask) {
+        if (facet == Facet.FAVORITES) {
+            return favoriteMask;
+        }
+        long[] result = new long[words];
+        Map<String, long[]> byValue = bitmaps.get(facet);
+        for (String value : values) {
+            long[] bitmap = byValue.get(value);
+            if (bitmap != null) {
+                for (int w = 0; w < words; w++) {
+                    result[w] |= bitmap[w];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Есть ли рецепт в карте
+     */
+    boolean contains(long[] bitmap, int recipeId) {
+        return isSet(bitmap, ordinalOf(recipeId));
+    }
+
+    /**
+     * ID страницы карты в порядке номеров
+     */
+    int[] page(long[] bitmap, int offset, int limit) {
+        int[] ids = new int[Math.max(0, Math.min(limit, count(bitmap) - offset))];
+        int seen = 0;
+        int taken = 0;
+        for (int w = 0; w < words && taken < ids.length; w++) {
+            long word = bitmap[w];
+            int bits = Long.bitCount(word);
+            if (seen + bits <= offset) {
+                // Целое слово до начала страницы
+                seen += bits;
+                continue;
+            }
+            while (word != 0 && taken < ids.length) {
+                int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (seen++ >= offset) {
+                    ids[taken++] = recipeIds[(w << 6) + bit];
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void and(long[] target, long[] mask) {
+        for (int w = 0; w < words; w++) {
+            target[w] &= mask[w];
+        }
+    }
+
+    private int countAnd(long[] a, long[] b) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(a[w] & b[w]);
+        }
+        return count;
+    }
+
+    private int count(long[] bitmap) {
+        int count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(bitmap[w]);
+        }
+        return count;
+    }
+}
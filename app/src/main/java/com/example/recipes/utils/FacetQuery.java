@@ -0,0 +1,104 @@
+package com.example.recipes.utils;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Неизменяемый запрос списка: поисковая строка, выбранные значения по измерениям и порядок.
+ * Изменения возвращают новый объект, поэтому запрос можно отдать в фоновый поток.
+ */
+public final class FacetQuery {
+
+    public static final FacetQuery ALL = new FacetQuery("", new EnumMap<>(Facet.class),
+            SortOrder.DEFAULT);
+
+    private final String text;
+    private final Map<Facet, Set<String>> selected;
+    private final SortOrder sort;
+
+    private FacetQuery(String text, Map<Facet, Set<String>> selected, SortOrder sort) {
+        this.text = text;
+        this.selected = selected;
+        this.sort = sort;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public FacetQuery withText(String text) {
+        return new FacetQuery(text == null ? "" : text, selected, sort);
+    }
+
+    public SortOrder getSort() {
+        return sort;
+    }
+
+    public FacetQuery withSort(SortOrder sort) {
+        return sort == this.sort ? this : new FacetQuery(text, selected, sort);
+    }
+
+    public Set<String> getSelected(Facet facet) {
+        Set<String> values = selected.get(facet);
+        return values == null ? Collections.emptySet() : values;
+    }
+
+    public boolean isSelected(Facet facet, String value) {
+        return getSelected(facet).contains(value);
+    }
+
+    /**
+     * Добавить или убрать значение измерения
+     */
+    public FacetQuery with(Facet facet, String value, boolean on) {
+        if (isSelected(facet, value) == on) {
+            return this;
+        }
+        Set<String> values = new LinkedHashSet<>(getSelected(facet));
+        if (on) {
+            values.add(value);
+        } else {
+            values.remove(value);
+        }
+        Map<Facet, Set<String>> copy = new EnumMap<>(Facet.class);
+        copy.putAll(selected);
+        if (values.isEmpty()) {
+            copy.remove(facet);
+        } else {
+            copy.put(facet, Collections.unmodifiableSet(values));
+        }
+        return new FacetQuery(text, copy, sort);
+    }
+
+    /**
+     * Снять выбор в измерении (чип «Все»)
+     */
+    public FacetQuery clear(Facet facet) {
+        if (!selected.containsKey(facet)) {
+            return this;
+        }
+        Map<Facet, Set<String>> copy = new EnumMap<>(Facet.class);
+        copy.putAll(selected);
+        copy.remove(facet);
+        return new FacetQuery(text, copy, sort);
+    }
+
+    public boolean hasText() {
+        return !text.trim().isEmpty();
+    }
+
+    /**
+     * Есть ли хоть одно условие или особый порядок (список тогда берётся из индексов)
+     */
+    public boolean isFiltered() {
+        return hasText() || !selected.isEmpty() || sort != SortOrder.DEFAULT;
+    }
+
+    @Override
+    public String toString() {
+        return "\"" + text + "\" " + selected + " " + sort;
+    }
+}
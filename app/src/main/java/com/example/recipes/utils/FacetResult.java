@@ -0,0 +1,57 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Страница отфильтрованных рецептов, их общее число
+ * и сколько рецептов дало бы каждое значение каждого измерения.
+ */
+public final class FacetResult {
+
+    private final List<Recipe> recipes;
+    private final int total;
+    private final Map<Facet, Map<String, Integer>> counts;
+
+    public FacetResult(List<Recipe> recipes, int total, Map<Facet, Map<String, Integer>> counts) {
+        this.recipes = recipes;
+        this.total = total;
+        this.counts = counts;
+    }
+
+    /**
+     * Другой список рецептов с теми же счётчиками
+     */
+    public FacetResult(List<Recipe> recipes, int total, FacetResult counts) {
+        this(recipes, total, counts.counts);
+    }
+
+    public List<Recipe> getRecipes() {
+        return recipes;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Сколько рецептов будет, если добавить это значение к текущему фильтру
+     * (для выбранных измерений — с учётом остальных условий)
+     */
+    public int getCount(Facet facet, String value) {
+        Map<String, Integer> values = counts.get(facet);
+        Integer count = values != null ? values.get(value) : null;
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Значения измерения в порядке появления в каталоге, с числами
+     */
+    public Map<String, Integer> getCounts(Facet facet) {
+        Map<String, Integer> values = counts.get(facet);
+        return values != null ? values : Collections.emptyMap();
+    }
+}
@@ -0,0 +1,530 @@
+package com.example.recipes.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Поиск с опечатками по названиям и ингредиентам, с ранжированием BM25.
+ *
+ * Слова приводятся к основе ({@link RussianStemmer}), у каждой основы — список рецептов
+ * с весом вхождения (слово в названии весит втрое больше). Для слова запроса берутся
+ * точная основа, продолжения последнего (ещё не дописанного) слова и основы
+ * с опечаткой: кандидатов дают общие триграммы, затем их проверяет расстояние
+ * Левенштейна с ограничением. Рецепт подходит, если нашлись все слова запроса.
+ * Строится из базы ({@link RecipeDatabase#loadSearchIndex()}), дальше обновляется
+ * по одному рецепту: новый получает следующий номер, удалённый остаётся в списках
+ * основ пустым местом. Не потокобезопасен — доступ под блокировкой владельца.
+ */
+final class FuzzySearchIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int NAME_WEIGHT = 3;
+    private static final int MAX_TOKENS = 32;
+    // Сколько продолжений недописанного слова учитывать
+    private static final int MAX_PREFIX_TERMS = 256;
+    private static final float PREFIX_WEIGHT = 0.8f;
+    private static final float[] TYPO_WEIGHT = {1f, 0.6f, 0.4f};
+    // Предлоги и союзы в запросе ("блины с творогом") не обязаны найтись
+    static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "и", "с", "со", "в", "во", "на", "из", "по", "для", "без", "к", "ко",
+            "от", "до", "о", "об", "у", "за", "под", "над", "или"));
+    // Номер удалённого рецепта
+    private static final int NO_RECIPE = Integer.MIN_VALUE;
+
+    /**
+     * Найденные рецепты в порядке списка и их релевантность
+     */
+    static final class Matches {
+        final int[] recipeIds;
+        final float[] scores;
+        // false — время вышло и часть слов искалась без опечаток
+        final boolean complete;
+
+        Matches(int[] recipeIds, float[] scores, boolean complete) {
+            this.recipeIds = recipeIds;
+            this.scores = scores;
+            this.complete = complete;
+        }
+
+        /**
+         * Дополнить рецептами, найденными другим путём (полнотекстовый поиск
+         * по описанию): тех, кого здесь нет, — в конец, с нулевой релевантностью
+         */
+        Matches with(IntSet others) {
+            int[] known = recipeIds.clone();
+            Arrays.sort(known);
+            int extra = 0;
+            for (int i = 0; i < others.size(); i++) {
+                if (Arrays.binarySearch(known, others.get(i)) < 0) {
+                    extra++;
+                }
+            }
+            if (extra == 0) {
+                return this;
+            }
+            int[] ids = Arrays.copyOf(recipeIds, recipeIds.length + extra);
+            float[] merged = Arrays.copyOf(scores, ids.length);
+            int next = recipeIds.length;
+            for (int i = 0; i < others.size(); i++) {
+                if (Arrays.binarySearch(known, others.get(i)) < 0) {
+                    ids[next++] = others.get(i);
+                }
+            }
+            return new Matches(ids, merged, complete);
+        }
+    }
+
+    /**
+     * Сборка по строкам каталога в порядке списка
+     */
+    static final class Builder {
+        private final FuzzySearchIndex index;
+
+        Builder(int capacity) {
+            index = new FuzzySearchIndex(capacity);
+        }
+
+        void add(int recipeId, String name, List<String> ingredients) {
+            index.append(recipeId, name, ingredients);
+        }
+
+        FuzzySearchIndex build() {
+            index.finish();
+            return index;
+        }
+    }
+
+    /**
+     * Рецепты одной основы (номера по возрастанию) и вес вхождения
+     */
+    private static final class Postings {
+        int[] docs = new int[4];
+        byte[] weights = new byte[4];
+        int size;
+
+        void add(int doc, int weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = (byte) weight;
+            size++;
+        }
+    }
+
+    private int[] recipeIds;              // номер → ID рецепта, NO_RECIPE — удалён
+    private int[] lengths;                // длина рецепта с весами слов
+    private int size;
+    private int removed;
+    private long totalLength;             // у живых рецептов
+    private IdOrdinals ordinals;          // ID → номер, после сборки
+    // Основы по номерам в порядке появления; sortedTerms — те же номера по алфавиту
+    private final List<String> terms = new ArrayList<>();
+    private final List<Postings> postings = new ArrayList<>();
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private final Map<String, Integer> wordTerms = new HashMap<>();
+    private int[] sortedTerms;
+    // Триграммы основ: "$бо", "бор", "орщ", "рщ$"
+    private final Map<Long, IntSet> trigrams = new HashMap<>();
+
+    private FuzzySearchIndex(int capacity) {
+        recipeIds = new int[Math.max(capacity, 1)];
+        lengths = new int[recipeIds.length];
+    }
+
+    private void finish() {
+        // Основы по алфавиту — для поиска продолжений бинарным поиском
+        Integer[] order = new Integer[terms.size()];
+        for (int t = 0; t < order.length; t++) {
+            order[t] = t;
+        }
+        Arrays.sort(order, (a, b) -> terms.get(a).compareTo(terms.get(b)));
+        sortedTerms = new int[Math.max(order.length, 1)];
+        for (int i = 0; i < order.length; i++) {
+            sortedTerms[i] = order[i];
+        }
+        ordinals = new IdOrdinals(recipeIds, size);
+    }
+
+    /**
+     * Добавить рецепт или заменить его прежнюю версию
+     */
+    void put(int recipeId, String name, List<String> ingredients) {
+        remove(recipeId);
+        ordinals.put(recipeId, append(recipeId, name, ingredients));
+    }
+
+    /**
+     * Убрать рецепт; false, если его не было
+     */
+    boolean remove(int recipeId) {
+        int doc = ordinals.remove(recipeId);
+        if (doc < 0) {
+            return false;
+        }
+        recipeIds[doc] = NO_RECIPE;
+        totalLength -= lengths[doc];
+        removed++;
+        return true;
+    }
+
+    /**
+     * Удалённых накопилась четверть — поиск проходит их впустую, пора пересобрать
+     */
+    boolean isFragmented() {
+        return removed > 1024 && removed * 4 > size;
+    }
+
+    private int append(int recipeId, String name, List<String> ingredients) {
+        Map<Integer, Integer> weights = new LinkedHashMap<>();
+        addWords(weights, name, NAME_WEIGHT);
+        if (ingredients != null) {
+            for (String line : ingredients) {
+                if (line != null && !line.trim().isEmpty()) {
+                    addWords(weights, IngredientParser.parse(line).getName(), 1);
+                }
+            }
+        }
+        if (size == recipeIds.length) {
+            recipeIds = Arrays.copyOf(recipeIds, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        int doc = size++;
+        int length = 0;
+        for (Map.Entry<Integer, Integer> entry : weights.entrySet()) {
+            int weight = Math.min(entry.getValue(), Byte.MAX_VALUE);
+            postings.get(entry.getKey()).add(doc, weight);
+            length += weight;
+        }
+        recipeIds[doc] = recipeId;
+        lengths[doc] = length;
+        totalLength += length;
+        return doc;
+    }
+
+    private void addWords(Map<Integer, Integer> weights, String text, int weight) {
+        for (String word : TextNormalizer.tokenize(text)) {
+            Integer term = wordTerms.get(word);
+            if (term == null) {
+                term = termId(RussianStemmer.stem(word));
+                wordTerms.put(word, term);
+            }
+            Integer current = weights.get(term);
+            weights.put(term, current == null ? weight : current + weight);
+        }
+    }
+
+    private int termId(String stem) {
+        Integer id = termIds.get(stem);
+        if (id != null) {
+            return id;
+        }
+        // После сборки новая основа встаёт на своё место по алфавиту
+        int sortedPos = sortedTerms != null ? lowerBound(stem) : -1;
+        int term = terms.size();
+        terms.add(stem);
+        postings.add(new Postings());
+        termIds.put(stem, term);
+        for (long gram : trigramsOf(stem)) {
+            IntSet set = trigrams.get(gram);
+            if (set == null) {
+                set = new IntSet(4);
+                trigrams.put(gram, set);
+            }
+            set.add(term);
+        }
+        if (sortedPos >= 0) {
+            if (term == sortedTerms.length) {
+                sortedTerms = Arrays.copyOf(sortedTerms, term * 2);
+            }
+            System.arraycopy(sortedTerms, sortedPos, sortedTerms, sortedPos + 1, term - sortedPos);
+            sortedTerms[sortedPos] = term;
+        }
+        return term;
+    }
+
+    /**
+     * Первая позиция в sortedTerms, где основа не меньше text
+     */
+    private int lowerBound(String text) {
+        int low = 0;
+        int high = terms.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terms.get(sortedTerms[mid]).compareTo(text) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    int size() {
+        return size - removed;
+    }
+
+    int getTermCount() {
+        return terms.size();
+    }
+
+    /**
+     * Рецепты, в которых нашлись все слова запроса.
+     * После deadline (System.nanoTime) слова ищутся только точно и по началу.
+     *
+     * @return null, если в строке нет слов
+     */
+    Matches search(String text, long deadline) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        List<String> words = new ArrayList<>(tokens);
+        words.removeAll(STOP_WORDS);
+        if (!words.isEmpty()) {
+            tokens = words;
+        }
+        if (tokens.size() > MAX_TOKENS) {
+            tokens = tokens.subList(0, MAX_TOKENS);
+        }
+
+        // BM25: знаменатель по длине рецепта — normBase + normScale * длина
+        int live = size();
+        float averageLength = live == 0 ? 1f : Math.max(1f, (float) totalLength / live);
+        float normBase = K1 * (1 - B);
+        float normScale = K1 * B / averageLength;
+
+        float[] scores = new float[size];
+        int[] found = new int[size];   // биты найденных слов запроса
+        int all = 0;
+        boolean complete = true;
+        for (int i = 0; i < tokens.size(); i++) {
+            Map<Integer, Float> candidates = new LinkedHashMap<>();
+            complete &= candidates(tokens.get(i), i == tokens.size() - 1, deadline, candidates);
+            if (candidates.isEmpty()) {
+                return new Matches(new int[0], new float[0], complete);
+            }
+            // Сначала лучшие варианты: рецепт засчитывается слову по первому совпадению
+            List<Map.Entry<Integer, Float>> ordered = new ArrayList<>(candidates.entrySet());
+            ordered.sort((a, b) -> Float.compare(b.getValue(), a.getValue()));
+
+            int bit = 1 << i;
+            for (Map.Entry<Integer, Float> candidate : ordered) {
+                Postings list = postings.get(candidate.getKey());
+                // В df входят и удалённые рецепты — до пересборки это небольшая погрешность
+                int df = list.size;
+                float idf = (float) Math.log(1 + Math.max(0, live - df + 0.5) / (df + 0.5));
+                float weight = candidate.getValue() * idf * (K1 + 1);
+                for (int p = 0; p < list.size; p++) {
+                    int doc = list.docs[p];
+                    if ((found[doc] & bit) == 0) {
+                        found[doc] |= bit;
+                        int tf = list.weights[p];
+                        scores[doc] += weight * tf / (tf + normBase + normScale * lengths[doc]);
+                    }
+                }
+            }
+            all |= bit;
+        }
+
+        int count = 0;
+        for (int doc = 0; doc < size; doc++) {
+            if (found[doc] == all && recipeIds[doc] != NO_RECIPE) {
+                count++;
+            }
+        }
+        int[] ids = new int[count];
+        float[] matchScores = new float[count];
+        int i = 0;
+        for (int doc = 0; doc < size; doc++) {
+            if (found[doc] == all && recipeIds[doc] != NO_RECIPE) {
+                ids[i] = recipeIds[doc];
+                matchScores[i] = scores[doc];
+                i++;
+            }
+        }
+        return new Matches(ids, matchScores, complete);
+    }
+
+    /**
+     * Основы для слова запроса с весами; false — не успели проверить опечатки
+     */
+    private boolean candidates(String token, boolean prefix, long deadline,
+                               Map<Integer, Float> out) {
+        String stem = RussianStemmer.stem(token);
+        Integer exact = termIds.get(stem);
+        if (exact != null) {
+            out.put(exact, TYPO_WEIGHT[0]);
+        }
+        if (prefix) {
+            for (int i = lowerBound(token), added = 0; i < terms.size() && added < MAX_PREFIX_TERMS
+                    && terms.get(sortedTerms[i]).startsWith(token); i++, added++) {
+                int t = sortedTerms[i];
+                if (!out.containsKey(t)) {
+                    out.put(t, PREFIX_WEIGHT);
+                }
+            }
+        }
+
+        // Короткие слова без опечаток: у "суп" слишком много соседей
+        int maxDistance = stem.length() >= 8 ? 2 : stem.length() >= 4 ? 1 : 0;
+        if (maxDistance == 0) {
+            return true;
+        }
+        if (System.nanoTime() > deadline) {
+            return false;
+        }
+
+        // Правка затрагивает не больше трёх триграмм, поэтому у похожей основы
+        // общих триграмм не меньше len - 3 * d
+        long[] grams = trigramsOf(stem);
+        int needed = Math.max(1, grams.length - 3 * maxDistance);
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (long gram : grams) {
+            IntSet list = trigrams.get(gram);
+            if (list != null) {
+                for (int i = 0; i < list.size(); i++) {
+                    int term = list.get(i);
+                    Integer count = shared.get(term);
+                    shared.put(term, count == null ? 1 : count + 1);
+                }
+            }
+        }
+        int checked = 0;
+        for (Map.Entry<Integer, Integer> entry : shared.entrySet()) {
+            int term = entry.getKey();
+            if (entry.getValue() < needed || out.containsKey(term)
+                    || Math.abs(terms.get(term).length() - stem.length()) > maxDistance) {
+                continue;
+            }
+            if ((++checked & 63) == 0 && System.nanoTime() > deadline) {
+                return false;
+            }
+            int distance = distance(stem, terms.get(term), maxDistance);
+            if (distance <= maxDistance) {
+                out.put(term, TYPO_WEIGHT[distance]);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Страница самых релевантных рецептов среди подходящих под фильтр.
+     * Упорядочиваются только offset + limit лучших; при равенстве — порядок добавления в индекс.
+     *
+     * @param ordinals номера найденных рецептов в {@link FacetIndex#ordinalsOf}
+     * @param matching карта подходящих рецептов из {@link FacetIndex}
+     */
+    static int[] page(Matches matches, int[] ordinals, long[] matching, int offset, int limit) {
+        int capacity = offset + limit;
+        if (capacity <= offset) {
+            return new int[0];
+        }
+        // Куча минимумов из лучших: релевантность в старших битах, порядок — в младших
+        long[] heap = new long[Math.min(capacity, matches.recipeIds.length)];
+        int size = 0;
+        for (int i = 0; i < matches.recipeIds.length && heap.length > 0; i++) {
+            if (!FacetIndex.isSet(matching, ordinals[i])) {
+                continue;
+            }
+            long key = ((long) Float.floatToIntBits(matches.scores[i]) << 32)
+                    | (Integer.MAX_VALUE - i);
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(heap, size++);
+            } else if (key > heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap, 0, size);
+        int[] ids = new int[Math.max(0, size - offset)];
+        for (int i = 0; i < ids.length; i++) {
+            int position = Integer.MAX_VALUE - (int) heap[size - 1 - offset - i];
+            ids[i] = matches.recipeIds[position];
+        }
+        return ids;
+    }
+
+    private static void siftUp(long[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= heap[i]) {
+                return;
+            }
+            long swap = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = swap;
+            i = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[i] <= heap[child]) {
+                return;
+            }
+            long swap = heap[child];
+            heap[child] = heap[i];
+            heap[i] = swap;
+            i = child;
+        }
+    }
+
+    private static long[] trigramsOf(String term) {
+        String padded = "$" + term + "$";
+        long[] grams = new long[Math.max(0, padded.length() - 2)];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16)
+                    | padded.charAt(i + 2);
+        }
+        return grams;
+    }
+
+    /**
+     * Расстояние Левенштейна; max + 1, как только оно заведомо больше max
+     */
+    static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1),
+                        previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], max + 1);
+    }
+}
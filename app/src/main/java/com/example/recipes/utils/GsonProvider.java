@@ -0,0 +1,22 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * Единый настроенный Gson для хранилища, кэша и Retrofit.
+ * Gson потокобезопасен, поэтому экземпляр создаётся один раз.
+ */
+public final class GsonProvider {
+
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Recipe.class, new RecipeTypeAdapter().nullSafe())
+            .create();
+
+    private GsonProvider() {}
+
+    public static Gson get() {
+        return GSON;
+    }
+}
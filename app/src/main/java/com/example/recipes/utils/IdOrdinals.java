@@ -0,0 +1,81 @@
+package com.example.recipes.utils;
+
+import java.util.Arrays;
+
+/**
+ * ID рецепта → его номер в индексе. ID хранятся по возрастанию, номера рядом,
+ * поиск бинарный, без упаковки в Integer. Вставка и удаление сдвигают хвост
+ * массивов, как в {@link IntSet}: для отдельных рецептов это дешевле пересборки.
+ */
+final class IdOrdinals {
+
+    private int[] ids;
+    private int[] ordinals;
+    private int size;
+
+    /**
+     * По первым count элементам массива "номер → ID"; ID не повторяются
+     */
+    IdOrdinals(int[] recipeIds, int count) {
+        long[] pairs = new long[count];
+        for (int ordinal = 0; ordinal < count; ordinal++) {
+            pairs[ordinal] = ((long) recipeIds[ordinal] << 32) | ordinal;
+        }
+        Arrays.sort(pairs);
+        ids = new int[Math.max(count, 1)];
+        ordinals = new int[ids.length];
+        for (int i = 0; i < count; i++) {
+            ids[i] = (int) (pairs[i] >> 32);
+            ordinals[i] = (int) pairs[i];
+        }
+        size = count;
+    }
+
+    /**
+     * Номер рецепта; -1, если его нет
+     */
+    int get(int recipeId) {
+        int pos = Arrays.binarySearch(ids, 0, size, recipeId);
+        return pos >= 0 ? ordinals[pos] : -1;
+    }
+
+    /**
+     * Добавить рецепт или сменить его номер
+     */
+    void put(int recipeId, int ordinal) {
+        int pos = Arrays.binarySearch(ids, 0, size, recipeId);
+        if (pos >= 0) {
+            ordinals[pos] = ordinal;
+            return;
+        }
+        pos = -pos - 1;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            ordinals = Arrays.copyOf(ordinals, size * 2);
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        System.arraycopy(ordinals, pos, ordinals, pos + 1, size - pos);
+        ids[pos] = recipeId;
+        ordinals[pos] = ordinal;
+        size++;
+    }
+
+    /**
+     * Убрать рецепт; возвращает его номер или -1, если его не было
+     */
+    int remove(int recipeId) {
+        int pos = Arrays.binarySearch(ids, 0, size, recipeId);
+        if (pos < 0) {
+            return -1;
+        }
+        int ordinal = ordinals[pos];
+        System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+        System.arraycopy(ordinals, pos + 1, ordinals, pos, size - pos - 1);
+        size--;
+        return ordinal;
+    }
+
+    int size() {
+        return size;
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.recipes.utils;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+import com.squareup.picasso.Cache;
+
+/**
+ * Кэш картинок в памяти для Picasso с подсчётом попаданий и вытеснений
+ * и возможностью ужаться по onTrimMemory.
+ */
+public class ImageMemoryCache implements Cache {
+
+    // Так Picasso отделяет URI от параметров в ключе кэша
+    private static final char KEY_SEPARATOR = '\n';
+
+    private final LruCache<String, Bitmap> cache;
+
+    public ImageMemoryCache(int maxBytes) {
+        cache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    @Override
+    public Bitmap get(String key) {
+        return cache.get(key);
+    }
+
+    @Override
+    public void set(String key, Bitmap bitmap) {
+        if (key == null || bitmap == null) {
+            return;
+        }
+        cache.put(key, bitmap);
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public int maxSize() {
+        return cache.maxSize();
+    }
+
+    @Override
+    public void clear() {
+        cache.evictAll();
+    }
+
+    @Override
+    public void clearKeyUri(String uri) {
+        for (String key : cache.snapshot().keySet()) {
+            if (key.startsWith(uri) && key.length() > uri.length()
+                    && key.charAt(uri.length()) == KEY_SEPARATOR) {
+                cache.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Ужаться до доли от максимального размера (0 — очистить)
+     */
+    public void trimTo(float fraction) {
+        cache.trimToSize((int) (cache.maxSize() * fraction));
+    }
+
+    public int hitCount() {
+        return cache.hitCount();
+    }
+
+    public int missCount() {
+        return cache.missCount();
+    }
+
+    public int evictionCount() {
+        return cache.evictionCount();
+    }
+}
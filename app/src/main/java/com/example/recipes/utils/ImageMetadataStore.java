@@ -0,0 +1,108 @@
+package com.example.recipes.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.util.Log;
+
+import com.example.recipes.models.Recipe;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Размеры и цвет превью картинок по URL.
+ *
+ * Заполняется при первом скачивании картинки (миниатюра строки или сохранение рецепта)
+ * и хранится в таблице image_meta, поэтому при следующем запуске строки
+ * сразу рисуют цветную заглушку нужной пропорции, ещё до загрузки картинки.
+ */
+public final class ImageMetadataStore {
+
+    private static final String TAG = "ImageMetadataStore";
+
+    private final RecipeDatabase database;
+    private final Map<String, int[]> byUrl = new ConcurrentHashMap<>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+
+    ImageMetadataStore(RecipeDatabase database) {
+        this.database = database;
+        writer.execute(() -> {
+            try {
+                Map<String, int[]> stored = database.loadImageMetadata();
+                for (Map.Entry<String, int[]> entry : stored.entrySet()) {
+                    byUrl.putIfAbsent(entry.getKey(), entry.getValue());
+                }
+                Log.d(TAG, "Загружено метаданных картинок: " + stored.size());
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Ошибка чтения метаданных картинок", e);
+            }
+        });
+    }
+
+    /**
+     * Дописать известные метаданные в рецепт, если их там нет
+     *
+     * @return true, если рецепт изменился
+     */
+    public boolean apply(Recipe recipe) {
+        if (!recipe.hasImage() || recipe.hasImageMetadata()) {
+            return false;
+        }
+        int[] meta = byUrl.get(recipe.getImageUrl());
+        if (meta == null) {
+            return false;
+        }
+        recipe.setImageWidth(meta[0]);
+        recipe.setImageHeight(meta[1]);
+        recipe.setImageColor(meta[2]);
+        return true;
+    }
+
+    public int apply(List<Recipe> recipes) {
+        int applied = 0;
+        for (Recipe recipe : recipes) {
+            if (apply(recipe)) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    public void put(String url, int width, int height, int color) {
+        if (url == null || width <= 0 || height <= 0) {
+            return;
+        }
+        int[] meta = {width, height, color};
+        int[] previous = byUrl.put(url, meta);
+        if (previous != null && previous[0] == width && previous[1] == height
+                && previous[2] == color) {
+            return;
+        }
+        writer.execute(() -> {
+            try {
+                database.putImageMetadata(url, width, height, color);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Ошибка записи метаданных " + url, e);
+            }
+        });
+    }
+
+    public int size() {
+        return byUrl.size();
+    }
+
+    /**
+     * Средний цвет картинки (непрозрачный, поэтому никогда не равен 0 — «неизвестно»)
+     */
+    static int previewColor(Bitmap bitmap) {
+        Bitmap pixel = Bitmap.createScaledBitmap(bitmap, 1, 1, true);
+        int color = pixel.getPixel(0, 0);
+        if (pixel != bitmap) {
+            pixel.recycle();
+        }
+        return Color.rgb(Color.red(color), Color.green(color), Color.blue(color));
+    }
+}
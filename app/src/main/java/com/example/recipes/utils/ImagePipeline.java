@@ -0,0 +1,222 @@
+package com.example.recipes.utils;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import com.example.recipes.models.Recipe;
+import com.squareup.picasso.OkHttp3Downloader;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * Настроенный Picasso для всего приложения.
+ *
+ * Память: LRU по размеру битмапов, 1/7 от getMemoryClass(); ужимается по onTrimMemory.
+ * Диск: оригиналы в HTTP-кэше OkHttp и отдельно готовые миниатюры строк списка
+ * (см. {@link ThumbnailRequestHandler}), обе папки ограничены по размеру.
+ * Размеры и цвет превью картинок — в {@link ImageMetadataStore}, чтобы строки
+ * рисовали заглушку сразу.
+ */
+public final class ImagePipeline {
+
+    private static final String TAG = "ImagePipeline";
+    private static final long ORIGINALS_DISK_BYTES = 50L * 1024 * 1024;
+    private static final long THUMBNAILS_DISK_BYTES = 20L * 1024 * 1024;
+    // Для цвета превью хватает картинки примерно такого размера
+    private static final int PREVIEW_DECODE_SIZE = 32;
+
+    private static ImagePipeline instance;
+
+    private final Picasso picasso;
+    private final ImageMemoryCache memoryCache;
+    private final ThumbnailRequestHandler thumbnails;
+    private final ImageMetadataStore metadata;
+    private final OkHttpClient client;
+    private final ExecutorService metadataExecutor = Executors.newSingleThreadExecutor();
+
+    public static synchronized ImagePipeline get(Context context) {
+        if (instance == null) {
+            instance = new ImagePipeline(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ImagePipeline(Context appContext) {
+        ActivityManager activityManager =
+                (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClassMb = activityManager.getMemoryClass();
+        memoryCache = new ImageMemoryCache(memoryClassMb * 1024 * 1024 / 7);
+
+        File cacheDir = appContext.getCacheDir();
+        metadata = new ImageMetadataStore(RecipeDatabase.get(appContext));
+        client = new OkHttpClient.Builder()
+                .cache(new Cache(new File(cacheDir, "images"), ORIGINALS_DISK_BYTES))
+                .connectTimeout(15, TimeUnit.SECONDS)
+                .readTimeout(20, TimeUnit.SECONDS)
+                .build();
+        thumbnails = new ThumbnailRequestHandler(client,
+                new File(cacheDir, "thumbnails"), THUMBNAILS_DISK_BYTES, metadata);
+
+        picasso = new Picasso.Builder(appContext)
+                .memoryCache(memoryCache)
+                .downloader(new OkHttp3Downloader(client))
+                .addRequestHandler(thumbnails)
+                .build();
+        try {
+            // Чтобы и случайный Picasso.get() шёл через ту же конфигурацию
+            Picasso.setSingletonInstance(picasso);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Picasso.get() уже создан с настройками по умолчанию");
+        }
+
+        appContext.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                trimMemory(level);
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                trimMemory(TRIM_MEMORY_COMPLETE);
+            }
+        });
+        Log.d(TAG, "Кэш картинок в памяти: " + memoryCache.maxSize() / 1024 + " КБ");
+    }
+
+    public Picasso picasso() {
+        return picasso;
+    }
+
+    /**
+     * Миниатюра для строки списка ровно размера width x height
+     */
+    public RequestCreator thumbnail(String url, int width, int height) {
+        return picasso.load(ThumbnailRequestHandler.uriFor(url, width, height));
+    }
+
+    /**
+     * Полноразмерная картинка (экран рецепта)
+     */
+    public RequestCreator full(String url) {
+        return picasso.load(url);
+    }
+
+    /**
+     * Дописать в рецепты уже известные размеры и цвет превью картинок
+     */
+    public void applyMetadata(List<Recipe> recipes) {
+        metadata.apply(recipes);
+    }
+
+    /**
+     * Узнать размеры и цвет превью картинки рецепта (например, сразу после сохранения).
+     * Оригинал скачивается в фоне через тот же дисковый кэш, что и для показа.
+     * onResolved вызывается в фоновом потоке и только если рецепт получил метаданные.
+     */
+    public void resolveMetadata(Recipe recipe, Runnable onResolved) {
+        if (!recipe.hasImage() || recipe.hasImageMetadata()) {
+            return;
+        }
+        if (metadata.apply(recipe)) {
+            onResolved.run();
+            return;
+        }
+        String url = recipe.getImageUrl();
+        metadataExecutor.execute(() -> {
+            try {
+                byte[] bytes = download(url);
+                BitmapFactory.Options options = new BitmapFactory.Options();
+                options.inJustDecodeBounds = true;
+                BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+                int width = options.outWidth;
+                int height = options.outHeight;
+                if (width <= 0 || height <= 0) {
+                    return;
+                }
+                options.inSampleSize = ThumbnailRequestHandler.sampleSize(width, height,
+                        PREVIEW_DECODE_SIZE, PREVIEW_DECODE_SIZE);
+                options.inJustDecodeBounds = false;
+                Bitmap small = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+                if (small == null) {
+                    return;
+                }
+                int color = ImageMetadataStore.previewColor(small);
+                small.recycle();
+                metadata.put(url, width, height, color);
+                if (metadata.apply(recipe)) {
+                    onResolved.run();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Не удалось получить метаданные " + url, e);
+            }
+        });
+    }
+
+    private byte[] download(String url) throws IOException {
+        Call call = client.newCall(new Request.Builder().url(url).build());
+        try (Response response = call.execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code() + " для " + url);
+            }
+            return body.bytes();
+        }
+    }
+
+    void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            memoryCache.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimTo(0.5f);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            // Список не виден: оставляем большую часть для быстрого возврата
+            memoryCache.trimTo(0.75f);
+        }
+        Log.d(TAG, "onTrimMemory(" + level + "): " + getStats());
+    }
+
+    public int getHitCount() {
+        return memoryCache.hitCount();
+    }
+
+    public int getMissCount() {
+        return memoryCache.missCount();
+    }
+
+    public int getEvictionCount() {
+        return memoryCache.evictionCount();
+    }
+
+    public String getStats() {
+        return "память " + memoryCache.size() / 1024 + "/" + memoryCache.maxSize() / 1024
+                + " КБ, попаданий " + getHitCount() + ", промахов " + getMissCount()
+                + ", вытеснено " + getEvictionCount()
+                + ", миниатюры на диске " + thumbnails.getSizeOnDisk() / 1024 + " КБ"
+                + ", метаданных картинок " + metadata.size();
+    }
+}
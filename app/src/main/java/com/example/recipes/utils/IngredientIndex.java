@@ -0,0 +1,207 @@
+package com.example.recipes.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Обратный индекс «ингредиент → рецепты» в виде битовых карт.
+ *
+ * Рецепты пронумерованы плотно (ordinal — позиция ID в отсортированном массиве),
+ * у каждого ингредиента своя карта long[] по этим номерам. «Есть и морковь, и лук» —
+ * AND карт, число совпадений — popcount; ранжирование по запасам — один проход
+ * по картам ингредиентов из запаса. Строится из таблицы recipe_ingredients
+ * ({@link RecipeDatabase#loadIngredientIndex()}) и после этого не меняется.
+ */
+public final class IngredientIndex {
+
+    /**
+     * Рецепт с долей ингредиентов, которые уже есть
+     */
+    public static final class Match {
+        public final int recipeId;
+        public final int matched;
+        public final int total;
+
+        Match(int recipeId, int matched, int total) {
+            this.recipeId = recipeId;
+            this.matched = matched;
+            this.total = total;
+        }
+
+        public int getMissing() {
+            return total - matched;
+        }
+
+        public float getCoverage() {
+            return total == 0 ? 0f : (float) matched / total;
+        }
+    }
+
+    private final int[] recipeIds;          // ordinal → ID рецепта, по возрастанию
+    private final int[] ingredientCounts;   // ordinal → сколько ингредиентов в рецепте
+    private final String[] keys;            // ключи ингредиентов по алфавиту
+    private final int[] keyIds;             // ID ингредиента для keys[i]
+    private final Map<Integer, long[]> postings;
+    private final int words;
+
+    IngredientIndex(int[] recipeIds, int[] ingredientCounts, String[] keys, int[] keyIds,
+                    Map<Integer, long[]> postings) {
+        this.recipeIds = recipeIds;
+        this.ingredientCounts = ingredientCounts;
+        this.keys = keys;
+        this.keyIds = keyIds;
+        this.postings = postings;
+        this.words = wordsFor(recipeIds.length);
+    }
+
+    static int wordsFor(int recipeCount) {
+        return (recipeCount + 63) >>> 6;
+    }
+
+    public int getRecipeCount() {
+        return recipeIds.length;
+    }
+
+    public int getIngredientCount() {
+        return keys.length;
+    }
+
+    /**
+     * ID ингредиентов для слова из запроса: точное совпадение ключа
+     * и уточнения ("сыр" → "сыр", "сыр пармезан")
+     */
+    public int[] resolve(String name) {
+        String key = IngredientParser.key(name);
+        if (key.isEmpty()) {
+            return new int[0];
+        }
+        int from = Arrays.binarySearch(keys, key);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        String prefix = key + " ";
+        int to = from;
+        while (to < keys.length && (keys[to].equals(key) || keys[to].startsWith(prefix))) {
+            to++;
+        }
+        return Arrays.copyOfRange(keyIds, from, to);
+    }
+
+    /**
+     * Рецепты, в которых есть все перечисленные ингредиенты (ID по возрастанию)
+     */
+    public int[] recipesWithAll(List<String> names) {
+        return names.isEmpty() ? new int[0] : toRecipeIds(intersect(names));
+    }
+
+    /**
+     * Сколько рецептов содержат все ингредиенты (без выборки ID)
+     */
+    public int countWithAll(List<String> names) {
+        if (names.isEmpty()) {
+            return 0;
+        }
+        int count = 0;
+        for (long word : intersect(names)) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Рецепты, в которых есть хоть что-то из запасов: сначала те,
+     * где меньше всего не хватает, затем с большей долей покрытия
+     */
+    public List<Match> rankByPantry(List<String> pantry, int limit) {
+        // Разные слова запаса могут дать один и тот же ингредиент — считаем его раз
+        IntSet seen = new IntSet();
+        int[] matched = new int[recipeIds.length];
+        for (String name : pantry) {
+            for (int ingredientId : resolve(name)) {
+                long[] posting = postings.get(ingredientId);
+                if (posting == null || !seen.add(ingredientId)) {
+                    continue;
+                }
+                for (int w = 0; w < posting.length; w++) {
+                    long word = posting[w];
+                    while (word != 0) {
+                        int bit = Long.numberOfTrailingZeros(word);
+                        matched[(w << 6) + bit]++;
+                        word &= word - 1;
+                    }
+                }
+            }
+        }
+        if (seen.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        for (int ordinal = 0; ordinal < matched.length; ordinal++) {
+            if (matched[ordinal] > 0) {
+                matches.add(new Match(recipeIds[ordinal], matched[ordinal],
+                        ingredientCounts[ordinal]));
+            }
+        }
+        Collections.sort(matches, (a, b) -> {
+            if (a.getMissing() != b.getMissing()) {
+                return Integer.compare(a.getMissing(), b.getMissing());
+            }
+            int byCoverage = Float.compare(b.getCoverage(), a.getCoverage());
+            return byCoverage != 0 ? byCoverage : Integer.compare(a.recipeId, b.recipeId);
+        });
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * AND по словам запроса; каждое слово — OR своих ингредиентов
+     */
+    private long[] intersect(List<String> names) {
+        long[] result = null;
+        for (String name : names) {
+            long[] any = union(resolve(name));
+            if (result == null) {
+                result = any;
+            } else {
+                for (int w = 0; w < words; w++) {
+                    result[w] &= any[w];
+                }
+            }
+        }
+        return result;
+    }
+
+    private long[] union(int[] ingredientIds) {
+        long[] result = new long[words];
+        for (int ingredientId : ingredientIds) {
+            long[] posting = postings.get(ingredientId);
+            if (posting != null) {
+                for (int w = 0; w < words; w++) {
+                    result[w] |= posting[w];
+                }
+            }
+        }
+        return result;
+    }
+
+    private int[] toRecipeIds(long[] bitmap) {
+        int count = 0;
+        for (long word : bitmap) {
+            count += Long.bitCount(word);
+        }
+        int[] ids = new int[count];
+        int i = 0;
+        for (int w = 0; w < bitmap.length; w++) {
+            long word = bitmap[w];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                ids[i++] = recipeIds[(w << 6) + bit];
+                word &= word - 1;
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Ingredient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Разбор свободной строки ингредиента на имя, количество и единицу.
+ *
+ * Понимает "морковь 2 шт", "Мука — 200 г", "1/2 ч.л. соли", "сахар 1,5 стакана",
+ * "соль по вкусу". Чего не понял, оставляет в имени; падежи не приводятся
+ * ("муки" и "мука" — разные ключи).
+ */
+public final class IngredientParser {
+
+    private static final String QUANTITY = "\\d+\\s+\\d+/\\d+|\\d+/\\d+|\\d+(?:[.,]\\d+)?|[½¼¾⅓⅔]";
+    private static final String UNIT = "ст\\.?\\s*л\\.?|столов\\p{L}*\\s+ложк\\p{L}*"
+            + "|ч\\.?\\s*л\\.?|чайн\\p{L}*\\s+ложк\\p{L}*"
+            + "|стакан\\p{L}*|кг|килограмм\\p{L}*|гр?\\.?|грамм\\p{L}*"
+            + "|мл|миллилитр\\p{L}*|л|литр\\p{L}*|шт\\.?|штук\\p{L}*"
+            + "|зубч\\p{L}*|щепотк\\p{L}*|пуч\\p{L}*|банк\\p{L}*|упаков\\p{L}*"
+            + "|ломтик\\p{L}*|дол\\p{L}*";
+
+    // Количество (диапазон "2-3" — берётся первое число) и необязательная единица
+    private static final Pattern AMOUNT = Pattern.compile(
+            "(?<![\\p{L}\\d])(" + QUANTITY + ")(?:\\s*[-–—]\\s*\\d+(?:[.,]\\d+)?)?"
+                    + "\\s*(?:(" + UNIT + ")(?!\\p{L}))?",
+            Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final Pattern NO_AMOUNT = Pattern.compile(
+            "по вкусу|для подачи|по желанию", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+    private static final String TRIM_CHARS = " \t-–—:,.;()";
+
+    private IngredientParser() {}
+
+    public static Ingredient parse(String raw) {
+        String text = raw == null ? "" : raw.trim();
+        double quantity = Double.NaN;
+        String unit = null;
+
+        String rest = text;
+        Matcher amount = AMOUNT.matcher(text);
+        if (amount.find()) {
+            quantity = parseQuantity(amount.group(1));
+            unit = canonicalUnit(amount.group(2));
+            rest = text.substring(0, amount.start()) + " " + text.substring(amount.end());
+        }
+        rest = NO_AMOUNT.matcher(rest).replaceAll(" ");
+
+        String name = trim(rest.replaceAll("\\s+", " "));
+        if (name.isEmpty()) {
+            name = text;
+        }
+        return new Ingredient(text, name, key(name), quantity, unit);
+    }
+
+    public static List<Ingredient> parseAll(List<String> lines) {
+        List<Ingredient> ingredients = new ArrayList<>();
+        if (lines != null) {
+            for (String line : lines) {
+                Ingredient ingredient = parse(line);
+                if (!ingredient.getKey().isEmpty()) {
+                    ingredients.add(ingredient);
+                }
+            }
+        }
+        return ingredients;
+    }
+
+    /**
+     * Нормализованное имя: слова в нижнем регистре через пробел, без чисел
+     */
+    public static String key(String name) {
+        List<String> words = new ArrayList<>();
+        for (String token : TextNormalizer.tokenize(name)) {
+            if (!isNumber(token)) {
+                words.add(token);
+            }
+        }
+        return String.join(" ", words);
+    }
+
+    static double parseQuantity(String text) {
+        switch (text) {
+            case "½":
+                return 0.5;
+            case "¼":
+                return 0.25;
+            case "¾":
+                return 0.75;
+            case "⅓":
+                return 1.0 / 3;
+            case "⅔":
+                return 2.0 / 3;
+        }
+        String[] parts = text.trim().split("\\s+");
+        double whole = 0;
+        String fraction = parts[parts.length - 1];
+        if (parts.length == 2) {
+            whole = Double.parseDouble(parts[0]);
+        }
+        int slash = fraction.indexOf('/');
+        if (slash < 0) {
+            return whole + Double.parseDouble(fraction.replace(',', '.'));
+        }
+        double denominator = Double.parseDouble(fraction.substring(slash + 1));
+        if (denominator == 0) {
+            return Double.NaN;
+        }
+        return whole + Double.parseDouble(fraction.substring(0, slash)) / denominator;
+    }
+
+    static String canonicalUnit(String unit) {
+        if (unit == null) {
+            return null;
+        }
+        String u = unit.toLowerCase(Locale.ROOT).replace(" ", "");
+        if (u.startsWith("стакан")) {
+            return "стакан";
+        }
+        if (u.startsWith("ст")) {
+            return "ст. л.";
+        }
+        if (u.startsWith("ч")) {
+            return "ч. л.";
+        }
+        if (u.startsWith("кг") || u.startsWith("кило")) {
+            return "кг";
+        }
+        if (u.startsWith("мл") || u.startsWith("милли")) {
+            return "мл";
+        }
+        if (u.startsWith("г")) {
+            return "г";
+        }
+        if (u.startsWith("л")) {
+            return u.startsWith("лом") ? "ломтик" : "л";
+        }
+        if (u.startsWith("шт")) {
+            return "шт";
+        }
+        if (u.startsWith("зубч")) {
+            return "зубчик";
+        }
+        if (u.startsWith("щеп")) {
+            return "щепотка";
+        }
+        if (u.startsWith("пуч")) {
+            return "пучок";
+        }
+        if (u.startsWith("банк")) {
+            return "банка";
+        }
+        if (u.startsWith("упак")) {
+            return "упаковка";
+        }
+        if (u.startsWith("дол")) {
+            return "долька";
+        }
+        return u;
+    }
+
+    private static boolean isNumber(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String trim(String text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && TRIM_CHARS.indexOf(text.charAt(start)) >= 0) {
+            start++;
+        }
+        while (end > start && TRIM_CHARS.indexOf(text.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return text.substring(start, end);
+    }
+}
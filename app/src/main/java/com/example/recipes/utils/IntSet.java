@@ -0,0 +1,168 @@
+package com.example.recipes.utils;
+
+import java.util.Arrays;
+
+/**
+ * Компактное множество int на отсортированном массиве.
+ * Без упаковки в Integer: поиск бинарный, обход по порядку.
+ */
+public class IntSet {
+
+    private int[] values;
+    private int size;
+
+    public IntSet() {
+        this(8);
+    }
+
+    public IntSet(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    public IntSet(IntSet other) {
+        values = Arrays.copyOf(other.values, Math.max(other.size, 1));
+        size = other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Значение по порядковому номеру (по возрастанию)
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    /**
+     * Добавить значение, false если уже есть
+     */
+    public boolean add(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos >= 0) {
+            return false;
+        }
+        pos = -pos - 1;
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        System.arraycopy(values, pos, values, pos + 1, size - pos);
+        values[pos] = value;
+        size++;
+        return true;
+    }
+
+    /**
+     * Удалить значение, false если его не было
+     */
+    public boolean remove(int value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) {
+            return false;
+        }
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Объединение слиянием: O(n + m)
+     */
+    public void addAll(IntSet other) {
+        if (other.size == 0) {
+            return;
+        }
+        int[] merged = new int[size + other.size];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size && j < other.size) {
+            int x = values[i];
+            int y = other.values[j];
+            if (x == y) {
+                merged[k++] = x;
+                i++;
+                j++;
+            } else if (x < y) {
+                merged[k++] = x;
+                i++;
+            } else {
+                merged[k++] = y;
+                j++;
+            }
+        }
+        while (i < size) {
+            merged[k++] = values[i++];
+        }
+        while (j < other.size) {
+            merged[k++] = other.values[j++];
+        }
+        values = merged;
+        size = k;
+    }
+
+    /**
+     * Пересечение на месте: O(n + m)
+     */
+    public void retainAll(IntSet other) {
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size && j < other.size) {
+            int x = values[i];
+            int y = other.values[j];
+            if (x == y) {
+                values[k++] = x;
+                i++;
+                j++;
+            } else if (x < y) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        size = k;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Сериализация в одну строку "1,5,1002"
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(size * 5);
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+
+    public static IntSet decode(String encoded) {
+        IntSet set = new IntSet();
+        if (encoded == null || encoded.isEmpty()) {
+            return set;
+        }
+        for (String part : encoded.split(",")) {
+            try {
+                set.add(Integer.parseInt(part));
+            } catch (NumberFormatException ignored) {
+                // пропускаем битые значения
+            }
+        }
+        return set;
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.recipes.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.recipes.models.Recipe;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * Хранилище "снимок + журнал".
+ *
+ * <pre>
+ * recipes.snap     — снимок в формате {@link BinaryRecipeFormat} (с избранным)
+ * recipes.journal  — записи [int len][int crc32][byte op][payload]
+ *                    PUT: рецепт, DELETE: int id, FAVORITE: int id, byte 0/1
+ * </pre>
+ *
+ * Каждое изменение дописывается в конец журнала и сбрасывается на диск,
+ * без перезаписи всего каталога. При старте журнал проигрывается поверх
+ * снимка; оборванная последняя запись (плохой crc) отрезается.
+ * Когда журнал вырастает, он переименовывается в recipes.journal.old,
+ * а снимок пересобирается в фоне в recipes.snap.next и подменяет старый.
+ * Записи идемпотентны, поэтому падение на любом шаге сжатия ничего не теряет.
+ */
+public class JournalRecipeStore implements RecipeStore {
+
+    private static final String TAG = "JournalRecipeStore";
+    private static final String SNAPSHOT_NAME = "recipes.snap";
+    private static final String JOURNAL_NAME = "recipes.journal";
+    private static final String OLD_JOURNAL_NAME = "recipes.journal.old";
+    private static final String NEXT_SNAPSHOT_NAME = "recipes.snap.next";
+
+    /** Размер журнала, после которого он сворачивается в снимок */
+    public static final long DEFAULT_COMPACT_THRESHOLD = 256 * 1024;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_FAVORITE = 3;
+    private static final int HEADER_SIZE = 8;
+
+    private final File snapshotFile;
+    private final File journalFile;
+    private final File oldJournalFile;
+    private final File nextSnapshotFile;
+    private final long compactThreshold;
+
+    private final Map<Integer, Recipe> recipes = new LinkedHashMap<>();
+    private IntSet favorites = new IntSet();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor();
+    private boolean compacting;
+    // Растёт при clear(): снимок, начатый до очистки, не должен её пережить
+    private int generation;
+
+    // Журнал открывается при первой записи
+    private FileOutputStream journalOut;
+    private FileChannel journalChannel;
+    private final ByteArrayOutputStream entryBytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream entry = new DataOutputStream(entryBytes);
+    private final CRC32 crc = new CRC32();
+
+    public JournalRecipeStore(Context context) {
+        this(context.getFilesDir(), DEFAULT_COMPACT_THRESHOLD);
+    }
+
+    public JournalRecipeStore(File dir, long compactThreshold) {
+        this.snapshotFile = new File(dir, SNAPSHOT_NAME);
+        this.journalFile = new File(dir, JOURNAL_NAME);
+        this.oldJournalFile = new File(dir, OLD_JOURNAL_NAME);
+        this.nextSnapshotFile = new File(dir, NEXT_SNAPSHOT_NAME);
+        this.compactThreshold = compactThreshold;
+    }
+
+    /**
+     * Есть ли на диске снимок или журнал этого формата
+     */
+    public static boolean hasData(Context context) {
+        File dir = context.getFilesDir();
+        return new File(dir, SNAPSHOT_NAME).exists() || new File(dir, JOURNAL_NAME).exists()
+                || new File(dir, OLD_JOURNAL_NAME).exists();
+    }
+
+    @Override
+    public synchronized List<Recipe> loadAll() {
+        recipes.clear();
+        favorites = new IntSet();
+        try {
+            for (Recipe recipe : BinaryRecipeFormat.read(snapshotFile, favorites)) {
+                recipes.put(recipe.getId(), recipe);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Не удалось прочитать снимок " + snapshotFile, e);
+        }
+        // Сначала журнал прерванного сжатия, затем текущий
+        replay(oldJournalFile);
+        replay(journalFile);
+
+        if (oldJournalFile.exists() || journalFile.length() > compactThreshold) {
+            scheduleCompaction();
+        }
+        return new ArrayList<>(recipes.values());
+    }
+
+    @Override
+    public synchronized boolean put(Recipe recipe) {
+        try {
+            entryBytes.reset();
+            entry.writeByte(OP_PUT);
+            BinaryRecipeFormat.writeRecipe(entry, recipe);
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка кодирования рецепта " + recipe.getId(), e);
+            return false;
+        }
+        if (!append()) {
+            return false;
+        }
+        recipes.put(recipe.getId(), recipe);
+        compactIfNeeded();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean remove(int recipeId) {
+        if (!recipes.containsKey(recipeId)) {
+            return false;
+        }
+        try {
+            entryBytes.reset();
+            entry.writeByte(OP_DELETE);
+            entry.writeInt(recipeId);
+        } catch (IOException e) {
+            return false;
+        }
+        if (!append()) {
+            return false;
+        }
+        recipes.remove(recipeId);
+        compactIfNeeded();
+        return true;
+    }
+
+    @Override
+    public boolean storesFavorites() {
+        return true;
+    }
+
+    @Override
+    public synchronized IntSet loadFavorites() {
+        return new IntSet(favorites);
+    }
+
+    @Override
+    public synchronized boolean putFavorite(int recipeId, boolean favorite) {
+        try {
+            entryBytes.reset();
+            entry.writeByte(OP_FAVORITE);
+            entry.writeInt(recipeId);
+            entry.writeByte(favorite ? 1 : 0);
+        } catch (IOException e) {
+            return false;
+        }
+        if (!append()) {
+            return false;
+        }
+        if (favorite) {
+            favorites.add(recipeId);
+        } else {
+            favorites.remove(recipeId);
+        }
+        compactIfNeeded();
+        return true;
+    }
+
+    @Override
+    public synchronized void clear() {
+        recipes.clear();
+        favorites = new IntSet();
+        closeJournal();
+        // Сразу, а не после сжатия: следующий put уже пишет в новый журнал.
+        // Идущее сжатие увидит другое поколение и свой снимок выбросит.
+        generation++;
+        snapshotFile.delete();
+        journalFile.delete();
+        oldJournalFile.delete();
+    }
+
+    @Override
+    public long getSizeOnDisk() {
+        return snapshotFile.length() + journalFile.length() + oldJournalFile.length();
+    }
+
+    /**
+     * Начатое сжатие дописывается, новых не будет
+     */
+    @Override
+    public synchronized void close() {
+        closeJournal();
+        compactor.shutdown();
+    }
+
+    /**
+     * Дописать подготовленную в entryBytes запись и сбросить её на диск
+     */
+    private boolean append() {
+        byte[] payload = entryBytes.toByteArray();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        buffer.flip();
+        try {
+            openJournal();
+            while (buffer.hasRemaining()) {
+                journalChannel.write(buffer);
+            }
+            // Только данные: метаданные файла для восстановления не нужны
+            journalChannel.force(false);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка записи журнала", e);
+            closeJournal();
+            return false;
+        }
+    }
+
+    /**
+     * Проиграть журнал; всё после первой испорченной записи отрезается
+     */
+    private void replay(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // читаем до конца
+            }
+            buffer.flip();
+
+            byte[] scratch = new byte[256];
+            int applied = 0;
+            long validEnd = 0;
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.array(), buffer.position(), length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                int end = buffer.position() + length;
+                apply(buffer, end, scratch);
+                buffer.position(end);
+                validEnd = end;
+                applied++;
+            }
+
+            if (validEnd < channel.size()) {
+                Log.w(TAG, file.getName() + ": оборванный хвост "
+                        + (channel.size() - validEnd) + " байт отрезан");
+                channel.truncate(validEnd);
+            }
+            Log.d(TAG, file.getName() + ": проиграно записей " + applied);
+        } catch (IOException | RuntimeException e) {
+            Log.e(TAG, "Не удалось проиграть " + file, e);
+        }
+    }
+
+    private void apply(ByteBuffer in, int end, byte[] scratch) {
+        byte op = in.get();
+        switch (op) {
+            case OP_PUT:
+                Recipe recipe = BinaryRecipeFormat.readRecipe(in, end, scratch);
+                recipes.put(recipe.getId(), recipe);
+                break;
+            case OP_DELETE:
+                recipes.remove(in.getInt());
+                break;
+            case OP_FAVORITE:
+                int id = in.getInt();
+                if (in.get() != 0) {
+                    favorites.add(id);
+                } else {
+                    favorites.remove(id);
+                }
+                break;
+            default:
+                Log.w(TAG, "Неизвестная запись журнала: " + op);
+                break;
+        }
+    }
+
+    /**
+     * Проверяется после изменения в памяти, чтобы снимок его уже содержал
+     */
+    private void compactIfNeeded() {
+        if (journalFile.length() > compactThreshold) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * Свернуть журнал в снимок. Под блокировкой только переименование журнала
+     * и копия состояния; сам снимок пишется в фоне.
+     */
+    private void scheduleCompaction() {
+        if (compacting || compactor.isShutdown()) {
+            return;
+        }
+        compacting = true;
+        // Если .old остался от прерванного сжатия, текущий журнал не трогаем:
+        // снимок всё равно включает оба, а журнал свернётся в следующий раз
+        if (!oldJournalFile.exists() && journalFile.exists()) {
+            closeJournal();
+            if (!journalFile.renameTo(oldJournalFile)) {
+                Log.e(TAG, "Не удалось переименовать журнал");
+                compacting = false;
+                return;
+            }
+        }
+        final List<Recipe> snapshot = new ArrayList<>(recipes.values());
+        final IntSet snapshotFavorites = new IntSet(favorites);
+        final int snapshotGeneration = generation;
+
+        compactor.execute(() -> {
+            try {
+                BinaryRecipeFormat.write(nextSnapshotFile, snapshot, snapshotFavorites);
+                synchronized (JournalRecipeStore.this) {
+                    if (snapshotGeneration != generation) {
+                        // Хранилище очистили, пока писался снимок
+                        nextSnapshotFile.delete();
+                        return;
+                    }
+                    if (!nextSnapshotFile.renameTo(snapshotFile)) {
+                        throw new IOException("Не удалось заменить " + snapshotFile);
+                    }
+                    oldJournalFile.delete();
+                }
+                Log.d(TAG, "Журнал свёрнут в снимок: " + snapshot.size() + " рецептов, "
+                        + snapshotFile.length() + " байт");
+            } catch (IOException e) {
+                // .old остаётся и будет проигран при следующем старте
+                Log.e(TAG, "Не удалось записать снимок", e);
+                nextSnapshotFile.delete();
+            } finally {
+                synchronized (JournalRecipeStore.this) {
+                    compacting = false;
+                }
+            }
+        });
+    }
+
+    /**
+     * Дождаться сжатий, поставленных до вызова: задачи исполнителя идут по очереди
+     */
+    @VisibleForTesting
+    void awaitCompaction() throws InterruptedException, ExecutionException {
+        compactor.submit(() -> { }).get();
+    }
+
+    private void openJournal() throws IOException {
+        if (journalChannel == null) {
+            journalOut = new FileOutputStream(journalFile, true);
+            journalChannel = journalOut.getChannel();
+        }
+    }
+
+    private void closeJournal() {
+        if (journalOut != null) {
+            try {
+                journalOut.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Ошибка закрытия журнала", e);
+            }
+            journalOut = null;
+            journalChannel = null;
+        }
+    }
+}
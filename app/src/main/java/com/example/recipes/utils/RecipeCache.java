@@ -0,0 +1,150 @@
+package com.example.recipes.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.recipes.models.Recipe;
+import com.example.recipes.models.RecipeResponse;
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Дисковый кэш последнего ответа API.
+ * Список показывается из кэша сразу, а сеть нужна только когда кэш устарел.
+ * Методы read/write выполняют файловый ввод-вывод — вызывать не из UI-потока.
+ *
+ * Файл один на процесс, а экземпляров несколько (экран, RecipeSyncWorker),
+ * поэтому чтение и запись идут под общим замком класса.
+ */
+public class RecipeCache {
+
+    private static final String TAG = "RecipeCache";
+    private static final String FILE_NAME = "recipe_cache.json";
+    public static final long DEFAULT_TTL_MS = 15 * 60 * 1000L;
+
+    private static final Object LOCK = new Object();
+
+    private final File file;
+    private final Gson gson;
+    private long ttlMs = DEFAULT_TTL_MS;
+
+    public RecipeCache(Context context) {
+        this.file = new File(context.getFilesDir(), FILE_NAME);
+        this.gson = GsonProvider.get();
+    }
+
+    public long getTtlMs() {
+        return ttlMs;
+    }
+
+    public void setTtlMs(long ttlMs) {
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * Возраст кэша в миллисекундах (Long.MAX_VALUE, если кэша нет)
+     */
+    public long getAgeMs() {
+        if (!file.exists()) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(0, System.currentTimeMillis() - file.lastModified());
+    }
+
+    public boolean isFresh() {
+        return getAgeMs() < ttlMs;
+    }
+
+    /**
+     * Данные подтверждены сервером (304) — продлить срок жизни кэша
+     */
+    public void touch() {
+        synchronized (LOCK) {
+            if (file.exists() && !file.setLastModified(System.currentTimeMillis())) {
+                Log.w(TAG, "Не удалось обновить время кэша");
+            }
+        }
+    }
+
+    /**
+     * Прочитать кэш (null, если его нет или он повреждён)
+     */
+    public RecipeResponse read() {
+        List<Recipe> recipes = new ArrayList<>();
+        RecipeResponse response = read(recipes::add);
+        if (response != null) {
+            response.setRecipes(recipes);
+        }
+        return response;
+    }
+
+    /**
+     * Потоковое чтение: рецепты отдаются в sink по мере разбора файла.
+     * Возвращает остальные поля ответа или null, если кэша нет или он повреждён.
+     */
+    public RecipeResponse read(RecipeStreamReader.RecipeSink sink) {
+        synchronized (LOCK) {
+            if (!file.exists()) {
+                return null;
+            }
+            try (Reader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8))) {
+                return RecipeStreamReader.read(reader, gson, sink);
+            } catch (Exception e) {
+                Log.e(TAG, "Не удалось прочитать кэш", e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Сохранить свежий ответ API
+     */
+    public void write(RecipeResponse response) {
+        synchronized (LOCK) {
+            // Общее имя .tmp: без замка две записи перемешались бы в нём
+            File tmp = new File(file.getPath() + ".tmp");
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmp), StandardCharsets.UTF_8))) {
+                gson.toJson(response, writer);
+            } catch (IOException e) {
+                Log.e(TAG, "Не удалось записать кэш", e);
+                tmp.delete();
+                return;
+            }
+            if (!tmp.renameTo(file)) {
+                Log.e(TAG, "Не удалось заменить файл кэша");
+            }
+        }
+    }
+
+    /**
+     * Прочитать, изменить и записать кэш под одним замком: запись из другого
+     * места между чтением и записью не потеряется.
+     *
+     * @param change получает текущий кэш (null — его нет) и возвращает новый;
+     *               null — ничего не записывать
+     */
+    public void update(Function<RecipeResponse, RecipeResponse> change) {
+        synchronized (LOCK) {
+            RecipeResponse updated = change.apply(read());
+            if (updated != null) {
+                write(updated);
+            }
+        }
+    }
+}
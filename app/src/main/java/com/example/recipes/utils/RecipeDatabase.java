@@ -0,0 +1,810 @@
+package com.example.recipes.utils;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.example.recipes.models.Ingredient;
+import com.example.recipes.models.Recipe;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SQLite-каталог рецептов: рецепты из API и локальные, избранное
+ * и полнотекстовый индекс FTS4.
+ *
+ * <pre>
+ * recipes     — по строке на рецепт; индексы по category, difficulty, cooking_time
+ * favorites   — ID избранных рецептов
+ * recipes_fts — нормализованный текст (TextNormalizer), docid = ID рецепта (v6)
+ * image_meta  — размер и цвет превью картинки по URL (v2)
+ * ingredients — словарь ингредиентов: нормализованное имя → ID (v3)
+ * recipe_ingredients — (рецепт, ингредиент, количество, единица); индекс по ингредиенту
+ * </pre>
+ *
+ * Фильтры и поиск идут по индексам в памяти (FacetIndex, FuzzySearchIndex,
+ * SortIndex), которые строятся из этих таблиц. recipes_fts дополняет поиск
+ * с опечатками словами из описания ({@link #matchText}).
+ */
+public class RecipeDatabase extends SQLiteOpenHelper {
+
+    private static final String DB_NAME = "recipes.db";
+    private static final int DB_VERSION = 6;
+
+    private static final String T_RECIPES = "recipes";
+    private static final String T_FAVORITES = "favorites";
+    private static final String T_FTS = "recipes_fts";
+    private static final String T_IMAGE_META = "image_meta";
+    private static final String T_INGREDIENTS = "ingredients";
+    private static final String T_RECIPE_INGREDIENTS = "recipe_ingredients";
+
+    // Ингредиенты хранятся одной строкой через перевод строки
+    private static final String INGREDIENT_SEPARATOR = "\n";
+    // Слова короче ищутся только в памяти: под такое начало подходит почти весь каталог
+    private static final int MIN_MATCH_PREFIX = 3;
+
+    private static final String[] RECIPE_COLUMNS = {
+            "id", "name", "category", "difficulty", "cooking_time",
+            "description", "image_url", "ingredients",
+            "image_width", "image_height", "image_color", "updated_at"
+    };
+
+    private static RecipeDatabase instance;
+
+    // Растёт при каждом изменении рецептов; по нему видно, что индексы в памяти устарели
+    private final AtomicInteger catalogVersion = new AtomicInteger();
+
+    public static synchronized RecipeDatabase get(Context context) {
+        if (instance == null) {
+            instance = new RecipeDatabase(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Закрыть общий экземпляр; следующий get откроет базу заново
+     */
+    @VisibleForTesting
+    static synchronized void resetForTests() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    private RecipeDatabase(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_RECIPES + " ("
+                + "id INTEGER PRIMARY KEY, "
+                + "name TEXT, "
+                + "category TEXT, "
+                + "difficulty TEXT, "
+                + "cooking_time INTEGER NOT NULL DEFAULT 0, "
+                + "description TEXT, "
+                + "image_url TEXT, "
+                + "ingredients TEXT, "
+                + "local INTEGER NOT NULL DEFAULT 0, "
+                + "seq INTEGER NOT NULL DEFAULT 0)");
+        addImageMetadataColumns(db);
+        addUpdatedAtColumn(db);
+        db.execSQL("CREATE INDEX idx_recipes_category ON " + T_RECIPES + " (category)");
+        db.execSQL("CREATE INDEX idx_recipes_difficulty ON " + T_RECIPES + " (difficulty)");
+        db.execSQL("CREATE INDEX idx_recipes_cooking_time ON " + T_RECIPES + " (cooking_time)");
+        db.execSQL("CREATE INDEX idx_recipes_order ON " + T_RECIPES + " (local, seq)");
+
+        db.execSQL("CREATE TABLE " + T_FAVORITES + " (recipe_id INTEGER PRIMARY KEY)");
+
+        createFtsTable(db);
+        createImageMetaTable(db);
+        createIngredientTables(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            addImageMetadataColumns(db);
+            createImageMetaTable(db);
+        }
+        if (oldVersion < 3) {
+            createIngredientTables(db);
+            // Разбираем ингредиенты уже сохранённых рецептов
+            try (Cursor cursor = db.query(T_RECIPES, new String[]{"id", "ingredients"},
+                    null, null, null, null, null)) {
+                IngredientWriter writer = new IngredientWriter(db);
+                while (cursor.moveToNext()) {
+                    String ingredients = cursor.getString(1);
+                    if (ingredients != null && !ingredients.isEmpty()) {
+                        writer.write(cursor.getInt(0),
+                                Arrays.asList(ingredients.split(INGREDIENT_SEPARATOR)));
+                    }
+                }
+            }
+        }
+        if (oldVersion < 4) {
+            addUpdatedAtColumn(db);
+        }
+        if (oldVersion < 6) {
+            // v5 удаляла таблицу; она нужна для поиска по описанию — строим заново
+            db.execSQL("DROP TABLE IF EXISTS " + T_FTS);
+            createFtsTable(db);
+            try (Cursor cursor = db.query(T_RECIPES,
+                    new String[]{"id", "name", "description", "ingredients"},
+                    null, null, null, null, null)) {
+                SQLiteStatement insertText = db.compileStatement(
+                        "INSERT INTO " + T_FTS + " (docid, body) VALUES (?, ?)");
+                while (cursor.moveToNext()) {
+                    String ingredients = cursor.getString(3);
+                    insertText.bindLong(1, cursor.getInt(0));
+                    insertText.bindString(2, searchText(cursor.getString(1), cursor.getString(2),
+                            ingredients == null || ingredients.isEmpty() ? null
+                                    : Arrays.asList(ingredients.split(INGREDIENT_SEPARATOR))));
+                    insertText.executeInsert();
+                }
+            }
+        }
+    }
+
+    private static void createFtsTable(SQLiteDatabase db) {
+        // Текст кладём уже нормализованным, поэтому хватает простого токенизатора;
+        // prefix — отдельный индекс начал слов для запросов "бор*"
+        db.execSQL("CREATE VIRTUAL TABLE " + T_FTS
+                + " USING fts4(body, tokenize=simple, prefix=\"" + MIN_MATCH_PREFIX + "\")");
+    }
+
+    private static void addUpdatedAtColumn(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + T_RECIPES
+                + " ADD COLUMN updated_at INTEGER NOT NULL DEFAULT 0");
+    }
+
+    private static void addImageMetadataColumns(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + T_RECIPES + " ADD COLUMN image_width INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("ALTER TABLE " + T_RECIPES + " ADD COLUMN image_height INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("ALTER TABLE " + T_RECIPES + " ADD COLUMN image_color INTEGER NOT NULL DEFAULT 0");
+    }
+
+    private static void createImageMetaTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_IMAGE_META + " ("
+                + "url TEXT PRIMARY KEY, "
+                + "width INTEGER NOT NULL, "
+                + "height INTEGER NOT NULL, "
+                + "color INTEGER NOT NULL)");
+    }
+
+    private static void createIngredientTables(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + T_INGREDIENTS + " ("
+                + "id INTEGER PRIMARY KEY, "
+                + "key TEXT NOT NULL UNIQUE)");
+        db.execSQL("CREATE TABLE " + T_RECIPE_INGREDIENTS + " ("
+                + "recipe_id INTEGER NOT NULL, "
+                + "ingredient_id INTEGER NOT NULL, "
+                + "quantity REAL, "
+                + "unit TEXT, "
+                + "PRIMARY KEY (recipe_id, ingredient_id)) WITHOUT ROWID");
+        db.execSQL("CREATE INDEX idx_recipe_ingredients_ingredient ON "
+                + T_RECIPE_INGREDIENTS + " (ingredient_id, recipe_id)");
+    }
+
+    // ---- рецепты из API ----
+
+    /**
+     * Заменить рецепты из API целиком (первая страница после обновления);
+     * локальные с тем же ID не затираются
+     */
+    public void replaceRemote(List<Recipe> recipes) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + T_FTS + " WHERE docid IN (SELECT id FROM "
+                    + T_RECIPES + " WHERE local = 0)");
+            db.execSQL("DELETE FROM " + T_RECIPE_INGREDIENTS + " WHERE recipe_id IN"
+                    + " (SELECT id FROM " + T_RECIPES + " WHERE local = 0)");
+            db.delete(T_RECIPES, "local = 0", null);
+
+            SQLiteStatement insert = db.compileStatement("INSERT OR IGNORE INTO " + T_RECIPES
+                    + " (id, name, category, difficulty, cooking_time, description, image_url,"
+                    + " ingredients, image_width, image_height, image_color, updated_at,"
+                    + " local, seq)"
+                    + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?)");
+            SQLiteStatement insertText = db.compileStatement(
+                    "INSERT INTO " + T_FTS + " (docid, body) VALUES (?, ?)");
+            IngredientWriter ingredients = new IngredientWriter(db);
+            for (int i = 0; i < recipes.size(); i++) {
+                Recipe recipe = recipes.get(i);
+                bindRecipe(insert, recipe);
+                insert.bindLong(13, i);
+                if (insert.executeInsert() != -1) {
+                    insertText.bindLong(1, recipe.getId());
+                    insertText.bindString(2, searchText(recipe));
+                    insertText.executeInsert();
+                    ingredients.write(recipe.getId(), recipe.getIngredients());
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            catalogVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Дописать страницу каталога: пишутся только её рецепты, новые — в конец
+     */
+    public void upsertRemote(List<Recipe> recipes) {
+        applyRemote(recipes, Collections.<Integer>emptyList());
+    }
+
+    /**
+     * Сколько рецептов из API лежит в базе
+     */
+    public int countRemote() {
+        return (int) DatabaseUtils.queryNumEntries(getReadableDatabase(), T_RECIPES,
+                "local = 0");
+    }
+
+    /**
+     * Самая поздняя отметка updatedAt среди рецептов из API (0 — их нет)
+     */
+    public long latestRemoteUpdate() {
+        return DatabaseUtils.longForQuery(getReadableDatabase(), "SELECT COALESCE(MAX(updated_at), 0)"
+                + " FROM " + T_RECIPES + " WHERE local = 0", null);
+    }
+
+    /**
+     * Применить изменения каталога с сервера: изменённые рецепты заменяют свои строки
+     * (новые — в конец каталога), удалённые убираются. Локальные рецепты не трогаются.
+     */
+    public void applyRemote(List<Recipe> changed, Collection<Integer> deletedIds) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int recipeId : deletedIds) {
+                String[] args = {String.valueOf(recipeId)};
+                if (db.delete(T_RECIPES, "id = ? AND local = 0", args) > 0) {
+                    db.delete(T_FTS, "docid = ?", args);
+                    db.delete(T_RECIPE_INGREDIENTS, "recipe_id = ?", args);
+                }
+            }
+
+            long nextSeq = DatabaseUtils.longForQuery(db, "SELECT COALESCE(MAX(seq), -1) + 1 FROM "
+                    + T_RECIPES + " WHERE local = 0", null);
+            IngredientWriter ingredients = new IngredientWriter(db);
+            for (Recipe recipe : changed) {
+                String[] args = {String.valueOf(recipe.getId())};
+                long seq;
+                try (Cursor cursor = db.query(T_RECIPES, new String[]{"local", "seq"},
+                        "id = ?", args, null, null, null)) {
+                    if (!cursor.moveToFirst()) {
+                        seq = nextSeq++;
+                    } else if (cursor.getInt(0) == 0) {
+                        seq = cursor.getLong(1);   // остаётся на своём месте в списке
+                    } else {
+                        continue;                  // ID занят локальным рецептом
+                    }
+                }
+                ContentValues values = toValues(recipe);
+                values.put("local", 0);
+                values.put("seq", seq);
+                db.insertWithOnConflict(T_RECIPES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                writeSearchText(db, recipe);
+                db.delete(T_RECIPE_INGREDIENTS, "recipe_id = ?", args);
+                ingredients.write(recipe.getId(), recipe.getIngredients());
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            catalogVersion.incrementAndGet();
+        }
+    }
+
+    // ---- локальные рецепты ----
+
+    /**
+     * Сохранить или заменить локальный рецепт
+     */
+    public void putLocal(Recipe recipe) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            ContentValues values = toValues(recipe);
+            values.put("local", 1);
+            values.put("seq", recipe.getId());
+            db.insertWithOnConflict(T_RECIPES, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            writeSearchText(db, recipe);
+            db.delete(T_RECIPE_INGREDIENTS, "recipe_id = ?",
+                    new String[]{String.valueOf(recipe.getId())});
+            new IngredientWriter(db).write(recipe.getId(), recipe.getIngredients());
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            catalogVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Удалить локальный рецепт; false, если его не было
+     */
+    public boolean removeLocal(int recipeId) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            String[] args = {String.valueOf(recipeId)};
+            int deleted = db.delete(T_RECIPES, "id = ? AND local = 1", args);
+            if (deleted > 0) {
+                db.delete(T_FTS, "docid = ?", args);
+                db.delete(T_RECIPE_INGREDIENTS, "recipe_id = ?", args);
+            }
+            db.setTransactionSuccessful();
+            return deleted > 0;
+        } finally {
+            db.endTransaction();
+            catalogVersion.incrementAndGet();
+        }
+    }
+
+    /**
+     * Все локальные рецепты в порядке добавления
+     */
+    public List<Recipe> loadLocal() {
+        try (Cursor cursor = getReadableDatabase().query(T_RECIPES, RECIPE_COLUMNS,
+                "local = 1", null, null, null, "seq")) {
+            return readRecipes(cursor);
+        }
+    }
+
+    /**
+     * Заменить все локальные рецепты и избранное (зеркало другого хранилища)
+     */
+    public void replaceLocal(Collection<Recipe> recipes, IntSet favorites) {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            clearLocal();
+            for (Recipe recipe : recipes) {
+                putLocal(recipe);
+            }
+            for (int i = 0; i < favorites.size(); i++) {
+                setFavorite(favorites.get(i), true);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Удалить локальные рецепты и избранное
+     */
+    public void clearLocal() {
+        SQLiteDatabase db = getWritableDatabase();
+        db.beginTransaction();
+        try {
+            db.execSQL("DELETE FROM " + T_FTS + " WHERE docid IN (SELECT id FROM "
+                    + T_RECIPES + " WHERE local = 1)");
+            db.execSQL("DELETE FROM " + T_RECIPE_INGREDIENTS + " WHERE recipe_id IN"
+                    + " (SELECT id FROM " + T_RECIPES + " WHERE local = 1)");
+            db.delete(T_RECIPES, "local = 1", null);
+            db.delete(T_FAVORITES, null, null);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            catalogVersion.incrementAndGet();
+        }
+    }
+
+    // ---- избранное ----
+
+    public void setFavorite(int recipeId, boolean favorite) {
+        SQLiteDatabase db = getWritableDatabase();
+        if (favorite) {
+            ContentValues values = new ContentValues();
+            values.put("recipe_id", recipeId);
+            db.insertWithOnConflict(T_FAVORITES, null, values, SQLiteDatabase.CONFLICT_IGNORE);
+        } else {
+            db.delete(T_FAVORITES, "recipe_id = ?", new String[]{String.valueOf(recipeId)});
+        }
+    }
+
+    public IntSet loadFavorites() {
+        IntSet favorites = new IntSet();
+        try (Cursor cursor = getReadableDatabase().query(T_FAVORITES,
+                new String[]{"recipe_id"}, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                favorites.add(cursor.getInt(0));
+            }
+        }
+        return favorites;
+    }
+
+    /**
+     * Размер файла базы вместе с журналом WAL
+     */
+    public long getSizeOnDisk() {
+        File file = new File(getReadableDatabase().getPath());
+        return file.length() + new File(file.getPath() + "-wal").length();
+    }
+
+    // ---- метаданные картинок ----
+
+    public void putImageMetadata(String url, int width, int height, int color) {
+        ContentValues values = new ContentValues();
+        values.put("url", url);
+        values.put("width", width);
+        values.put("height", height);
+        values.put("color", color);
+        getWritableDatabase().insertWithOnConflict(T_IMAGE_META, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    /**
+     * Все известные метаданные: URL → {width, height, color}
+     */
+    public Map<String, int[]> loadImageMetadata() {
+        Map<String, int[]> result = new HashMap<>();
+        try (Cursor cursor = getReadableDatabase().query(T_IMAGE_META,
+                new String[]{"url", "width", "height", "color"},
+                null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                result.put(cursor.getString(0), new int[]{
+                        cursor.getInt(1), cursor.getInt(2), cursor.getInt(3)});
+            }
+        }
+        return result;
+    }
+
+    // ---- ингредиенты ----
+
+    /**
+     * Номер версии рецептов: индекс, построенный при другом номере, устарел
+     */
+    public int getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * Собрать битовый индекс «ингредиент → рецепты» из recipe_ingredients.
+     * Один проход по индексу таблицы, упорядоченному по ингредиенту.
+     */
+    public IngredientIndex loadIngredientIndex() {
+        // Без транзакции: она держала бы блокировку записи, пока читается весь индекс.
+        // Запись между запросами даёт связи с незнакомыми рецептами — они пропускаются,
+        // а RecipeStorage по версии каталога увидит отставание и соберёт индекс заново.
+        SQLiteDatabase db = getReadableDatabase();
+        // Плотные номера рецептов и число ингредиентов у каждого
+        int[] recipeIds;
+        int[] counts;
+        try (Cursor cursor = db.rawQuery("SELECT recipe_id, COUNT(*) FROM "
+                + T_RECIPE_INGREDIENTS + " GROUP BY recipe_id ORDER BY recipe_id", null)) {
+            recipeIds = new int[cursor.getCount()];
+            counts = new int[recipeIds.length];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                recipeIds[i] = cursor.getInt(0);
+                counts[i] = cursor.getInt(1);
+            }
+        }
+
+        String[] keys;
+        int[] keyIds;
+        try (Cursor cursor = db.query(T_INGREDIENTS, new String[]{"key", "id"},
+                null, null, null, null, "key")) {
+            keys = new String[cursor.getCount()];
+            keyIds = new int[keys.length];
+            for (int i = 0; cursor.moveToNext(); i++) {
+                keys[i] = cursor.getString(0);
+                keyIds[i] = cursor.getInt(1);
+            }
+        }
+        // Порядок для бинарного поиска — как у String.compareTo, а не у SQLite
+        sortByKey(keys, keyIds);
+
+        int words = IngredientIndex.wordsFor(recipeIds.length);
+        Map<Integer, long[]> postings = new HashMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT ingredient_id, recipe_id FROM "
+                + T_RECIPE_INGREDIENTS + " ORDER BY ingredient_id", null)) {
+            int currentId = -1;
+            long[] posting = null;
+            while (cursor.moveToNext()) {
+                int ingredientId = cursor.getInt(0);
+                if (posting == null || ingredientId != currentId) {
+                    currentId = ingredientId;
+                    posting = new long[words];
+                    postings.put(ingredientId, posting);
+                }
+                int ordinal = Arrays.binarySearch(recipeIds, cursor.getInt(1));
+                if (ordinal >= 0) {
+                    posting[ordinal >>> 6] |= 1L << (ordinal & 63);
+                }
+            }
+        }
+        return new IngredientIndex(recipeIds, counts, keys, keyIds, postings);
+    }
+
+    private static void sortByKey(String[] keys, int[] ids) {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> keys[a].compareTo(keys[b]));
+        String[] sortedKeys = new String[keys.length];
+        int[] sortedIds = new int[ids.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedIds[i] = ids[order[i]];
+        }
+        System.arraycopy(sortedKeys, 0, keys, 0, keys.length);
+        System.arraycopy(sortedIds, 0, ids, 0, ids.length);
+    }
+
+    /**
+     * Разбирает ингредиенты рецепта и пишет их в recipe_ingredients,
+     * заводя новые ключи в словаре. Живёт в пределах одной транзакции.
+     */
+    private static final class IngredientWriter {
+        private final SQLiteStatement findKey;
+        private final SQLiteStatement insertKey;
+        private final SQLiteStatement insertLink;
+        // Ключи, уже найденные в этой транзакции
+        private final Map<String, Long> ids = new HashMap<>();
+
+        IngredientWriter(SQLiteDatabase db) {
+            findKey = db.compileStatement("SELECT id FROM " + T_INGREDIENTS + " WHERE key = ?");
+            insertKey = db.compileStatement("INSERT INTO " + T_INGREDIENTS + " (key) VALUES (?)");
+            insertLink = db.compileStatement("INSERT OR IGNORE INTO " + T_RECIPE_INGREDIENTS
+                    + " (recipe_id, ingredient_id, quantity, unit) VALUES (?, ?, ?, ?)");
+        }
+
+        void write(int recipeId, List<String> lines) {
+            for (Ingredient ingredient : IngredientParser.parseAll(lines)) {
+                insertLink.clearBindings();
+                insertLink.bindLong(1, recipeId);
+                insertLink.bindLong(2, idFor(ingredient.getKey()));
+                if (ingredient.hasQuantity()) {
+                    insertLink.bindDouble(3, ingredient.getQuantity());
+                }
+                if (ingredient.getUnit() != null) {
+                    insertLink.bindString(4, ingredient.getUnit());
+                }
+                insertLink.executeInsert();
+            }
+        }
+
+        private long idFor(String key) {
+            Long id = ids.get(key);
+            if (id == null) {
+                findKey.bindString(1, key);
+                try {
+                    id = findKey.simpleQueryForLong();
+                } catch (SQLiteDoneException e) {
+                    insertKey.bindString(1, key);
+                    id = insertKey.executeInsert();
+                }
+                ids.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    // ---- измерения фильтра ----
+
+    /**
+     * Битовые карты измерений по всем рецептам в порядке списка
+     */
+    FacetIndex loadFacetIndex() {
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT id, category, difficulty,"
+                + " cooking_time, CASE WHEN ingredients IS NULL OR ingredients = '' THEN 0"
+                + " ELSE length(ingredients) - length(replace(ingredients, char(10), '')) + 1"
+                + " END FROM " + T_RECIPES + " ORDER BY local, seq", null)) {
+            FacetIndex.Builder builder = new FacetIndex.Builder(cursor.getCount());
+            while (cursor.moveToNext()) {
+                builder.add(cursor.getInt(0), cursor.getString(1), cursor.getString(2),
+                        cursor.getInt(3), cursor.getInt(4));
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Ключи сортировки всех рецептов (полная сортировка — только здесь)
+     */
+    SortIndex loadSortIndex() {
+        try (Cursor cursor = getReadableDatabase().query(T_RECIPES,
+                new String[]{"id", "name", "difficulty", "cooking_time", "local", "seq"},
+                null, null, null, null, null)) {
+            List<SortIndex.Entry> entries = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                entries.add(new SortIndex.Entry(cursor.getInt(0), cursor.getString(1),
+                        cursor.getString(2), cursor.getInt(3), cursor.getInt(4) != 0,
+                        cursor.getInt(5)));
+            }
+            return new SortIndex(entries);
+        }
+    }
+
+    /**
+     * Индекс поиска с опечатками по названиям и ингредиентам, в порядке списка
+     */
+    FuzzySearchIndex loadSearchIndex() {
+        try (Cursor cursor = getReadableDatabase().query(T_RECIPES,
+                new String[]{"id", "name", "ingredients"}, null, null, null, null,
+                "local, seq")) {
+            FuzzySearchIndex.Builder builder = new FuzzySearchIndex.Builder(cursor.getCount());
+            while (cursor.moveToNext()) {
+                String ingredients = cursor.getString(2);
+                builder.add(cursor.getInt(0), cursor.getString(1),
+                        ingredients == null || ingredients.isEmpty() ? null
+                                : Arrays.asList(ingredients.split(INGREDIENT_SEPARATOR)));
+            }
+            return builder.build();
+        }
+    }
+
+    // ---- запросы ----
+
+    /**
+     * Рецепт по ID (null, если его нет)
+     */
+    public Recipe findById(int recipeId) {
+        try (Cursor cursor = getReadableDatabase().query(T_RECIPES, RECIPE_COLUMNS,
+                "id = ?", new String[]{String.valueOf(recipeId)}, null, null, null)) {
+            List<Recipe> recipes = readRecipes(cursor);
+            return recipes.isEmpty() ? null : recipes.get(0);
+        }
+    }
+
+    /**
+     * ID рецептов, где нашлись все слова строки (как начала слов) в названии,
+     * описании или ингредиентах, по возрастанию. null — строка не годится
+     * для FTS: в ней нет слов или есть слово короче MIN_MATCH_PREFIX.
+     */
+    public IntSet matchText(String text) {
+        String match = matchExpression(text);
+        if (match == null) {
+            return null;
+        }
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT docid FROM " + T_FTS
+                + " WHERE body MATCH ? ORDER BY docid", new String[]{match})) {
+            IntSet ids = new IntSet();
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getInt(0));
+            }
+            return ids;
+        }
+    }
+
+    /**
+     * "Борщ с укр" → "борщ* укр*": каждое слово как префикс, все слова обязательны,
+     * предлоги и союзы пропускаются
+     */
+    static String matchExpression(String text) {
+        StringBuilder match = new StringBuilder();
+        for (String token : TextNormalizer.tokenize(text)) {
+            if (FuzzySearchIndex.STOP_WORDS.contains(token)) {
+                continue;
+            }
+            if (token.length() < MIN_MATCH_PREFIX) {
+                return null;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append(token).append('*');
+        }
+        return match.length() == 0 ? null : match.toString();
+    }
+
+    // ---- преобразования ----
+
+    private static String searchText(Recipe recipe) {
+        return searchText(recipe.getName(), recipe.getDescription(), recipe.getIngredients());
+    }
+
+    private static String searchText(String name, String description, List<String> ingredients) {
+        List<String> tokens = new ArrayList<>();
+        tokens.addAll(TextNormalizer.tokenize(name));
+        tokens.addAll(TextNormalizer.tokenize(description));
+        if (ingredients != null) {
+            for (String ingredient : ingredients) {
+                tokens.addAll(TextNormalizer.tokenize(ingredient));
+            }
+        }
+        return TextUtils.join(" ", tokens);
+    }
+
+    private static void writeSearchText(SQLiteDatabase db, Recipe recipe) {
+        db.delete(T_FTS, "docid = ?", new String[]{String.valueOf(recipe.getId())});
+        ContentValues text = new ContentValues();
+        text.put("docid", recipe.getId());
+        text.put("body", searchText(recipe));
+        db.insert(T_FTS, null, text);
+    }
+
+    private static ContentValues toValues(Recipe recipe) {
+        ContentValues values = new ContentValues();
+        values.put("id", recipe.getId());
+        values.put("name", recipe.getName());
+        values.put("category", recipe.getCategory());
+        values.put("difficulty", recipe.getDifficulty());
+        values.put("cooking_time", recipe.getCookingTime());
+        values.put("description", recipe.getDescription());
+        values.put("image_url", recipe.getImageUrl());
+        values.put("ingredients", joinIngredients(recipe.getIngredients()));
+        values.put("image_width", recipe.getImageWidth());
+        values.put("image_height", recipe.getImageHeight());
+        values.put("image_color", recipe.getImageColor());
+        values.put("updated_at", recipe.getUpdatedAt());
+        return values;
+    }
+
+    private static void bindRecipe(SQLiteStatement statement, Recipe recipe) {
+        statement.clearBindings();
+        statement.bindLong(1, recipe.getId());
+        bindNullable(statement, 2, recipe.getName());
+        bindNullable(statement, 3, recipe.getCategory());
+        bindNullable(statement, 4, recipe.getDifficulty());
+        statement.bindLong(5, recipe.getCookingTime());
+        bindNullable(statement, 6, recipe.getDescription());
+        bindNullable(statement, 7, recipe.getImageUrl());
+        bindNullable(statement, 8, joinIngredients(recipe.getIngredients()));
+        statement.bindLong(9, recipe.getImageWidth());
+        statement.bindLong(10, recipe.getImageHeight());
+        statement.bindLong(11, recipe.getImageColor());
+        statement.bindLong(12, recipe.getUpdatedAt());
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    private static String joinIngredients(List<String> ingredients) {
+        return ingredients == null ? null : TextUtils.join(INGREDIENT_SEPARATOR, ingredients);
+    }
+
+    private static List<Recipe> readRecipes(Cursor cursor) {
+        List<Recipe> recipes = new ArrayList<>(cursor.getCount());
+        while (cursor.moveToNext()) {
+            Recipe recipe = new Recipe();
+            recipe.setId(cursor.getInt(0));
+            recipe.setName(cursor.getString(1));
+            recipe.setCategory(cursor.getString(2));
+            recipe.setDifficulty(cursor.getString(3));
+            recipe.setCookingTime(cursor.getInt(4));
+            recipe.setDescription(cursor.getString(5));
+            recipe.setImageUrl(cursor.getString(6));
+            String ingredients = cursor.getString(7);
+            if (ingredients != null) {
+                recipe.setIngredients(ingredients.isEmpty() ? new ArrayList<>()
+                        : new ArrayList<>(Arrays.asList(ingredients.split(INGREDIENT_SEPARATOR))));
+            }
+            recipe.setImageWidth(cursor.getInt(8));
+            recipe.setImageHeight(cursor.getInt(9));
+            recipe.setImageColor(cursor.getInt(10));
+            recipe.setUpdatedAt(cursor.getLong(11));
+            recipes.add(recipe);
+        }
+        return recipes;
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Движок хранения локальных рецептов.
+ * Каждый рецепт хранится отдельной записью по ID.
+ */
+public interface RecipeStore {
+
+    /**
+     * Прочитать все записи (один раз при старте)
+     */
+    List<Recipe> loadAll();
+
+    /**
+     * Сохранить или заменить запись
+     */
+    boolean put(Recipe recipe);
+
+    /**
+     * Сохранить пачку записей (перенос между форматами); false — сохранены не все
+     */
+    default boolean putAll(Collection<Recipe> recipes) {
+        for (Recipe recipe : recipes) {
+            if (!put(recipe)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Удалить запись по ID
+     */
+    boolean remove(int recipeId);
+
+    /**
+     * Удалить все записи (после переноса в другой формат)
+     */
+    void clear();
+
+    /**
+     * Сколько байт хранилище занимает на диске
+     */
+    long getSizeOnDisk();
+
+    /**
+     * Хранит ли формат избранное сам (иначе оно лежит в настройках)
+     */
+    default boolean storesFavorites() {
+        return false;
+    }
+
+    /**
+     * Избранное, прочитанное в loadAll
+     */
+    default IntSet loadFavorites() {
+        return new IntSet();
+    }
+
+    default boolean putFavorite(int recipeId, boolean favorite) {
+        return false;
+    }
+
+    /**
+     * Отпустить фоновые потоки и открытые файлы; после этого хранилище не используется
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+import com.example.recipes.models.RecipeResponse;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковое чтение каталога через JsonReader.
+ * Рецепты отдаются по одному по мере разбора, без промежуточной строки
+ * и без построения всего дерева JSON в памяти.
+ */
+public final class RecipeStreamReader {
+
+    /**
+     * Получатель рецептов; вызывается в потоке чтения
+     */
+    public interface RecipeSink {
+        void accept(Recipe recipe);
+    }
+
+    private RecipeStreamReader() {}
+
+    /**
+     * Прочитать {"recipes": [...], ...} или просто массив [...].
+     * Рецепты уходят в sink; возвращаются остальные поля ответа (recipes == null).
+     */
+    public static RecipeResponse read(Reader in, Gson gson, RecipeSink sink) throws IOException {
+        JsonReader reader = gson.newJsonReader(in);
+        RecipeResponse meta = new RecipeResponse();
+
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+            readArray(reader, gson, sink);
+            return meta;
+        }
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "recipes":
+                    readArray(reader, gson, sink);
+                    break;
+                case "nextOffset":
+                    meta.setNextOffset(reader.nextInt());
+                    break;
+                case "total":
+                    meta.setTotal(reader.nextInt());
+                    break;
+                case "serverTime":
+                    meta.setServerTime(reader.nextLong());
+                    break;
+                case "deletedIds":
+                    List<Integer> deleted = new ArrayList<>();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        deleted.add(reader.nextInt());
+                    }
+                    reader.endArray();
+                    meta.setDeletedIds(deleted);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return meta;
+    }
+
+    /**
+     * Прочитать ответ целиком в RecipeResponse (для мест, где нужен весь список)
+     */
+    public static RecipeResponse readAll(Reader in, Gson gson) throws IOException {
+        List<Recipe> recipes = new ArrayList<>();
+        RecipeResponse response = read(in, gson, recipes::add);
+        response.setRecipes(recipes);
+        return response;
+    }
+
+    private static void readArray(JsonReader reader, Gson gson, RecipeSink sink) throws IOException {
+        // Адаптер берём один раз, а не на каждый элемент
+        TypeAdapter<Recipe> adapter = gson.getAdapter(Recipe.class);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            Recipe recipe = adapter.read(reader);
+            if (recipe != null) {
+                sink.accept(recipe);
+            }
+        }
+        reader.endArray();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ручная (де)сериализация Recipe без рефлексии.
+ * При добавлении поля в Recipe его нужно добавить и сюда.
+ */
+public class RecipeTypeAdapter extends TypeAdapter<Recipe> {
+
+    @Override
+    public void write(JsonWriter out, Recipe recipe) throws IOException {
+        if (recipe == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        out.name("id").value(recipe.getId());
+        writeString(out, "name", recipe.getName());
+        writeString(out, "category", recipe.getCategory());
+        out.name("cookingTime").value(recipe.getCookingTime());
+        writeString(out, "difficulty", recipe.getDifficulty());
+        if (recipe.getIngredients() != null) {
+            out.name("ingredients").beginArray();
+            for (String ingredient : recipe.getIngredients()) {
+                out.value(ingredient);
+            }
+            out.endArray();
+        }
+        writeString(out, "description", recipe.getDescription());
+        writeString(out, "imageUrl", recipe.getImageUrl());
+        if (recipe.hasImageMetadata()) {
+            out.name("imageWidth").value(recipe.getImageWidth());
+            out.name("imageHeight").value(recipe.getImageHeight());
+        }
+        // Цвет превью приходит и без размеров картинки — пишется отдельно
+        if (recipe.getImageColor() != 0) {
+            out.name("imageColor").value(recipe.getImageColor());
+        }
+        if (recipe.getUpdatedAt() != 0) {
+            out.name("updatedAt").value(recipe.getUpdatedAt());
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Recipe read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Recipe recipe = new Recipe();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "id":
+                    recipe.setId(in.nextInt());
+                    break;
+                case "name":
+                    recipe.setName(in.nextString());
+                    break;
+                case "category":
+                    recipe.setCategory(in.nextString());
+                    break;
+                case "cookingTime":
+                    recipe.setCookingTime(in.nextInt());
+                    break;
+                case "difficulty":
+                    recipe.setDifficulty(in.nextString());
+                    break;
+                case "ingredients":
+                    recipe.setIngredients(readStrings(in));
+                    break;
+                case "description":
+                    recipe.setDescription(in.nextString());
+                    break;
+                case "imageUrl":
+                    recipe.setImageUrl(in.nextString());
+                    break;
+                case "imageWidth":
+                    recipe.setImageWidth(in.nextInt());
+                    break;
+                case "imageHeight":
+                    recipe.setImageHeight(in.nextInt());
+                    break;
+                case "imageColor":
+                    recipe.setImageColor(readColor(in));
+                    break;
+                case "updatedAt":
+                    recipe.setUpdatedAt(in.nextLong());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return recipe;
+    }
+
+    /**
+     * Цвет числом ARGB или строкой "#RRGGBB" / "#AARRGGBB"
+     */
+    private static int readColor(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NUMBER) {
+            return (int) in.nextLong();
+        }
+        String value = in.nextString();
+        String hex = value.startsWith("#") ? value.substring(1) : value;
+        try {
+            int color = (int) Long.parseLong(hex, 16);
+            return hex.length() <= 6 ? color | 0xFF000000 : color;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static List<String> readStrings(JsonReader in) throws IOException {
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else {
+                values.add(in.nextString());
+            }
+        }
+        in.endArray();
+        return values;
+    }
+
+    private static void writeString(JsonWriter out, String name, String value) throws IOException {
+        if (value != null) {
+            out.name(name).value(value);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.recipes.utils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.recipes.models.Recipe;
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Хранилище "один файл на рецепт": recipes/<id>.json.
+ * Добавление и удаление затрагивают только свой файл,
+ * поэтому не зависят от количества рецептов.
+ */
+public class RecordRecipeStore implements RecipeStore {
+
+    private static final String TAG = "RecordRecipeStore";
+    private static final String DIR_NAME = "recipes";
+    private static final String EXT = ".json";
+
+    private final File dir;
+    private final Gson gson;
+
+    public RecordRecipeStore(Context context, Gson gson) {
+        this.dir = new File(context.getFilesDir(), DIR_NAME);
+        this.gson = gson;
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Не удалось создать папку " + dir);
+        }
+    }
+
+    /**
+     * Есть ли на диске записи этого формата (папку при этом не создаёт)
+     */
+    public static boolean hasData(Context context) {
+        String[] names = new File(context.getFilesDir(), DIR_NAME).list();
+        return names != null && names.length > 0;
+    }
+
+    @Override
+    public List<Recipe> loadAll() {
+        List<Recipe> recipes = new ArrayList<>();
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return recipes;
+        }
+        for (File file : files) {
+            if (!file.getName().endsWith(EXT)) {
+                continue;
+            }
+            try (Reader reader = new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8)) {
+                Recipe recipe = gson.fromJson(reader, Recipe.class);
+                if (recipe != null) {
+                    recipes.add(recipe);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Повреждённая запись " + file.getName(), e);
+            }
+        }
+        // ID выдаются по возрастанию, так что это порядок добавления
+        Collections.sort(recipes, (a, b) -> Integer.compare(a.getId(), b.getId()));
+        return recipes;
+    }
+
+    @Override
+    public boolean put(Recipe recipe) {
+        File target = fileFor(recipe.getId());
+        File tmp = new File(dir, recipe.getId() + EXT + ".tmp");
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(tmp), StandardCharsets.UTF_8)) {
+            gson.toJson(recipe, writer);
+        } catch (IOException e) {
+            Log.e(TAG, "Ошибка записи рецепта " + recipe.getId(), e);
+            tmp.delete();
+            return false;
+        }
+        // rename атомарен: запись либо старая, либо новая целиком
+        return tmp.renameTo(target);
+    }
+
+    @Override
+    public boolean remove(int recipeId) {
+        return fileFor(recipeId).delete();
+    }
+
+    @Override
+    public void clear() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    @Override
+    public long getSizeOnDisk() {
+        long total = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    private File fileFor(int recipeId) {
+        return new File(dir, recipeId + EXT);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.recipes.utils;
+
+/**
+ * Стеммер для русского (алгоритм Портера / Snowball): отрезает окончания,
+ * чтобы "борща", "борщом" и "борщ" давали одну основу.
+ * Принимает уже нормализованные токены ({@link TextNormalizer}: строчные, ё → е).
+ */
+public final class RussianStemmer {
+
+    private static final String VOWELS = "аеиоуыэюя";
+
+    // Окончания группы 1 допустимы только после "а" или "я"
+    private static final String[] PERFECTIVE_GERUND_1 = {"вшись", "вши", "в"};
+    private static final String[] PERFECTIVE_GERUND_2 = {"ившись", "ывшись", "ивши", "ывши", "ив", "ыв"};
+    private static final String[] REFLEXIVE = {"ся", "сь"};
+    private static final String[] ADJECTIVE = {"ими", "ыми", "его", "ого", "ему", "ому",
+            "ее", "ие", "ые", "ое", "ей", "ий", "ый", "ой", "ем", "им", "ым", "ом",
+            "их", "ых", "ую", "юю", "ая", "яя", "ою", "ею"};
+    private static final String[] PARTICIPLE_1 = {"ем", "нн", "вш", "ющ", "щ"};
+    private static final String[] PARTICIPLE_2 = {"ивш", "ывш", "ующ"};
+    private static final String[] VERB_1 = {"ете", "йте", "ешь", "нно", "ла", "на", "ли", "ем",
+            "ло", "но", "ет", "ют", "ны", "ть", "й", "л", "н"};
+    private static final String[] VERB_2 = {"ейте", "уйте", "ила", "ыла", "ена", "ите", "или",
+            "ыли", "ило", "ыло", "ено", "ует", "уют", "ены", "ить", "ыть", "ишь",
+            "ей", "уй", "ил", "ыл", "им", "ым", "ен", "ят", "ит", "ыт", "ую", "ю"};
+    private static final String[] NOUN = {"иями", "ями", "ами", "ией", "иям", "ием", "иях",
+            "ев", "ов", "ие", "ье", "еи", "ии", "ей", "ой", "ий", "ям", "ем", "ам", "ом",
+            "ах", "ях", "ию", "ью", "ия", "ья", "а", "е", "и", "й", "о", "у", "ы", "ь", "ю", "я"};
+    private static final String[] SUPERLATIVE = {"ейше", "ейш"};
+    private static final String[] DERIVATIONAL = {"ость", "ост"};
+    private static final String[] I = {"и"};
+    private static final String[] SOFT_SIGN = {"ь"};
+
+    private RussianStemmer() {}
+
+    public static String stem(String word) {
+        int rv = regionAfterVowel(word, 0);
+        if (rv >= word.length()) {
+            return word;
+        }
+        int r2 = regionR(word, regionR(word, 0));
+        StringBuilder w = new StringBuilder(word);
+
+        // Шаг 1: деепричастие, иначе (возвратность) + прилагательное / глагол / существительное
+        if (!removeAfterAOrYa(w, rv, PERFECTIVE_GERUND_1) && !remove(w, rv, PERFECTIVE_GERUND_2)) {
+            remove(w, rv, REFLEXIVE);
+            if (remove(w, rv, ADJECTIVE)) {
+                if (!removeAfterAOrYa(w, rv, PARTICIPLE_1)) {
+                    remove(w, rv, PARTICIPLE_2);
+                }
+            } else if (!removeAfterAOrYa(w, rv, VERB_1) && !remove(w, rv, VERB_2)) {
+                remove(w, rv, NOUN);
+            }
+        }
+
+        // Шаг 2
+        remove(w, rv, I);
+
+        // Шаг 3: словообразовательный суффикс только в R2
+        remove(w, r2, DERIVATIONAL);
+
+        // Шаг 4: "нн" → "н", превосходная степень, мягкий знак
+        if (!endsWithAt(w, rv, "нн")) {
+            remove(w, rv, SUPERLATIVE);
+        }
+        if (endsWithAt(w, rv, "нн")) {
+            w.setLength(w.length() - 1);
+        } else {
+            remove(w, rv, SOFT_SIGN);
+        }
+        return w.toString();
+    }
+
+    private static boolean isVowel(char c) {
+        return VOWELS.indexOf(c) >= 0;
+    }
+
+    /**
+     * Позиция после первой гласной, начиная с from (RV)
+     */
+    private static int regionAfterVowel(String word, int from) {
+        for (int i = from; i < word.length(); i++) {
+            if (isVowel(word.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return word.length();
+    }
+
+    /**
+     * Позиция после первой согласной, идущей за гласной, начиная с from
+     * (R1 от начала слова, R2 — от R1)
+     */
+    private static int regionR(String word, int from) {
+        for (int i = from + 1; i < word.length(); i++) {
+            if (!isVowel(word.charAt(i)) && isVowel(word.charAt(i - 1))) {
+                return i + 1;
+            }
+        }
+        return word.length();
+    }
+
+    private static boolean endsWithAt(StringBuilder w, int region, String ending) {
+        int start = w.length() - ending.length();
+        return start >= region && w.indexOf(ending, start) == start;
+    }
+
+    /**
+     * Отрезать самое длинное из окончаний, целиком лежащее в области
+     */
+    private static boolean remove(StringBuilder w, int region, String[] endings) {
+        String longest = null;
+        for (String ending : endings) {
+            if (endsWithAt(w, region, ending)
+                    && (longest == null || ending.length() > longest.length())) {
+                longest = ending;
+            }
+        }
+        if (longest == null) {
+            return false;
+        }
+        w.setLength(w.length() - longest.length());
+        return true;
+    }
+
+    private static boolean removeAfterAOrYa(StringBuilder w, int region, String[] endings) {
+        String longest = null;
+        for (String ending : endings) {
+            int start = w.length() - ending.length();
+            if (endsWithAt(w, region + 1, ending)
+                    && (w.charAt(start - 1) == 'а' || w.charAt(start - 1) == 'я')
+                    && (longest == null || ending.length() > longest.length())) {
+                longest = ending;
+            }
+        }
+        if (longest == null) {
+            return false;
+        }
+        w.setLength(w.length() - longest.length());
+        return true;
+    }
+}
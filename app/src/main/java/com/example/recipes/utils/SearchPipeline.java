@@ -0,0 +1,126 @@
+package com.example.recipes.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.recipes.models.Recipe;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Поиск вне UI-потока: ввод с задержкой (debounce), подбор в фоне,
+ * устаревшие запросы отменяются, в UI попадает только последний результат.
+ */
+public class SearchPipeline {
+
+    private static final String TAG = "SearchPipeline";
+    public static final long DEFAULT_DEBOUNCE_MS = 150;
+
+    /**
+     * Подбор рецептов; вызывается в фоновом потоке
+     */
+    public interface Matcher {
+        List<Recipe> match(FacetQuery query);
+    }
+
+    /**
+     * Результат; вызывается в главном потоке
+     */
+    public interface ResultListener {
+        void onResult(List<Recipe> result, long latencyMs);
+    }
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Matcher matcher;
+    private final ResultListener listener;
+    private final long debounceMs;
+
+    // Номер последнего запроса: всё, что старше, выбрасывается
+    private int generation;
+    private Runnable pendingSubmit;
+    private Future<?> running;
+    private volatile long lastLatencyMs;
+
+    public SearchPipeline(Matcher matcher, ResultListener listener) {
+        this(matcher, listener, DEFAULT_DEBOUNCE_MS);
+    }
+
+    public SearchPipeline(Matcher matcher, ResultListener listener, long debounceMs) {
+        this.matcher = matcher;
+        this.listener = listener;
+        this.debounceMs = debounceMs;
+    }
+
+    /**
+     * Запрос с клавиатуры: выполнится, если за debounceMs не придёт новый
+     */
+    public void submit(FacetQuery query) {
+        schedule(query, debounceMs);
+    }
+
+    /**
+     * Запрос без задержки (например, смена категории)
+     */
+    public void submitNow(FacetQuery query) {
+        schedule(query, 0);
+    }
+
+    private void schedule(FacetQuery query, long delayMs) {
+        final int current = ++generation;
+        cancelPending();
+
+        pendingSubmit = () -> {
+            pendingSubmit = null;
+            final long startedAt = SystemClock.elapsedRealtime();
+            running = executor.submit(() -> {
+                List<Recipe> result = matcher.match(query);
+                long latency = SystemClock.elapsedRealtime() - startedAt;
+                mainHandler.post(() -> publish(current, result, latency));
+            });
+        };
+        if (delayMs > 0) {
+            mainHandler.postDelayed(pendingSubmit, delayMs);
+        } else {
+            pendingSubmit.run();
+        }
+    }
+
+    private void publish(int requestGeneration, List<Recipe> result, long latencyMs) {
+        if (requestGeneration != generation || result == null) {
+            return; // пришёл более новый запрос
+        }
+        lastLatencyMs = latencyMs;
+        Log.d(TAG, "Поиск: " + result.size() + " рецептов за " + latencyMs + " мс");
+        listener.onResult(result, latencyMs);
+    }
+
+    private void cancelPending() {
+        if (pendingSubmit != null) {
+            mainHandler.removeCallbacks(pendingSubmit);
+            pendingSubmit = null;
+        }
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /**
+     * Время подбора для последнего опубликованного запроса
+     */
+    public long getLastLatencyMs() {
+        return lastLatencyMs;
+    }
+
+    public void shutdown() {
+        generation++;
+        cancelPending();
+        executor.shutdownNow();
+    }
+}
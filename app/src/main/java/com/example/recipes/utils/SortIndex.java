@@ -0,0 +1,219 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Difficulty;
+import com.example.recipes.models.Recipe;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Рецепты каталога, заранее упорядоченные по каждому {@link SortOrder}.
+ *
+ * Все порядки хранятся одновременно, поэтому смена сортировки ничего не сортирует.
+ * Добавленный или удалённый рецепт вставляется в каждый список бинарным поиском,
+ * полная сортировка нужна только при первой загрузке из базы.
+ * Не потокобезопасен: доступ под замком владельца (RecipeStorage).
+ */
+final class SortIndex {
+
+    // Русский порядок букв (ё рядом с е), регистр не учитывается
+    private static final Collator COLLATOR = Collator.getInstance(new Locale("ru"));
+
+    static {
+        COLLATOR.setStrength(Collator.SECONDARY);
+    }
+
+    /**
+     * Ключи сортировки одного рецепта
+     */
+    static final class Entry {
+        final int recipeId;
+        final CollationKey name;
+        final int cookingTime;
+        final int difficulty;   // порядок в Difficulty, неизвестная — в конце
+        final boolean local;
+        final int seq;
+
+        Entry(int recipeId, String name, String difficulty, int cookingTime,
+              boolean local, int seq) {
+            this.recipeId = recipeId;
+            this.name = collationKey(name == null ? "" : name);
+            this.cookingTime = cookingTime;
+            this.difficulty = Difficulty.from(difficulty).ordinal();
+            this.local = local;
+            this.seq = seq;
+        }
+
+        /**
+         * Свой рецепт: порядок добавления совпадает с ID (как в RecipeDatabase.putLocal)
+         */
+        static Entry local(Recipe recipe) {
+            return new Entry(recipe.getId(), recipe.getName(), recipe.getDifficulty(),
+                    recipe.getCookingTime(), true, recipe.getId());
+        }
+    }
+
+    private static final Comparator<Entry> BY_ID =
+            (a, b) -> Integer.compare(a.recipeId, b.recipeId);
+    private static final Comparator<Entry> BY_NAME =
+            (a, b) -> a.name.compareTo(b.name);
+
+    // Последнее сравнение по ID: порядок полный, запись находится бинарным поиском
+    private static final Map<SortOrder, Comparator<Entry>> COMPARATORS =
+            new EnumMap<>(SortOrder.class);
+
+    static {
+        // Как ORDER BY local, seq в базе: каталог в порядке API, затем свои
+        COMPARATORS.put(SortOrder.DEFAULT,
+                ((Comparator<Entry>) (a, b) -> Boolean.compare(a.local, b.local))
+                        .thenComparing((a, b) -> Integer.compare(a.seq, b.seq))
+                        .thenComparing(BY_ID));
+        COMPARATORS.put(SortOrder.COOKING_TIME,
+                ((Comparator<Entry>) (a, b) -> Integer.compare(a.cookingTime, b.cookingTime))
+                        .thenComparing(BY_NAME).thenComparing(BY_ID));
+        COMPARATORS.put(SortOrder.NAME, BY_NAME.thenComparing(BY_ID));
+        COMPARATORS.put(SortOrder.DIFFICULTY,
+                ((Comparator<Entry>) (a, b) -> Integer.compare(a.difficulty, b.difficulty))
+                        .thenComparing(BY_NAME).thenComparing(BY_ID));
+        // Сначала свои рецепты от последнего добавленного, затем каталог с конца
+        COMPARATORS.put(SortOrder.RECENT,
+                ((Comparator<Entry>) (a, b) -> Boolean.compare(b.local, a.local))
+                        .thenComparing((a, b) -> Integer.compare(b.seq, a.seq))
+                        .thenComparing(BY_ID));
+    }
+
+    private final Map<Integer, Entry> byId;
+    private final Map<SortOrder, List<Entry>> orders = new EnumMap<>(SortOrder.class);
+    // Место в списке для нового рецепта каталога, как seq в RecipeDatabase.applyRemote
+    private int nextRemoteSeq;
+
+    SortIndex(List<Entry> entries) {
+        byId = new HashMap<>(entries.size() * 2);
+        for (Entry entry : entries) {
+            byId.put(entry.recipeId, entry);
+            if (!entry.local) {
+                nextRemoteSeq = Math.max(nextRemoteSeq, entry.seq + 1);
+            }
+        }
+        for (Map.Entry<SortOrder, Comparator<Entry>> order : COMPARATORS.entrySet()) {
+            List<Entry> sorted = new ArrayList<>(byId.values());
+            Collections.sort(sorted, order.getValue());
+            orders.put(order.getKey(), sorted);
+        }
+    }
+
+    private static CollationKey collationKey(String name) {
+        // Collator не потокобезопасен, а ключи строятся и при загрузке, и при добавлении
+        synchronized (COLLATOR) {
+            return COLLATOR.getCollationKey(name);
+        }
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    /**
+     * Добавить рецепт или обновить его ключи
+     */
+    void put(Entry entry) {
+        remove(entry.recipeId);
+        byId.put(entry.recipeId, entry);
+        for (Map.Entry<SortOrder, List<Entry>> order : orders.entrySet()) {
+            List<Entry> list = order.getValue();
+            int pos = Collections.binarySearch(list, entry, COMPARATORS.get(order.getKey()));
+            list.add(-pos - 1, entry);
+        }
+    }
+
+    /**
+     * Добавить или обновить рецепт каталога: прежний остаётся на своём месте
+     * в списке, новый встаёт в конец каталога
+     */
+    void putRemote(Recipe recipe) {
+        Entry current = byId.get(recipe.getId());
+        int seq = current != null && !current.local ? current.seq : nextRemoteSeq++;
+        put(new Entry(recipe.getId(), recipe.getName(), recipe.getDifficulty(),
+                recipe.getCookingTime(), false, seq));
+    }
+
+    /**
+     * Убрать рецепт; false, если его не было
+     */
+    boolean remove(int recipeId) {
+        Entry entry = byId.remove(recipeId);
+        if (entry == null) {
+            return false;
+        }
+        for (Map.Entry<SortOrder, List<Entry>> order : orders.entrySet()) {
+            List<Entry> list = order.getValue();
+            int pos = Collections.binarySearch(list, entry, COMPARATORS.get(order.getKey()));
+            if (pos >= 0) {
+                list.remove(pos);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ID рецептов страницы [offset, offset + limit) из подходящих под фильтр
+     * в заданном порядке. Достаются только рецепты страницы.
+     *
+     * @param matching карта подходящих рецептов из {@link FacetIndex}
+     * @param total    сколько в ней рецептов
+     */
+    int[] page(SortOrder sort, FacetIndex index, long[] matching, int total,
+               int offset, int limit) {
+        List<Entry> list = orders.get(sort);
+        int wanted = Math.min(total, offset + limit);
+        if (wanted <= offset) {
+            return new int[0];
+        }
+        // Обход по порядку просмотрит около wanted * size / total записей;
+        // при редких совпадениях дешевле отсортировать сами совпадения
+        long scan = (long) wanted * list.size() / total;
+        if (scan > 4L * total) {
+            return sortMatches(sort, index.page(matching, 0, total), offset, limit);
+        }
+
+        int[] ids = new int[wanted - offset];
+        int seen = 0;
+        for (int i = 0; i < list.size() && seen < wanted; i++) {
+            int recipeId = list.get(i).recipeId;
+            if (index.contains(matching, recipeId)) {
+                if (seen >= offset) {
+                    ids[seen - offset] = recipeId;
+                }
+                seen++;
+            }
+        }
+        return seen >= wanted ? ids : Arrays.copyOf(ids, Math.max(0, seen - offset));
+    }
+
+    private int[] sortMatches(SortOrder sort, int[] recipeIds, int offset, int limit) {
+        List<Entry> entries = new ArrayList<>(recipeIds.length);
+        for (int recipeId : recipeIds) {
+            Entry entry = byId.get(recipeId);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        Collections.sort(entries, COMPARATORS.get(sort));
+        int from = Math.min(offset, entries.size());
+        int to = Math.min(entries.size(), offset + limit);
+        int[] ids = new int[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = entries.get(i).recipeId;
+        }
+        return ids;
+    }
+}
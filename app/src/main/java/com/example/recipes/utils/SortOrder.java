@@ -0,0 +1,24 @@
+package com.example.recipes.utils;
+
+/**
+ * Порядок списка. DEFAULT — как пришло из API, затем свои рецепты,
+ * а при поиске — по релевантности ({@link FuzzySearchIndex});
+ * для остальных порядков {@link SortIndex} держит готовые упорядоченные списки.
+ */
+public enum SortOrder {
+    DEFAULT("По порядку"),
+    COOKING_TIME("Быстрые"),
+    NAME("По названию"),
+    DIFFICULTY("По сложности"),
+    RECENT("Новые");
+
+    private final String label;
+
+    SortOrder(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.recipes.utils;
+
+import android.database.SQLException;
+import android.util.Log;
+
+import com.example.recipes.models.Recipe;
+
+import java.util.List;
+
+/**
+ * Локальные рецепты и избранное прямо в {@link RecipeDatabase}:
+ * те же строки сразу участвуют в индексированных запросах списка.
+ */
+public class SqliteRecipeStore implements RecipeStore {
+
+    private static final String TAG = "SqliteRecipeStore";
+
+    private final RecipeDatabase database;
+
+    public SqliteRecipeStore(RecipeDatabase database) {
+        this.database = database;
+    }
+
+    @Override
+    public List<Recipe> loadAll() {
+        return database.loadLocal();
+    }
+
+    @Override
+    public boolean put(Recipe recipe) {
+        try {
+            database.putLocal(recipe);
+            return true;
+        } catch (SQLException e) {
+            Log.e(TAG, "Ошибка записи рецепта " + recipe.getId(), e);
+            return false;
+        }
+    }
+
+    @Override
+    public boolean remove(int recipeId) {
+        try {
+            return database.removeLocal(recipeId);
+        } catch (SQLException e) {
+            Log.e(TAG, "Ошибка удаления рецепта " + recipeId, e);
+            return false;
+        }
+    }
+
+    @Override
+    public void clear() {
+        database.clearLocal();
+    }
+
+    @Override
+    public long getSizeOnDisk() {
+        return database.getSizeOnDisk();
+    }
+
+    @Override
+    public boolean storesFavorites() {
+        return true;
+    }
+
+    @Override
+    public IntSet loadFavorites() {
+        return database.loadFavorites();
+    }
+
+    @Override
+    public boolean putFavorite(int recipeId, boolean favorite) {
+        try {
+            database.setFavorite(recipeId, favorite);
+            return true;
+        } catch (SQLException e) {
+            Log.e(TAG, "Ошибка записи избранного " + recipeId, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.recipes.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Нормализация текста для поиска: регистр, ё → е, снятие диакритики.
+ * Кириллическая "й" остаётся отдельной буквой (NFD разложил бы её в "и").
+ */
+public final class TextNormalizer {
+
+    private static final int TABLE_SIZE = 0x500; // латиница + кириллица
+    private static final char[] FOLD = new char[TABLE_SIZE];
+
+    static {
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            FOLD[c] = computeFold((char) c);
+        }
+    }
+
+    private TextNormalizer() {}
+
+    private static char computeFold(char c) {
+        char lower = Character.toLowerCase(c);
+        if (lower == 'ё') {
+            return 'е';
+        }
+        if (lower == 'й') {
+            return 'й';
+        }
+        String decomposed = Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD);
+        return decomposed.isEmpty() ? lower : decomposed.charAt(0);
+    }
+
+    /**
+     * Свернуть один символ
+     */
+    public static char fold(char c) {
+        return c < TABLE_SIZE ? FOLD[c] : Character.toLowerCase(c);
+    }
+
+    /**
+     * Разбить текст на нормализованные токены (буквы и цифры)
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder current = new StringBuilder();
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = fold(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if (current.length() > 0) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.recipes.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.media.ThumbnailUtils;
+import android.net.Uri;
+import android.util.Log;
+
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.Request;
+import com.squareup.picasso.RequestHandler;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Okio;
+
+/**
+ * Миниатюры для строк списка: thumb://{w}x{h}?src={url}.
+ *
+ * Готовая миниатюра нужного размера хранится на диске отдельным JPEG,
+ * поэтому при прокрутке полноразмерная картинка не декодируется.
+ * Если миниатюры ещё нет, оригинал скачивается (через дисковый кэш OkHttp),
+ * декодируется с прореживанием (inSampleSize), обрезается по центру и сохраняется.
+ * Заодно запоминаются размеры оригинала и цвет превью ({@link ImageMetadataStore}).
+ */
+class ThumbnailRequestHandler extends RequestHandler {
+
+    private static final String TAG = "ThumbnailHandler";
+    static final String SCHEME = "thumb";
+    private static final String PARAM_SRC = "src";
+    private static final int JPEG_QUALITY = 85;
+    // Проверять размер папки не на каждую запись
+    private static final int TRIM_EVERY_WRITES = 20;
+
+    private final OkHttpClient client;
+    private final File dir;
+    private final long maxDiskBytes;
+    private final ImageMetadataStore metadata;
+    private int writesSinceTrim;
+
+    ThumbnailRequestHandler(OkHttpClient client, File dir, long maxDiskBytes,
+                            ImageMetadataStore metadata) {
+        this.client = client;
+        this.dir = dir;
+        this.maxDiskBytes = maxDiskBytes;
+        this.metadata = metadata;
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.e(TAG, "Не удалось создать папку " + dir);
+        }
+    }
+
+    static Uri uriFor(String url, int width, int height) {
+        return new Uri.Builder()
+                .scheme(SCHEME)
+                .authority(width + "x" + height)
+                .appendQueryParameter(PARAM_SRC, url)
+                .build();
+    }
+
+    @Override
+    public boolean canHandleRequest(Request data) {
+        return data.uri != null && SCHEME.equals(data.uri.getScheme());
+    }
+
+    @Override
+    public Result load(Request request, int networkPolicy) throws IOException {
+        Uri uri = request.uri;
+        String src = uri.getQueryParameter(PARAM_SRC);
+        String[] size = uri.getAuthority().split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+
+        File file = new File(dir, fileName(src, width, height));
+        if (file.exists()) {
+            file.setLastModified(System.currentTimeMillis());
+            return new Result(Okio.source(file), Picasso.LoadedFrom.DISK);
+        }
+
+        Bitmap thumbnail = download(src, width, height);
+        save(thumbnail, file);
+        return new Result(thumbnail, Picasso.LoadedFrom.NETWORK);
+    }
+
+    private Bitmap download(String src, int width, int height) throws IOException {
+        byte[] bytes;
+        Call call = client.newCall(new okhttp3.Request.Builder().url(src).build());
+        try (Response response = call.execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code() + " для " + src);
+            }
+            bytes = body.bytes();
+        }
+
+        // Сначала только размеры, затем декодирование с прореживанием
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        // После второго прохода outWidth/outHeight — уже прореженный размер
+        int sourceWidth = options.outWidth;
+        int sourceHeight = options.outHeight;
+        options.inSampleSize = sampleSize(sourceWidth, sourceHeight, width, height);
+        options.inJustDecodeBounds = false;
+        Bitmap decoded = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+        if (decoded == null) {
+            throw new IOException("Не удалось декодировать " + src);
+        }
+        Bitmap thumbnail = ThumbnailUtils.extractThumbnail(decoded, width, height,
+                ThumbnailUtils.OPTIONS_RECYCLE_INPUT);
+        metadata.put(src, sourceWidth, sourceHeight,
+                ImageMetadataStore.previewColor(thumbnail));
+        return thumbnail;
+    }
+
+    /**
+     * Наибольшая степень двойки, при которой картинка не меньше цели
+     */
+    static int sampleSize(int sourceWidth, int sourceHeight, int width, int height) {
+        int sample = 1;
+        while (sourceWidth / (sample * 2) >= width && sourceHeight / (sample * 2) >= height) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    private void save(Bitmap thumbnail, File file) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            thumbnail.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Не удалось сохранить миниатюру", e);
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        synchronized (this) {
+            if (++writesSinceTrim >= TRIM_EVERY_WRITES) {
+                writesSinceTrim = 0;
+                trim();
+            }
+        }
+    }
+
+    /**
+     * Удалить давно не использованные миниатюры сверх лимита
+     */
+    private void trim() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= maxDiskBytes * 3 / 4) {
+                break;
+            }
+            total -= file.length();
+            file.delete();
+        }
+    }
+
+    long getSizeOnDisk() {
+        long total = 0;
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                total += file.length();
+            }
+        }
+        return total;
+    }
+
+    private static String fileName(String src, int width, int height) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(src.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(hash.length * 2 + 16);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return name.append('_').append(width).append('x').append(height)
+                    .append(".jpg").toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
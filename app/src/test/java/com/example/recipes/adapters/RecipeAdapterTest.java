@@ -0,0 +1,54 @@
+package com.example.recipes.adapters;
+
+import android.content.Context;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import com.example.recipes.R;
+import com.example.recipes.models.Recipe;
+import com.example.recipes.utils.RecipeFixtures;
+import com.example.recipes.utils.RecipeStorage;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+public class RecipeAdapterTest {
+
+    private static final int ROWS = 50;
+
+    @Test
+    public void bindReusesPlaceholderDrawable() {
+        Context context = new ContextThemeWrapper(RuntimeEnvironment.getApplication(),
+                R.style.Theme_Recipes);
+        RecipeAdapter adapter = new RecipeAdapter(context, RecipeStorage.getInstance(context));
+        List<Recipe> recipes = RecipeFixtures.recipes(ROWS);
+        for (Recipe recipe : recipes) {
+            recipe.setImageColor(0xFF000000 | recipe.getId() * 0x030507);
+        }
+        adapter.setData(recipes);
+
+        RecipeAdapter.ViewHolder holder = adapter.onCreateViewHolder(new FrameLayout(context), 0);
+        Drawable placeholder = null;
+        for (int position = 0; position < ROWS; position++) {
+            adapter.onBindViewHolder(holder, position);
+            Drawable drawable = holder.imgRecipe.getDrawable();
+            if (placeholder == null) {
+                placeholder = drawable;
+            }
+            // Все привязки рисуют один и тот же drawable, перекрашенный под рецепт
+            assertSame(placeholder, drawable);
+            assertEquals(recipes.get(position).getImageColor(),
+                    ((ColorDrawable) drawable).getColor());
+        }
+    }
+}
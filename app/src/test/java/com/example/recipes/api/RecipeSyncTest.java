@@ -0,0 +1,82 @@
+package com.example.recipes.api;
+
+import com.example.recipes.models.Recipe;
+import com.example.recipes.utils.RecipeFixtures;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RecipeSyncTest {
+
+    @Test
+    public void mergeReplacesInPlaceAppendsNewAndDropsRemoved() {
+        List<Recipe> current = RecipeFixtures.recipes(4);
+        Recipe updated = recipe(2, 100);
+        Recipe added = recipe(7, 100);
+
+        List<Recipe> merged = RecipeSync.merge(current, Arrays.asList(added, updated),
+                Collections.singletonList(3));
+
+        assertEquals(Arrays.asList(1, 2, 4, 7), idsOf(merged));
+        assertSame(updated, merged.get(1));
+        assertSame(added, merged.get(3));
+        assertSame(current.get(0), merged.get(0));
+    }
+
+    @Test
+    public void mergeDoesNotTouchCurrentList() {
+        List<Recipe> current = RecipeFixtures.recipes(3);
+        List<Recipe> before = new ArrayList<>(current);
+
+        RecipeSync.merge(current, Collections.singletonList(recipe(1, 100)),
+                Collections.singletonList(2));
+
+        assertEquals(before, current);
+    }
+
+    @Test
+    public void mergeOfRemovedAndChangedKeepsChange() {
+        // Рецепт удалили и тут же создали заново с тем же ID — новая версия остаётся
+        Recipe recreated = recipe(2, 100);
+        List<Recipe> merged = RecipeSync.merge(RecipeFixtures.recipes(3),
+                Collections.singletonList(recreated), Collections.singletonList(2));
+
+        assertEquals(Arrays.asList(1, 3, 2), idsOf(merged));
+        assertSame(recreated, merged.get(2));
+    }
+
+    @Test
+    public void laterUpdateWins() {
+        assertTrue(RecipeSync.isNewer(recipe(1, 200), recipe(1, 100)));
+        assertFalse(RecipeSync.isNewer(recipe(1, 100), recipe(1, 200)));
+        assertFalse(RecipeSync.isNewer(recipe(1, 100), recipe(1, 100)));
+    }
+
+    @Test
+    public void serverVersionWithoutTimestampWins() {
+        assertTrue(RecipeSync.isNewer(recipe(1, 0), recipe(1, 200)));
+    }
+
+    private static Recipe recipe(int id, long updatedAt) {
+        Recipe recipe = RecipeFixtures.recipe(id);
+        recipe.setUpdatedAt(updatedAt);
+        return recipe;
+    }
+
+    private static List<Integer> idsOf(List<Recipe> recipes) {
+        List<Integer> ids = new ArrayList<>(recipes.size());
+        for (Recipe recipe : recipes) {
+            ids.add(recipe.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.recipes.api;
+
+import com.example.recipes.models.RecipeResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import retrofit2.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * HTTP-кэш и условные запросы RetrofitClient против локального MockWebServer
+ */
+public class RetrofitClientTest {
+
+    private static final String CATALOG =
+            "{\"recipes\":[{\"id\":1,\"name\":\"Борщ\"},{\"id\":2,\"name\":\"Плов\"}]}";
+
+    @Rule
+    public TemporaryFolder cacheRoot = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ApiService api;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        api = RetrofitClient.create(server.url("/").toString(), cacheRoot.getRoot())
+                .create(ApiService.class);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void unchangedCatalogIsRevalidatedWithEtag() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(CATALOG));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+        Response<RecipeResponse> first = api.getRecipes().execute();
+        assertFalse(RetrofitClient.isNotModified(first));
+        assertEquals(2, first.body().getRecipes().size());
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+
+        Response<RecipeResponse> second = api.getRecipes().execute();
+        RecordedRequest revalidation = server.takeRequest();
+        assertEquals("\"v1\"", revalidation.getHeader("If-None-Match"));
+        assertTrue(RetrofitClient.isNotModified(second));
+        // Тело 304 пустое — Retrofit отдаёт сохранённое
+        assertEquals("Борщ", second.body().getRecipes().get(0).getName());
+    }
+
+    @Test
+    public void noCacheRequestSkipsRevalidation() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(CATALOG));
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(CATALOG));
+
+        api.getRecipesPage(0, 20).execute();
+        server.takeRequest();
+        Response<RecipeResponse> fresh = api.getRecipesPageNoCache(0, 20).execute();
+
+        // Без If-None-Match сервер отдаёт тело, а не 304
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertFalse(RetrofitClient.isNotModified(fresh));
+        assertEquals(2, fresh.body().getRecipes().size());
+    }
+
+    @Test
+    public void changedCatalogIsDownloadedAgain() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(CATALOG));
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v2\"")
+                .setBody("{\"recipes\":[{\"id\":3,\"name\":\"Наполеон\"}]}"));
+
+        api.getRecipes().execute();
+        Response<RecipeResponse> second = api.getRecipes().execute();
+
+        assertFalse(RetrofitClient.isNotModified(second));
+        assertEquals(3, second.body().getRecipes().get(0).getId());
+    }
+
+    @Test
+    public void offlineFallsBackToStaleCache() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "\"v1\"").setBody(CATALOG));
+        api.getRecipes().execute();
+
+        server.shutdown();
+        Response<RecipeResponse> offline = api.getRecipes().execute();
+
+        assertTrue(offline.isSuccessful());
+        assertNull(offline.raw().networkResponse());
+        assertNotNull(offline.raw().cacheResponse());
+        assertEquals(2, offline.body().getRecipes().size());
+    }
+
+    @Test
+    public void offlineWithoutCacheFails() throws Exception {
+        server.shutdown();
+        try {
+            api.getRecipes().execute();
+            fail("Без сети и без кэша запрос должен упасть");
+        } catch (IOException expected) {
+            // исходная ошибка соединения, а не 504 из кэша
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+import com.google.gson.Gson;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class BinaryRecipeFormatTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    // Сравнение всех полей сразу
+    private final Gson gson = new Gson();
+
+    @Test
+    public void roundTripKeepsAllFields() throws IOException {
+        List<Recipe> recipes = RecipeFixtures.recipes(30);
+        Recipe full = recipes.get(0);
+        full.setImageWidth(640);
+        full.setImageHeight(480);
+        full.setImageColor(0xFF336699);
+        // Пустые поля пишутся как -1 и читаются обратно null
+        Recipe sparse = new Recipe();
+        sparse.setId(99);
+        sparse.setName("Чай");
+        recipes.add(sparse);
+
+        File file = temp.newFile("recipes.bin");
+        BinaryRecipeFormat.write(file, recipes);
+
+        assertEquals(gson.toJson(recipes), gson.toJson(BinaryRecipeFormat.read(file)));
+    }
+
+    @Test
+    public void favoritesSurviveRoundTrip() throws IOException {
+        IntSet favorites = new IntSet();
+        favorites.add(3);
+        favorites.add(1);
+        File file = temp.newFile("recipes.bin");
+        BinaryRecipeFormat.write(file, RecipeFixtures.recipes(3), favorites);
+
+        IntSet read = new IntSet();
+        assertEquals(3, BinaryRecipeFormat.read(file, read).size());
+        assertEquals(2, read.size());
+        assertTrue(read.contains(1));
+        assertTrue(read.contains(3));
+    }
+
+    @Test
+    public void readsVersionOneWithoutFavorites() throws IOException {
+        List<Recipe> recipes = RecipeFixtures.recipes(5);
+        File file = temp.newFile("recipes.bin");
+        BinaryRecipeFormat.write(file, recipes);
+        // v1 — тот же файл без хвоста избранного (int favoriteCount = 0)
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeInt(1);
+            raf.setLength(raf.length() - 4);
+        }
+
+        IntSet favorites = new IntSet();
+        assertEquals(gson.toJson(recipes),
+                gson.toJson(BinaryRecipeFormat.read(file, favorites)));
+        assertEquals(0, favorites.size());
+    }
+
+    @Test
+    public void rejectsUnknownVersion() throws IOException {
+        File file = temp.newFile("recipes.bin");
+        BinaryRecipeFormat.write(file, RecipeFixtures.recipes(2));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeInt(3);
+        }
+        assertReadFails(file);
+    }
+
+    @Test
+    public void truncatedFileFailsWithIOException() throws IOException {
+        File file = temp.newFile("recipes.bin");
+        BinaryRecipeFormat.write(file, RecipeFixtures.recipes(10));
+        long length = file.length();
+        // Обрыв в таблице строк, посреди записи и перед избранным
+        for (long cut : new long[]{10, length / 2, length - 2}) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(cut);
+            }
+            assertReadFails(file);
+            BinaryRecipeFormat.write(file, RecipeFixtures.recipes(10));
+        }
+    }
+
+    @Test
+    public void missingFileReadsEmpty() throws IOException {
+        assertTrue(BinaryRecipeFormat.read(new File(temp.getRoot(), "none.bin")).isEmpty());
+        // Временный файл записи не остаётся рядом с результатом
+        File file = temp.newFile("recipes.bin");
+        BinaryRecipeFormat.write(file, Collections.singletonList(RecipeFixtures.recipe(1)));
+        assertArrayEquals(new String[]{"recipes.bin"}, temp.getRoot().list());
+    }
+
+    private static void assertReadFails(File file) {
+        try {
+            BinaryRecipeFormat.read(file);
+            fail("прочитан повреждённый файл");
+        } catch (IOException expected) {
+            // ожидаемо
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.recipes.utils;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FacetIndexTest {
+
+    private static final String SALADS = "Салаты";
+    private static final String SOUPS = "Супы";
+    private static final String DESSERTS = "Десерты";
+
+    private static FacetIndex index() {
+        FacetIndex.Builder builder = new FacetIndex.Builder(5);
+        builder.add(10, SALADS, "Легкая", 10, 3);
+        builder.add(20, SALADS, "Средняя", 25, 7);
+        builder.add(30, SOUPS, "Легкая", 45, 4);
+        builder.add(40, DESSERTS, "Сложная", 90, 12);
+        builder.add(50, SOUPS, "Средняя", 20, 5);
+        return builder.build();
+    }
+
+    private static IntSet ids(int... ids) {
+        IntSet set = new IntSet();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    private static FacetIndex.Hits query(FacetIndex index, FacetQuery query) {
+        return index.query(query, null, index.maskOf(new IntSet()));
+    }
+
+    private static int[] all(FacetIndex index, long[] bitmap) {
+        return index.page(bitmap, 0, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void countsEveryValueWithoutSelection() {
+        FacetIndex index = index();
+        FacetIndex.Hits hits = query(index, FacetQuery.ALL);
+
+        assertEquals(5, hits.total);
+        Map<String, Integer> categories = hits.counts.get(Facet.CATEGORY);
+        assertEquals(Integer.valueOf(2), categories.get(SALADS));
+        assertEquals(Integer.valueOf(2), categories.get(SOUPS));
+        assertEquals(Integer.valueOf(1), categories.get(DESSERTS));
+        Map<String, Integer> times = hits.counts.get(Facet.COOKING_TIME);
+        assertEquals(Integer.valueOf(1), times.get("до 15 мин"));
+        assertEquals(Integer.valueOf(2), times.get("15–30 мин"));
+        assertEquals(Integer.valueOf(1), times.get("больше часа"));
+        assertEquals(Integer.valueOf(1), hits.counts.get(Facet.INGREDIENTS).get("больше 10 ингр."));
+    }
+
+    @Test
+    public void multiSelectIsOrWithinFacetAndAcrossFacets() {
+        FacetIndex index = index();
+        FacetQuery query = FacetQuery.ALL
+                .with(Facet.CATEGORY, SALADS, true)
+                .with(Facet.CATEGORY, SOUPS, true)
+                .with(Facet.DIFFICULTY, "Легкая", true);
+        FacetIndex.Hits hits = query(index, query);
+
+        assertEquals(2, hits.total);
+        assertArrayEquals(new int[]{10, 30}, all(index, hits.matching));
+        // Счётчики измерения — без его собственного выбора: какие категории есть среди лёгких
+        Map<String, Integer> categories = hits.counts.get(Facet.CATEGORY);
+        assertEquals(Integer.valueOf(1), categories.get(SALADS));
+        assertEquals(Integer.valueOf(1), categories.get(SOUPS));
+        assertEquals(Integer.valueOf(0), categories.get(DESSERTS));
+        Map<String, Integer> difficulties = hits.counts.get(Facet.DIFFICULTY);
+        assertEquals(Integer.valueOf(2), difficulties.get("Легкая"));
+        assertEquals(Integer.valueOf(2), difficulties.get("Средняя"));
+        assertEquals(Integer.valueOf(0), difficulties.get("Сложная"));
+    }
+
+    @Test
+    public void favoritesAndTextMaskNarrowResult() {
+        FacetIndex index = index();
+        // 99 нет в индексе — в карту не попадает
+        long[] favorites = index.maskOf(ids(20, 40, 99));
+        long[] text = index.maskOfOrdinals(index.ordinalsOf(new int[]{20, 30, 40}));
+        FacetQuery query = FacetQuery.ALL.with(Facet.FAVORITES, Facet.FAVORITE, true);
+
+        FacetIndex.Hits hits = index.query(query, text, favorites);
+        assertEquals(2, hits.total);
+        assertArrayEquals(new int[]{20, 40}, all(index, hits.matching));
+        // Без выбора избранного под текст подходят трое, из них избранных двое
+        assertEquals(Integer.valueOf(2), hits.counts.get(Facet.FAVORITES).get(Facet.FAVORITE));
+        assertTrue(index.contains(favorites, 40));
+        assertFalse(index.contains(favorites, 30));
+    }
+
+    @Test
+    public void ordinalsOfHandlesOrderedAndUnorderedIds() {
+        FacetIndex index = index();
+        assertArrayEquals(new int[]{0, 2, 4}, index.ordinalsOf(new int[]{10, 30, 50}));
+        // После расхождения порядка — бинарный поиск; неизвестный ID даёт -1
+        assertArrayEquals(new int[]{2, 0, -1}, index.ordinalsOf(new int[]{30, 10, 77}));
+
+        long[] mask = index.maskOfOrdinals(new int[]{4, -1, 1});
+        assertArrayEquals(new int[]{20, 50}, all(index, mask));
+    }
+
+    @Test
+    public void putAndRemoveUpdateBitmapsInPlace() {
+        FacetIndex index = index();
+        index.put(60, DESSERTS, "Легкая", 5, 2);
+        index.put(10, DESSERTS, "Легкая", 10, 3);
+        assertTrue(index.remove(20));
+        assertFalse(index.remove(20));
+
+        FacetIndex.Hits hits = query(index, FacetQuery.ALL);
+        assertEquals(5, index.size());
+        assertEquals(5, hits.total);
+        // Изменённый рецепт остаётся на своём номере, новый — в конце
+        assertArrayEquals(new int[]{10, 30, 40, 50, 60}, all(index, hits.matching));
+        Map<String, Integer> categories = hits.counts.get(Facet.CATEGORY);
+        assertEquals(Integer.valueOf(0), categories.get(SALADS));
+        assertEquals(Integer.valueOf(3), categories.get(DESSERTS));
+        assertEquals(-1, index.ordinalsOf(new int[]{20})[0]);
+    }
+
+    @Test
+    public void growsPastInitialCapacityAndPagesAcrossWords() {
+        FacetIndex.Builder builder = new FacetIndex.Builder(1);
+        for (int id = 1; id <= 100; id++) {
+            builder.add(id, SOUPS, "Легкая", 30, 4);
+        }
+        FacetIndex index = builder.build();
+        for (int id = 101; id <= 150; id++) {
+            index.put(id, id % 2 == 0 ? SALADS : SOUPS, "Легкая", 30, 4);
+        }
+
+        FacetIndex.Hits hits = query(index, FacetQuery.ALL.with(Facet.CATEGORY, SOUPS, true));
+        assertEquals(125, hits.total);
+        assertArrayEquals(new int[]{99, 100, 101, 103}, index.page(hits.matching, 98, 4));
+        assertEquals(0, index.page(hits.matching, 125, 10).length);
+    }
+}
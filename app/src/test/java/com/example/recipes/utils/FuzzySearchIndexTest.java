@@ -0,0 +1,77 @@
+package com.example.recipes.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzySearchIndexTest {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static FuzzySearchIndex index() {
+        FuzzySearchIndex.Builder builder = new FuzzySearchIndex.Builder(2);
+        builder.add(1, "Борщ домашний", Arrays.asList("2 свеклы", "капуста"));
+        builder.add(2, "Плов", Collections.singletonList("200 г риса"));
+        return builder.build();
+    }
+
+    @Test
+    public void findsByPrefixAndTypo() {
+        FuzzySearchIndex index = index();
+        assertArrayEquals(new int[]{1}, index.search("бор", NO_DEADLINE).recipeIds);
+        assertArrayEquals(new int[]{1}, index.search("борш", NO_DEADLINE).recipeIds);
+        assertArrayEquals(new int[]{2}, index.search("рис", NO_DEADLINE).recipeIds);
+    }
+
+    @Test
+    public void putAddsRecipeWithNewWords() {
+        FuzzySearchIndex index = index();
+        index.put(3, "Запеканка творожная", Collections.singletonList("творог"));
+
+        assertEquals(3, index.size());
+        assertArrayEquals(new int[]{3}, index.search("запеканк", NO_DEADLINE).recipeIds);
+        // Новая основа находится и по началу, и с опечаткой
+        assertArrayEquals(new int[]{3}, index.search("зап", NO_DEADLINE).recipeIds);
+        assertArrayEquals(new int[]{3}, index.search("запиканка", NO_DEADLINE).recipeIds);
+    }
+
+    @Test
+    public void putReplacesPreviousVersion() {
+        FuzzySearchIndex index = index();
+        index.put(2, "Плов с курицей", Collections.singletonList("курица"));
+
+        assertEquals(2, index.size());
+        assertArrayEquals(new int[]{2}, index.search("куриц", NO_DEADLINE).recipeIds);
+        assertEquals(0, index.search("рис", NO_DEADLINE).recipeIds.length);
+    }
+
+    @Test
+    public void textMatchesGoAfterScoredOnes() {
+        FuzzySearchIndex.Matches matches = index().search("борщ", NO_DEADLINE);
+        IntSet described = new IntSet();
+        described.add(1);
+        described.add(7);
+
+        FuzzySearchIndex.Matches merged = matches.with(described);
+        assertArrayEquals(new int[]{1, 7}, merged.recipeIds);
+        assertEquals(matches.scores[0], merged.scores[0], 0f);
+        assertEquals(0f, merged.scores[1], 0f);
+    }
+
+    @Test
+    public void removeHidesRecipe() {
+        FuzzySearchIndex index = index();
+        assertTrue(index.remove(1));
+        assertFalse(index.remove(1));
+
+        assertEquals(1, index.size());
+        assertEquals(0, index.search("борщ", NO_DEADLINE).recipeIds.length);
+        assertArrayEquals(new int[]{2}, index.search("плов", NO_DEADLINE).recipeIds);
+    }
+}
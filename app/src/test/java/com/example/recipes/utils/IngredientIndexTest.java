@@ -0,0 +1,133 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Ingredient;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class IngredientIndexTest {
+
+    /**
+     * Индекс, как его собирает RecipeDatabase.loadIngredientIndex из recipe_ingredients
+     */
+    private static IngredientIndex index(Map<Integer, List<String>> recipes) {
+        TreeMap<Integer, List<String>> byId = new TreeMap<>(recipes);
+        int[] recipeIds = new int[byId.size()];
+        int[] counts = new int[recipeIds.length];
+        TreeMap<String, Integer> keyIds = new TreeMap<>();
+        Map<Integer, long[]> postings = new HashMap<>();
+        int words = IngredientIndex.wordsFor(recipeIds.length);
+
+        int ordinal = 0;
+        for (Map.Entry<Integer, List<String>> recipe : byId.entrySet()) {
+            recipeIds[ordinal] = recipe.getKey();
+            List<Ingredient> ingredients = IngredientParser.parseAll(recipe.getValue());
+            counts[ordinal] = ingredients.size();
+            for (Ingredient ingredient : ingredients) {
+                Integer id = keyIds.get(ingredient.getKey());
+                if (id == null) {
+                    id = keyIds.size() + 1;
+                    keyIds.put(ingredient.getKey(), id);
+                    postings.put(id, new long[words]);
+                }
+                postings.get(id)[ordinal >>> 6] |= 1L << (ordinal & 63);
+            }
+            ordinal++;
+        }
+        String[] keys = keyIds.keySet().toArray(new String[0]);
+        int[] ids = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ids[i] = keyIds.get(keys[i]);
+        }
+        return new IngredientIndex(recipeIds, counts, keys, ids, postings);
+    }
+
+    private static IngredientIndex sample() {
+        Map<Integer, List<String>> recipes = new HashMap<>();
+        recipes.put(1, Arrays.asList("2 моркови", "лук 1 шт", "сыр 100 г"));
+        recipes.put(2, Arrays.asList("лук", "сыр пармезан 50 г"));
+        recipes.put(5, Arrays.asList("лук", "моркови", "свекла", "капуста"));
+        recipes.put(9, Collections.singletonList("рис 200 г"));
+        return index(recipes);
+    }
+
+    @Test
+    public void resolveIncludesRefinements() {
+        IngredientIndex index = sample();
+        // "сыр" — и сам сыр, и "сыр пармезан"; "сыр пармезан" — только он
+        assertEquals(2, index.resolve("Сыр").length);
+        assertEquals(1, index.resolve("сыр пармезан").length);
+        assertEquals(0, index.resolve("сы").length);
+        assertEquals(0, index.resolve("200").length);
+    }
+
+    @Test
+    public void recipesWithAllIntersects() {
+        IngredientIndex index = sample();
+        assertArrayEquals(new int[]{1, 2, 5},
+                index.recipesWithAll(Collections.singletonList("лук")));
+        assertArrayEquals(new int[]{1, 5}, index.recipesWithAll(Arrays.asList("лук", "моркови")));
+        assertArrayEquals(new int[]{1, 2}, index.recipesWithAll(Arrays.asList("сыр", "лук")));
+        assertEquals(0, index.recipesWithAll(Arrays.asList("рис", "лук")).length);
+        assertEquals(0, index.recipesWithAll(Collections.<String>emptyList()).length);
+        assertEquals(2, index.countWithAll(Arrays.asList("лук", "моркови")));
+    }
+
+    @Test
+    public void pantryRanksByMissingThenCoverage() {
+        IngredientIndex index = sample();
+        List<IngredientIndex.Match> matches = index.rankByPantry(
+                Arrays.asList("лук", "сыр", "моркови"), 10);
+
+        // 1 и 2 — ничего не хватает (3 из 3 и 2 из 2), 5 — не хватает двух
+        assertEquals(Arrays.asList(1, 2, 5), idsOf(matches));
+        assertEquals(0, matches.get(1).getMissing());
+        assertEquals(2, matches.get(2).getMissing());
+        assertEquals(0.5f, matches.get(2).getCoverage(), 0f);
+    }
+
+    @Test
+    public void pantryCountsIngredientOnceAndHonoursLimit() {
+        IngredientIndex index = sample();
+        // "сыр" и "сыр пармезан" ведут к одному ингредиенту рецепта 2
+        List<IngredientIndex.Match> matches = index.rankByPantry(
+                Arrays.asList("сыр", "сыр пармезан"), 1);
+        assertEquals(1, matches.size());
+        assertEquals(2, matches.get(0).recipeId);
+        assertEquals(1, matches.get(0).matched);
+
+        assertEquals(0, index.rankByPantry(Collections.singletonList("шафран"), 10).size());
+    }
+
+    @Test
+    public void bitmapsSpanSeveralWords() {
+        Map<Integer, List<String>> recipes = new HashMap<>();
+        for (int id = 1; id <= 200; id++) {
+            recipes.put(id, id % 3 == 0 ? Arrays.asList("лук", "рис")
+                    : Collections.singletonList("лук"));
+        }
+        IngredientIndex index = index(recipes);
+        assertEquals(200, index.countWithAll(Collections.singletonList("лук")));
+        int[] withRice = index.recipesWithAll(Arrays.asList("лук", "рис"));
+        assertEquals(66, withRice.length);
+        assertEquals(198, withRice[withRice.length - 1]);
+    }
+
+    private static List<Integer> idsOf(List<IngredientIndex.Match> matches) {
+        List<Integer> ids = new ArrayList<>();
+        for (IngredientIndex.Match match : matches) {
+            ids.add(match.recipeId);
+        }
+        return ids;
+    }
+}
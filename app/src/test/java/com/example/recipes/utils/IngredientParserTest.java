@@ -0,0 +1,91 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Ingredient;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class IngredientParserTest {
+
+    private static void assertParsed(String raw, String key, double quantity, String unit) {
+        Ingredient ingredient = IngredientParser.parse(raw);
+        assertEquals(raw, key, ingredient.getKey());
+        assertEquals(raw, quantity, ingredient.getQuantity(), 1e-9);
+        assertEquals(raw, unit, ingredient.getUnit());
+    }
+
+    @Test
+    public void amountBeforeOrAfterName() {
+        assertParsed("морковь 2 шт", "морковь", 2, "шт");
+        assertParsed("Мука — 200 г", "мука", 200, "г");
+        assertParsed("Лук 1 шт.", "лук", 1, "шт");
+        assertParsed("200 мл сливок", "сливок", 200, "мл");
+    }
+
+    @Test
+    public void fractionsAndDecimals() {
+        assertParsed("1/2 ч.л. соли", "соли", 0.5, "ч. л.");
+        assertParsed("1 1/2 стакана молока", "молока", 1.5, "стакан");
+        assertParsed("сахар 1,5 стакана", "сахар", 1.5, "стакан");
+        assertParsed("½ лимона", "лимона", 0.5, null);
+    }
+
+    @Test
+    public void rangeTakesFirstNumber() {
+        assertParsed("2-3 зубчика чеснока", "чеснока", 2, "зубчик");
+    }
+
+    @Test
+    public void unitSpellingsAreCanonical() {
+        assertParsed("2 ст. л. сметаны", "сметаны", 2, "ст. л.");
+        assertParsed("100 гр. сыра", "сыра", 100, "г");
+        assertParsed("1 кг картофеля", "картофеля", 1, "кг");
+        assertEquals("ст. л.", IngredientParser.canonicalUnit("столовые ложки"));
+        assertEquals("ломтик", IngredientParser.canonicalUnit("ломтика"));
+        assertEquals("л", IngredientParser.canonicalUnit("литра"));
+    }
+
+    @Test
+    public void unitLetterInsideWordIsName() {
+        // "г" в "грибов" и "л" в "луковицы" — начало слова, а не единица
+        assertParsed("10 грибов", "грибов", 10, null);
+        assertParsed("3 луковицы", "луковицы", 3, null);
+    }
+
+    @Test
+    public void noAmount() {
+        assertParsed("соль по вкусу", "соль", Double.NaN, null);
+        assertParsed("яйца", "яйца", Double.NaN, null);
+        assertFalse(IngredientParser.parse("яйца").hasQuantity());
+    }
+
+    @Test
+    public void zeroDenominatorHasNoQuantity() {
+        assertParsed("1/0 стакана воды", "воды", Double.NaN, "стакан");
+    }
+
+    @Test
+    public void keyIsLowercaseWordsWithoutNumbers() {
+        assertEquals("сыр пармезан", IngredientParser.key("Сыр  Пармезан 50"));
+        assertEquals("сыр пармезан", IngredientParser.parse("Сыр пармезан 50 г").getKey());
+    }
+
+    @Test
+    public void parseAllSkipsEmptyLines() {
+        List<Ingredient> ingredients = IngredientParser.parseAll(
+                Arrays.asList("2 яйца", "", "  ", "200 г", "укроп"));
+        assertEquals(3, ingredients.size());
+        assertEquals("яйца", ingredients.get(0).getKey());
+        // Без имени строка остаётся как есть, ключ — без числа
+        assertEquals("г", ingredients.get(1).getKey());
+        assertEquals("укроп", ingredients.get(2).getKey());
+        assertEquals(0, IngredientParser.parseAll(null).size());
+        assertNull(IngredientParser.canonicalUnit(null));
+    }
+}
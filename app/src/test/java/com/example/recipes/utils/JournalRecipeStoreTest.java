@@ -0,0 +1,67 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JournalRecipeStoreTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void journalIsReplayedAfterRestart() {
+        File dir = temp.getRoot();
+        JournalRecipeStore store = new JournalRecipeStore(dir, Long.MAX_VALUE);
+        store.put(RecipeFixtures.recipe(1));
+        store.put(RecipeFixtures.recipe(2));
+        store.remove(1);
+        store.putFavorite(2, true);
+
+        JournalRecipeStore reopened = new JournalRecipeStore(dir, Long.MAX_VALUE);
+        List<Recipe> recipes = reopened.loadAll();
+        assertEquals(1, recipes.size());
+        assertEquals(2, recipes.get(0).getId());
+        assertTrue(reopened.loadFavorites().contains(2));
+    }
+
+    @Test
+    public void putRightAfterClearSurvives() {
+        File dir = temp.getRoot();
+        JournalRecipeStore store = new JournalRecipeStore(dir, Long.MAX_VALUE);
+        store.put(RecipeFixtures.recipe(1));
+
+        store.clear();
+        store.put(RecipeFixtures.recipe(2));
+
+        List<Recipe> recipes = new JournalRecipeStore(dir, Long.MAX_VALUE).loadAll();
+        assertEquals(1, recipes.size());
+        assertEquals(2, recipes.get(0).getId());
+    }
+
+    @Test
+    public void compactionStartedBeforeClearDoesNotResurrectRecipes() throws Exception {
+        File dir = temp.getRoot();
+        // Порог 0: каждая запись запускает сжатие в фоне
+        JournalRecipeStore store = new JournalRecipeStore(dir, 0);
+        for (int id = 1; id <= 200; id++) {
+            store.put(RecipeFixtures.recipe(id));
+        }
+
+        store.clear();
+        store.put(RecipeFixtures.recipe(1000));
+        store.awaitCompaction();
+
+        List<Recipe> recipes = new JournalRecipeStore(dir, Long.MAX_VALUE).loadAll();
+        assertEquals(1, recipes.size());
+        assertEquals(1000, recipes.get(0).getId());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Синтетический каталог для тестов и бенчмарков: детерминированный,
+ * с русскими названиями и ингредиентами, похожими на настоящие
+ */
+public final class RecipeFixtures {
+
+    private static final String[] DISHES = {"Борщ", "Плов", "Салат", "Суп", "Пирог", "Каша",
+            "Запеканка", "Котлеты", "Блины", "Рагу", "Омлет", "Паста", "Торт", "Жаркое"};
+    private static final String[] QUALIFIERS = {"домашний", "быстрый", "грибной", "овощной",
+            "куриный", "сырный", "летний", "пряный", "классический", "постный"};
+    private static final String[] INGREDIENTS = {"200 г курицы", "1 луковица", "2 моркови",
+            "3 картофелины", "соль по вкусу", "100 г сыра", "2 яйца", "300 мл молока",
+            "1 ст. л. муки", "зубчик чеснока", "500 г говядины", "200 г риса", "помидор",
+            "50 г сливочного масла", "укроп", "150 г грибов", "свекла", "капуста"};
+    private static final String[] CATEGORIES = {"Первые блюда", "Вторые блюда", "Салаты",
+            "Десерты", "Выпечка"};
+    private static final String[] DIFFICULTIES = {"Легкая", "Средняя", "Сложная"};
+
+    private RecipeFixtures() {}
+
+    public static Recipe recipe(int id) {
+        Random random = new Random(id);
+        Recipe recipe = new Recipe();
+        recipe.setId(id);
+        recipe.setName(DISHES[random.nextInt(DISHES.length)] + " "
+                + QUALIFIERS[random.nextInt(QUALIFIERS.length)] + " №" + id);
+        recipe.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        recipe.setCookingTime(10 + random.nextInt(170));
+        recipe.setDifficulty(DIFFICULTIES[random.nextInt(DIFFICULTIES.length)]);
+        List<String> ingredients = new ArrayList<>();
+        for (int i = 0, n = 3 + random.nextInt(5); i < n; i++) {
+            ingredients.add(INGREDIENTS[random.nextInt(INGREDIENTS.length)]);
+        }
+        recipe.setIngredients(ingredients);
+        recipe.setDescription("Рецепт номер " + id + ": " + String.join(", ",
+                Arrays.asList(QUALIFIERS).subList(0, 1 + random.nextInt(QUALIFIERS.length))));
+        recipe.setImageUrl("https://example.com/images/" + id + ".jpg");
+        recipe.setUpdatedAt(1_700_000_000_000L + id);
+        return recipe;
+    }
+
+    public static List<Recipe> recipes(int count) {
+        List<Recipe> recipes = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            recipes.add(recipe(id));
+        }
+        return recipes;
+    }
+
+    /**
+     * Записать {"recipes": [...]} из count рецептов, не держа их все в памяти
+     */
+    public static File writeCatalog(File file, int count) throws IOException {
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8);
+             JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject().name("recipes").beginArray();
+            RecipeTypeAdapter adapter = new RecipeTypeAdapter();
+            for (int id = 1; id <= count; id++) {
+                adapter.write(writer, recipe(id));
+            }
+            writer.endArray().endObject();
+        }
+        return file;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+public class RecipeStorageTest {
+
+    @After
+    public void resetStorage() throws Exception {
+        // Хранилище, база и индексы общие на процесс — иначе тесты зависят от порядка
+        RecipeStorage.resetForTests();
+    }
+
+    @Test
+    public void localRecipeWithServerIdIsRelocated() {
+        RecipeStorage storage = RecipeStorage.getInstance(RuntimeEnvironment.getApplication());
+        // Свой рецепт со старым ID из пространства сервера, в избранном
+        Recipe local = RecipeFixtures.recipe(42);
+        local.setName("Мой борщ");
+        assertTrue(storage.addRecipe(local));
+        storage.toggleFavorite(42);
+
+        Recipe remote = RecipeFixtures.recipe(42);
+        remote.setName("Борщ с сервера");
+        storage.applyRemoteChanges(Collections.singletonList(remote),
+                Collections.<Integer>emptyList());
+
+        Recipe moved = findLocal(storage, "Мой борщ");
+        assertNotNull("свой рецепт потерян", moved);
+        assertTrue(moved.getId() >= RecipeStorage.LOCAL_ID_BASE);
+        assertEquals(local.getIngredients(), moved.getIngredients());
+        assertTrue(storage.isFavorite(moved.getId()));
+
+        // ID 42 теперь у рецепта сервера, избранное за ним не осталось
+        assertNull(findLocal(storage, "Борщ с сервера"));
+        assertEquals("Борщ с сервера", storage.getRecipe(42).getName());
+        assertFalse(storage.isFavorite(42));
+    }
+
+    @Test
+    public void catalogPageWithLocalIdRelocatesLocal() {
+        RecipeStorage storage = RecipeStorage.getInstance(RuntimeEnvironment.getApplication());
+        Recipe local = RecipeFixtures.recipe(44);
+        local.setName("Мои блины");
+        assertTrue(storage.addRecipe(local));
+
+        Recipe remote = RecipeFixtures.recipe(44);
+        remote.setName("Блины с сервера");
+        storage.appendCatalog(Collections.singletonList(remote));
+
+        Recipe moved = findLocal(storage, "Мои блины");
+        assertNotNull("свой рецепт потерян", moved);
+        assertTrue(moved.getId() >= RecipeStorage.LOCAL_ID_BASE);
+        // Рецепт сервера записан в базу, а не отброшен из-за занятого ID
+        assertNull(storage.peekRecipe(44));
+        assertEquals("Блины с сервера", storage.getRecipe(44).getName());
+    }
+
+    @Test
+    public void remoteRecipeWithoutCollisionLeavesLocalsAlone() {
+        RecipeStorage storage = RecipeStorage.getInstance(RuntimeEnvironment.getApplication());
+        Recipe local = storage.createRecipe("Мой плов", "Вторые блюда", 60, "Средняя",
+                Collections.singletonList("200 г риса"), null, null);
+        assertTrue(storage.addRecipe(local));
+
+        storage.applyRemoteChanges(Collections.singletonList(RecipeFixtures.recipe(43)),
+                Collections.<Integer>emptyList());
+
+        Recipe kept = findLocal(storage, "Мой плов");
+        assertNotNull(kept);
+        assertEquals(local.getId(), kept.getId());
+    }
+
+    private static Recipe findLocal(RecipeStorage storage, String name) {
+        for (Recipe recipe : storage.getLocalRecipes()) {
+            if (name.equals(recipe.getName())) {
+                return recipe;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+import com.example.recipes.models.RecipeResponse;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RecipeStreamReaderTest {
+
+    private final Gson gson = GsonProvider.get();
+
+    @Test
+    public void deliversRecipesInOrderAndReturnsMeta() throws IOException {
+        RecipeResponse response = new RecipeResponse();
+        response.setRecipes(RecipeFixtures.recipes(5));
+        response.setNextOffset(5);
+        response.setTotal(12);
+        response.setServerTime(1_700_000_000_123L);
+        response.setDeletedIds(Arrays.asList(3, 9));
+
+        List<Integer> ids = new ArrayList<>();
+        RecipeResponse meta = RecipeStreamReader.read(new StringReader(gson.toJson(response)),
+                gson, recipe -> ids.add(recipe.getId()));
+
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), ids);
+        // Рецепты ушли в sink, в ответе их нет
+        assertNull(meta.getRecipes());
+        assertEquals(Integer.valueOf(5), meta.getNextOffset());
+        assertEquals(Integer.valueOf(12), meta.getTotal());
+        assertEquals(1_700_000_000_123L, meta.getServerTime());
+        assertEquals(Arrays.asList(3, 9), meta.getDeletedIds());
+    }
+
+    @Test
+    public void readsBareArray() throws IOException {
+        String json = gson.toJson(RecipeFixtures.recipes(3));
+        RecipeResponse response = RecipeStreamReader.readAll(new StringReader(json), gson);
+
+        assertEquals(3, response.getRecipes().size());
+        assertEquals(3, response.getRecipes().get(2).getId());
+        assertNull(response.getNextOffset());
+    }
+
+    @Test
+    public void skipsNullsAndUnknownFields() throws IOException {
+        String json = "{\"version\":{\"major\":2},\"recipes\":[null,{\"id\":4,\"extra\":[1,2]}],"
+                + "\"nextOffset\":null,\"total\":1}";
+        RecipeResponse response = RecipeStreamReader.readAll(new StringReader(json), gson);
+
+        assertEquals(1, response.getRecipes().size());
+        assertEquals(4, response.getRecipes().get(0).getId());
+        assertNull(response.getNextOffset());
+        assertEquals(Integer.valueOf(1), response.getTotal());
+    }
+
+    @Test
+    public void firstRecipeArrivesBeforeInputIsRead() throws IOException {
+        JsonObject body = new JsonObject();
+        body.add("recipes", gson.toJsonTree(RecipeFixtures.recipes(2_000)));
+        String json = body.toString();
+        CountingReader in = new CountingReader(new StringReader(json));
+        long[] readAtFirst = {-1};
+        int[] seen = {0};
+
+        RecipeStreamReader.read(in, gson, recipe -> {
+            if (seen[0]++ == 0) {
+                readAtFirst[0] = in.count;
+            }
+        });
+
+        assertEquals(2_000, seen[0]);
+        // Разбор идёт по ходу чтения: к первому рецепту прочитан лишь буфер, а не весь файл
+        assertTrue("прочитано " + readAtFirst[0] + " из " + json.length(),
+                readAtFirst[0] > 0 && readAtFirst[0] * 10 < json.length());
+    }
+
+    private static final class CountingReader extends FilterReader {
+        long count;
+
+        CountingReader(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) {
+                count++;
+            }
+            return c;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * RecipeTypeAdapter должен давать то же, что рефлексивный Gson, которым
+ * записаны старые файлы хранилища и кэша
+ */
+public class RecipeTypeAdapterTest {
+
+    private static final Type LIST_TYPE = new TypeToken<List<Recipe>>() {}.getType();
+
+    private final Gson reflective = new Gson();
+    private final Gson adapter = GsonProvider.get();
+
+    private static Recipe fullRecipe(int id) {
+        Recipe recipe = RecipeFixtures.recipe(id);
+        recipe.setImageWidth(640);
+        recipe.setImageHeight(480);
+        recipe.setImageColor(0xFF336699);
+        return recipe;
+    }
+
+    @Test
+    public void writesSameJsonAsReflectiveGson() {
+        for (int id = 1; id <= 20; id++) {
+            Recipe recipe = fullRecipe(id);
+            assertEquals(JsonParser.parseString(reflective.toJson(recipe)),
+                    JsonParser.parseString(adapter.toJson(recipe)));
+        }
+    }
+
+    @Test
+    public void readsReflectiveGsonOutput() {
+        List<Recipe> recipes = RecipeFixtures.recipes(20);
+        recipes.set(0, fullRecipe(1));
+        String json = reflective.toJson(recipes);
+
+        List<Recipe> parsed = adapter.fromJson(json, LIST_TYPE);
+        assertEquals(json, reflective.toJson(parsed));
+    }
+
+    @Test
+    public void roundTripKeepsEmptyFields() {
+        // Без картинки, описания и отметки времени: пропущенные поля читаются нулями
+        Recipe sparse = new Recipe();
+        sparse.setId(7);
+        sparse.setName("Чай");
+
+        Recipe parsed = adapter.fromJson(adapter.toJson(sparse), Recipe.class);
+        assertEquals(reflective.toJson(sparse), reflective.toJson(parsed));
+    }
+
+    @Test
+    public void colorWithoutSizeSurvivesRoundTrip() {
+        Recipe recipe = RecipeFixtures.recipe(3);
+        recipe.setImageColor(0xFF336699);
+
+        Recipe parsed = adapter.fromJson(adapter.toJson(recipe), Recipe.class);
+        assertEquals(0xFF336699, parsed.getImageColor());
+        assertEquals(0, parsed.getImageWidth());
+        assertEquals(reflective.toJson(recipe), reflective.toJson(parsed));
+    }
+
+    @Test
+    public void readsColorAsHexString() {
+        Recipe recipe = adapter.fromJson("{\"id\":1,\"imageColor\":\"#FF8800\"}", Recipe.class);
+        assertEquals(0xFFFF8800, recipe.getImageColor());
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.recipes.utils;
+
+import com.example.recipes.models.Recipe;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SortIndexTest {
+
+    private static final int LOCAL = RecipeStorage.LOCAL_ID_BASE;
+
+    private static SortIndex.Entry remote(int id, String name, int cookingTime, int seq) {
+        return new SortIndex.Entry(id, name, "Средняя", cookingTime, false, seq);
+    }
+
+    private static List<SortIndex.Entry> catalog(int count) {
+        List<SortIndex.Entry> entries = new ArrayList<>();
+        for (Recipe recipe : RecipeFixtures.recipes(count)) {
+            entries.add(new SortIndex.Entry(recipe.getId(), recipe.getName(),
+                    recipe.getDifficulty(), recipe.getCookingTime(), false, recipe.getId()));
+        }
+        return entries;
+    }
+
+    /**
+     * Карта фильтра, в которой есть только перечисленные рецепты
+     */
+    private static final class Filter {
+        final FacetIndex index;
+        final long[] matching;
+        final int total;
+
+        Filter(int[] allIds, int[] matchingIds) {
+            FacetIndex.Builder builder = new FacetIndex.Builder(allIds.length);
+            for (int id : allIds) {
+                builder.add(id, "Салаты", "Средняя", 30, 3);
+            }
+            index = builder.build();
+            matching = index.maskOfOrdinals(index.ordinalsOf(matchingIds));
+            total = matchingIds.length;
+        }
+    }
+
+    private static int[] idsOf(List<SortIndex.Entry> entries) {
+        int[] ids = new int[entries.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = entries.get(i).recipeId;
+        }
+        return ids;
+    }
+
+    private static int[] every(int[] ids, int step) {
+        int[] result = new int[(ids.length + step - 1) / step];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ids[i * step];
+        }
+        return result;
+    }
+
+    private static int[] order(SortIndex sortIndex, SortOrder sort, Filter filter) {
+        return sortIndex.page(sort, filter.index, filter.matching, filter.total,
+                0, Integer.MAX_VALUE);
+    }
+
+    private static int[] retain(int[] ordered, int[] kept) {
+        List<Integer> keep = new ArrayList<>();
+        for (int id : kept) {
+            keep.add(id);
+        }
+        int[] result = new int[kept.length];
+        int n = 0;
+        for (int id : ordered) {
+            if (keep.contains(id)) {
+                result[n++] = id;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    @Test
+    public void putAndRemoveKeepEveryOrderSorted() {
+        List<SortIndex.Entry> entries = catalog(40);
+        SortIndex incremental = new SortIndex(new ArrayList<>(entries.subList(0, 20)));
+        for (SortIndex.Entry entry : entries.subList(20, 40)) {
+            incremental.put(entry);
+        }
+        // Обновление ключей и удаление
+        SortIndex.Entry faster = remote(7, "Борщ", 5, 7);
+        incremental.put(faster);
+        entries.set(6, faster);
+        assertTrue(incremental.remove(12));
+        assertFalse(incremental.remove(12));
+        entries.remove(11);
+
+        SortIndex rebuilt = new SortIndex(entries);
+        int[] ids = idsOf(entries);
+        Filter all = new Filter(ids, ids);
+        assertEquals(rebuilt.size(), incremental.size());
+        for (SortOrder sort : SortOrder.values()) {
+            assertArrayEquals(sort.name(), order(rebuilt, sort, all),
+                    order(incremental, sort, all));
+        }
+        assertEquals(7, order(incremental, SortOrder.COOKING_TIME, all)[0]);
+    }
+
+    @Test
+    public void sparseMatchesAreSortedLikeOrderWalk() {
+        List<SortIndex.Entry> entries = catalog(400);
+        SortIndex sortIndex = new SortIndex(entries);
+        int[] ids = idsOf(entries);
+        Filter all = new Filter(ids, ids);
+        // 4 из 400: обход списка дороже (scan > 4 * total) — сортируются сами совпадения
+        Filter sparse = new Filter(ids, every(ids, 100));
+        // Половина: обход по готовому порядку
+        Filter dense = new Filter(ids, every(ids, 2));
+
+        for (SortOrder sort : SortOrder.values()) {
+            int[] full = order(sortIndex, sort, all);
+            assertArrayEquals(sort.name(), retain(full, every(ids, 100)),
+                    order(sortIndex, sort, sparse));
+            assertArrayEquals(sort.name(), retain(full, every(ids, 2)),
+                    order(sortIndex, sort, dense));
+
+            // Страница из середины — та же в обоих режимах
+            int[] sparseAll = order(sortIndex, sort, sparse);
+            assertArrayEquals(Arrays.copyOfRange(sparseAll, 1, 3),
+                    sortIndex.page(sort, sparse.index, sparse.matching, sparse.total, 1, 2));
+            int[] denseAll = order(sortIndex, sort, dense);
+            assertArrayEquals(Arrays.copyOfRange(denseAll, 50, 60),
+                    sortIndex.page(sort, dense.index, dense.matching, dense.total, 50, 10));
+        }
+        assertEquals(0, sortIndex.page(SortOrder.NAME, dense.index, dense.matching,
+                dense.total, dense.total, 10).length);
+    }
+
+    @Test
+    public void recentPutsLocalRecipesFirst() {
+        Recipe mine = RecipeFixtures.recipe(LOCAL + 1);
+        Recipe newest = RecipeFixtures.recipe(LOCAL + 2);
+        SortIndex sortIndex = new SortIndex(new ArrayList<>(Arrays.asList(
+                remote(3, "Плов", 60, 0), SortIndex.Entry.local(newest),
+                remote(1, "Борщ", 90, 1), SortIndex.Entry.local(mine),
+                remote(2, "Суп", 30, 2))));
+        int[] ids = {1, 2, 3, LOCAL + 1, LOCAL + 2};
+        Filter all = new Filter(ids, ids);
+
+        // Свои от последнего добавленного, затем каталог с конца
+        assertArrayEquals(new int[]{LOCAL + 2, LOCAL + 1, 2, 1, 3},
+                order(sortIndex, SortOrder.RECENT, all));
+        // По умолчанию — каталог в порядке API, затем свои
+        assertArrayEquals(new int[]{3, 1, 2, LOCAL + 1, LOCAL + 2},
+                order(sortIndex, SortOrder.DEFAULT, all));
+    }
+
+    @Test
+    public void putRemoteKeepsPlaceOfKnownRecipe() {
+        SortIndex sortIndex = new SortIndex(new ArrayList<>(Arrays.asList(
+                remote(3, "Плов", 60, 0), remote(1, "Борщ", 90, 1),
+                SortIndex.Entry.local(RecipeFixtures.recipe(LOCAL + 1)))));
+
+        Recipe changed = RecipeFixtures.recipe(3);
+        sortIndex.putRemote(changed);
+        sortIndex.putRemote(RecipeFixtures.recipe(9));
+
+        int[] ids = {1, 3, 9, LOCAL + 1};
+        Filter all = new Filter(ids, ids);
+        // Изменённый остался первым, новый встал в конец каталога, перед своими
+        assertArrayEquals(new int[]{3, 1, 9, LOCAL + 1},
+                order(sortIndex, SortOrder.DEFAULT, all));
+    }
+}